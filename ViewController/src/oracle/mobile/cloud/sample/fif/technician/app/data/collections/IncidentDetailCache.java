@@ -0,0 +1,180 @@
+package oracle.mobile.cloud.sample.fif.technician.app.data.collections;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import oracle.mobile.cloud.sample.fif.technician.app.data.entities.Incident;
+
+/**
+ * Incidents recently queried from MCS, keyed by incident id. The detail page reads the incident from this cache instead
+ * of querying MCS again if the incident was queried or contained in an incident list a short time ago. Entries expire
+ * after the time to live, and the least recently used entry is removed when the cache is full.
+ *
+ * Question 1: When must an incident be removed from the cache?
+ * Answer   1: Whenever it is known to have changed on the server: after a status update of the technician and when a
+ *             push notification for the incident arrives. Use invalidate() for this.
+ *
+ * Question 2: How effective is the cache?
+ * Answer   2: getHitCount() and getMissCount() count the lookups that were served from the cache and the lookups that
+ *             required a query. Expired entries count as miss.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public class IncidentDetailCache {
+
+    private final int maxEntries;
+    private final long timeToLiveNanos;
+
+    private final LinkedHashMap<String, CacheEntry> entries;
+
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     * @param maxEntries maximum number of incidents in the cache
+     * @param timeToLiveMillis time after which a cached incident is queried again
+     */
+    public IncidentDetailCache(final int maxEntries, long timeToLiveMillis) {
+        if (maxEntries <= 0 || timeToLiveMillis < 0) {
+            throw new IllegalArgumentException("Invalid incident cache: maxEntries=" + maxEntries + ", timeToLiveMillis=" +
+                                               timeToLiveMillis);
+        }
+        this.maxEntries = maxEntries;
+        this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLiveMillis);
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param incidentId
+     * @return the cached incident or null if the incident is not cached or expired
+     */
+    public synchronized Incident get(String incidentId) {
+        String key = toKey(incidentId);
+        CacheEntry entry = key == null ? null : entries.get(key);
+        if (entry != null && System.nanoTime() - entry.cachedAt > timeToLiveNanos) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.incident;
+    }
+
+    /**
+     * Reads an incident without counting the lookup and without checking its age, e.g. to change a cached incident
+     * @param incidentId
+     * @return the cached incident or null
+     */
+    public synchronized Incident peek(String incidentId) {
+        String key = toKey(incidentId);
+        CacheEntry entry = key == null ? null : entries.get(key);
+        return entry == null ? null : entry.incident;
+    }
+
+    /**
+     * Adds or replaces an incident. Incidents without id are ignored
+     * @param incident
+     */
+    public synchronized void put(Incident incident) {
+        String key = incident == null || incident.getId() == null ? null : toKey(incident.getId().toString());
+        if (key != null) {
+            entries.put(key, new CacheEntry(incident, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Replaces a cached incident, e.g. by a copy with a changed status. The entry keeps its age, so it expires when the
+     * replaced incident would have expired. Incidents that are not cached are ignored
+     * @param incident
+     */
+    public synchronized void replace(Incident incident) {
+        String key = incident == null || incident.getId() == null ? null : toKey(incident.getId().toString());
+        CacheEntry entry = key == null ? null : entries.get(key);
+        if (entry != null) {
+            entries.put(key, new CacheEntry(incident, entry.cachedAt));
+        }
+    }
+
+    /**
+     * Adds the incidents of a list response
+     * @param incidents
+     */
+    public synchronized void putAll(List<Incident> incidents) {
+        if (incidents == null) {
+            return;
+        }
+        for (Incident incident : incidents) {
+            put(incident);
+        }
+    }
+
+    /**
+     * Removes an incident that changed on the server
+     * @param incidentId
+     */
+    public synchronized void invalidate(String incidentId) {
+        String key = toKey(incidentId);
+        if (key != null) {
+            entries.remove(key);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Flattens the cache statistics into a String for logging
+     * @return String of key/value pairs
+     */
+    @Override
+    public synchronized String toString() {
+        return "[size:" + entries.size() + ";maxEntries:" + maxEntries + ";ttlMs:" +
+               TimeUnit.NANOSECONDS.toMillis(timeToLiveNanos) + ";hits:" + hitCount + ";misses:" + missCount + "]";
+    }
+
+    private static String toKey(String incidentId) {
+        if (incidentId == null) {
+            return null;
+        }
+        String key = incidentId.trim();
+        return key.isEmpty() ? null : key;
+    }
+
+
+    private static final class CacheEntry {
+        private final Incident incident;
+        private final long cachedAt;
+
+        CacheEntry(Incident incident, long cachedAt) {
+            this.incident = incident;
+            this.cachedAt = cachedAt;
+        }
+    }
+}
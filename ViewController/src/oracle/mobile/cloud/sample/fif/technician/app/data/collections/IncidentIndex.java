@@ -0,0 +1,138 @@
+package oracle.mobile.cloud.sample.fif.technician.app.data.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import oracle.mobile.cloud.sample.fif.technician.app.data.entities.Incident;
+import oracle.mobile.cloud.sample.fif.technician.app.data.query.IncidentKey;
+
+/**
+ * Read-only view of the incidents queried for a technician, grouped by status and by priority. The index is built once
+ * each time the incident list is queried, so that filtering the list view by status (New, InProgress, Complete, All)
+ * returns a prepared list instead of looping over all incidents and copying the result.
+ *
+ * Lookups are case insensitive, which is how the list filter compared the status before. The index also holds the
+ * normalized search keys of each incident, which IncidentQuery uses to filter by more than the status.
+ *
+ * Question 1: Can the lists returned by the index be modified?
+ * Answer   1: No. The lists are shared between calls, so they are returned as read-only views that throw an
+ *             UnsupportedOperationException when changed. Code that needs to change the incident list must create a
+ *             new list and build a new index from it.
+ *
+ * Question 2: What if the status of an incident changes?
+ * Answer   2: The index is a snapshot of the status at the time it was built. Build a new index after status changes.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public class IncidentIndex {
+
+    private final List<Incident> allIncidents;
+    private final HashMap<String, List<Incident>> incidentsByStatus = new HashMap<String, List<Incident>>();
+    private final HashMap<String, List<Incident>> incidentsByPriority = new HashMap<String, List<Incident>>();
+    private final List<IncidentKey> keys;
+    private final HashMap<String, List<IncidentKey>> keysByStatus = new HashMap<String, List<IncidentKey>>();
+
+    /**
+     * Builds the index in a single pass over the incident list
+     * @param incidents list of incidents to index. The index takes ownership of the list, the list must not be changed
+     * afterwards
+     */
+    public IncidentIndex(List<Incident> incidents) {
+        List<Incident> incidentList = incidents != null ? incidents : new ArrayList<Incident>();
+        ArrayList<IncidentKey> keyList = new ArrayList<IncidentKey>(incidentList.size());
+
+        for (Incident incident : incidentList) {
+            IncidentKey key = new IncidentKey(incident);
+            keyList.add(key);
+            addToGroup(incidentsByStatus, key.getStatus(), incident);
+            addToGroup(incidentsByPriority, key.getPriority(), incident);
+            addToGroup(keysByStatus, key.getStatus(), key);
+        }
+
+        //the views are created once, so the getters do not allocate
+        this.allIncidents = Collections.unmodifiableList(incidentList);
+        this.keys = Collections.unmodifiableList(keyList);
+        makeReadOnly(incidentsByStatus);
+        makeReadOnly(incidentsByPriority);
+        makeReadOnly(keysByStatus);
+    }
+
+    /**
+     * @return all incidents in the order they were queried, read-only
+     */
+    public List<Incident> getAll() {
+        return allIncidents;
+    }
+
+    /**
+     * @param status "New", "InProgress", "Complete" (case insensitive)
+     * @return incidents with the status in the order they were queried, or an empty list. The list is read-only
+     */
+    public List<Incident> getByStatus(String status) {
+        return getGroup(incidentsByStatus, status);
+    }
+
+    /**
+     * @param priority "High", "Medium", "Low" (case insensitive)
+     * @return incidents with the priority in the order they were queried, or an empty list. The list is read-only
+     */
+    public List<Incident> getByPriority(String priority) {
+        return getGroup(incidentsByPriority, priority);
+    }
+
+    /**
+     * @param status "New", "InProgress", "Complete" (case insensitive)
+     * @return number of incidents with the status
+     */
+    public int countByStatus(String status) {
+        return getByStatus(status).size();
+    }
+
+    /**
+     * @return normalized search keys of all incidents in the order they were queried, read-only
+     */
+    public List<IncidentKey> getKeys() {
+        return keys;
+    }
+
+    /**
+     * @param status "New", "InProgress", "Complete" (case insensitive)
+     * @return normalized search keys of the incidents with the status, or an empty list. The list is read-only
+     */
+    public List<IncidentKey> getKeysByStatus(String status) {
+        List<IncidentKey> group = keysByStatus.get(toKey(status));
+        return group != null ? group : Collections.<IncidentKey>emptyList();
+    }
+
+    public int size() {
+        return allIncidents.size();
+    }
+
+    private static <T> void addToGroup(HashMap<String, List<T>> groups, String value, T item) {
+        String key = toKey(value);
+        List<T> group = groups.get(key);
+        if (group == null) {
+            group = new ArrayList<T>();
+            groups.put(key, group);
+        }
+        group.add(item);
+    }
+
+    private static <T> void makeReadOnly(HashMap<String, List<T>> groups) {
+        for (Map.Entry<String, List<T>> group : groups.entrySet()) {
+            group.setValue(Collections.unmodifiableList(group.getValue()));
+        }
+    }
+
+    private static List<Incident> getGroup(HashMap<String, List<Incident>> groups, String value) {
+        List<Incident> group = groups.get(toKey(value));
+        return group != null ? group : Collections.<Incident>emptyList();
+    }
+
+    private static String toKey(String value) {
+        return IncidentKey.normalize(value);
+    }
+}
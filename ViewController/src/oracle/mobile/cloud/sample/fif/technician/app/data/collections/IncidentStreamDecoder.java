@@ -0,0 +1,399 @@
+package oracle.mobile.cloud.sample.fif.technician.app.data.collections;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+
+import oracle.adfmf.json.JSONArray;
+import oracle.adfmf.json.JSONException;
+import oracle.adfmf.json.JSONObject;
+
+import oracle.mobile.cloud.sample.fif.technician.app.data.entities.Incident;
+import oracle.mobile.cloud.sample.fif.technician.app.log.ComponentLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.LogComponent;
+
+/**
+ * Decodes the incident list returned by the FiF custom API directly from the UTF-8 encoded response bytes. Unlike
+ * the Incidents class, which requires the response as a String and the whole "items" array as a JSONArray, the decoder
+ * reads the response token by token and only holds the JSON object of the incident it currently decodes. Each incident
+ * object is converted into an Incident entity as soon as it has been read.
+ *
+ * The decoder accepts the response format shown in the Incidents class ({"items": [ ... ], ...}) as well as a plain
+ * array of incidents. Attributes other than "items" on the top level are skipped without being materialized.
+ *
+ * Question 1: Why does the decoder still create a JSONObject for each incident?
+ * Answer   1: The Incident entity reads its attributes from a JSONObject (populateInstanceFromJSON). Reusing it keeps
+ *             the mapping of incident attributes in one place. The JSONObject is small and discarded after the
+ *             incident is populated.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public class IncidentStreamDecoder {
+
+    private static final ComponentLogger LOG =
+        ComponentLogger.getLogger(LogComponent.PARSING, "IncidentStreamDecoder");
+
+    private final byte[] data;
+    private int position = 0;
+
+    //reused for strings that contain escape sequences
+    private final StringBuilder stringBuffer = new StringBuilder();
+
+    private IncidentStreamDecoder(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Decodes the incidents in the JSON response
+     * @param data UTF-8 encoded JSON response
+     * @return list of incidents, empty if the response contains no incidents
+     * @throws JSONException if the response is not valid JSON
+     */
+    public static ArrayList<Incident> decode(byte[] data) throws JSONException {
+        ArrayList<Incident> incidents = new ArrayList<Incident>();
+        if (data == null || data.length == 0) {
+            return incidents;
+        }
+
+        IncidentStreamDecoder decoder = new IncidentStreamDecoder(data);
+        decoder.skipWhitespace();
+        byte first = decoder.peek();
+
+        if (first == '[') {
+            decoder.readIncidentArray(incidents);
+        } else if (first == '{') {
+            decoder.position++;
+            decoder.skipWhitespace();
+            if (decoder.peek() == '}') {
+                return incidents;
+            }
+            while (true) {
+                decoder.skipWhitespace();
+                String name = decoder.readString();
+                decoder.skipWhitespace();
+                decoder.expect(':');
+                decoder.skipWhitespace();
+                if ("items".equals(name) && decoder.peek() == '[') {
+                    decoder.readIncidentArray(incidents);
+                } else {
+                    decoder.skipValue();
+                }
+                decoder.skipWhitespace();
+                byte separator = decoder.next();
+                if (separator == '}') {
+                    break;
+                }
+                if (separator != ',') {
+                    throw decoder.error("Expected ',' or '}'");
+                }
+            }
+        } else {
+            throw decoder.error("Expected '{' or '['");
+        }
+        return incidents;
+    }
+
+    /**
+     * Reads the array of incident objects and converts each object into an Incident
+     * @param incidents the list to add the incidents to
+     */
+    private void readIncidentArray(ArrayList<Incident> incidents) throws JSONException {
+        expect('[');
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() == '{') {
+                JSONObject incidentJSON = readObject();
+                try {
+                    Incident incident = new Incident();
+                    incident.populateInstanceFromJSON(incidentJSON);
+                    incidents.add(incident);
+                } catch (JSONException e) {
+                    LOG.severe("readIncidentArray", "incident.parseFailure", "position", position, "error",
+                               e.getMessage());
+                }
+            } else {
+                skipValue();
+            }
+            skipWhitespace();
+            byte separator = next();
+            if (separator == ']') {
+                return;
+            }
+            if (separator != ',') {
+                throw error("Expected ',' or ']'");
+            }
+        }
+    }
+
+    private Object readValue() throws JSONException {
+        switch (peek()) {
+        case '{':
+            return readObject();
+        case '[':
+            return readArray();
+        case '"':
+            return readString();
+        case 't':
+            expectLiteral("true");
+            return Boolean.TRUE;
+        case 'f':
+            expectLiteral("false");
+            return Boolean.FALSE;
+        case 'n':
+            expectLiteral("null");
+            return JSONObject.NULL;
+        default:
+            return readNumber();
+        }
+    }
+
+    private JSONObject readObject() throws JSONException {
+        expect('{');
+        JSONObject object = new JSONObject();
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            object.put(name, readValue());
+            skipWhitespace();
+            byte separator = next();
+            if (separator == '}') {
+                return object;
+            }
+            if (separator != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+
+    private JSONArray readArray() throws JSONException {
+        expect('[');
+        JSONArray array = new JSONArray();
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        while (true) {
+            skipWhitespace();
+            array.put(readValue());
+            skipWhitespace();
+            byte separator = next();
+            if (separator == ']') {
+                return array;
+            }
+            if (separator != ',') {
+                throw error("Expected ',' or ']'");
+            }
+        }
+    }
+
+    /**
+     * Reads a string value. Strings without escape sequences are decoded from the byte array without copying
+     */
+    private String readString() throws JSONException {
+        expect('"');
+        int start = position;
+        while (position < data.length) {
+            byte b = data[position];
+            if (b == '"') {
+                String value = new String(data, start, position - start, StandardCharsets.UTF_8);
+                position++;
+                return value;
+            }
+            if (b == '\\') {
+                return readEscapedString(start);
+            }
+            position++;
+        }
+        throw error("Unterminated string");
+    }
+
+    /**
+     * Continues reading a string at the first escape sequence
+     * @param start position of the first character of the string
+     */
+    private String readEscapedString(int start) throws JSONException {
+        stringBuffer.setLength(0);
+        int chunkStart = start;
+        while (position < data.length) {
+            byte b = data[position];
+            if (b == '"') {
+                stringBuffer.append(new String(data, chunkStart, position - chunkStart, StandardCharsets.UTF_8));
+                position++;
+                return stringBuffer.toString();
+            }
+            if (b == '\\') {
+                stringBuffer.append(new String(data, chunkStart, position - chunkStart, StandardCharsets.UTF_8));
+                position++;
+                byte escaped = next();
+                switch (escaped) {
+                case 'n':
+                    stringBuffer.append('\n');
+                    break;
+                case 'r':
+                    stringBuffer.append('\r');
+                    break;
+                case 't':
+                    stringBuffer.append('\t');
+                    break;
+                case 'b':
+                    stringBuffer.append('\b');
+                    break;
+                case 'f':
+                    stringBuffer.append('\f');
+                    break;
+                case 'u':
+                    if (position + 4 > data.length) {
+                        throw error("Invalid unicode escape sequence");
+                    }
+                    try {
+                        stringBuffer.append((char) Integer.parseInt(new String(data, position, 4,
+                                                                               StandardCharsets.US_ASCII), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid unicode escape sequence");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    // \" \\ \/
+                    stringBuffer.append((char) escaped);
+                }
+                chunkStart = position;
+            } else {
+                position++;
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private Object readNumber() throws JSONException {
+        int start = position;
+        boolean decimal = false;
+        while (position < data.length) {
+            byte b = data[position];
+            if ((b >= '0' && b <= '9') || b == '-' || b == '+') {
+                position++;
+            } else if (b == '.' || b == 'e' || b == 'E') {
+                decimal = true;
+                position++;
+            } else {
+                break;
+            }
+        }
+        if (start == position) {
+            throw error("Unexpected character");
+        }
+        String number = new String(data, start, position - start, StandardCharsets.US_ASCII);
+        try {
+            if (decimal) {
+                return Double.valueOf(number);
+            }
+            long value = Long.parseLong(number);
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                return Integer.valueOf((int) value);
+            }
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw error("Invalid number " + number);
+        }
+    }
+
+    /**
+     * Skips a value without creating objects for it
+     */
+    private void skipValue() throws JSONException {
+        byte b = peek();
+        if (b == '"') {
+            skipString();
+        } else if (b == '{' || b == '[') {
+            int depth = 0;
+            do {
+                b = next();
+                if (b == '"') {
+                    position--;
+                    skipString();
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    depth--;
+                }
+            } while (depth > 0);
+        } else {
+            //number or literal
+            while (position < data.length) {
+                b = data[position];
+                if (b == ',' || b == '}' || b == ']' || isWhitespace(b)) {
+                    break;
+                }
+                position++;
+            }
+        }
+    }
+
+    private void skipString() throws JSONException {
+        expect('"');
+        while (position < data.length) {
+            byte b = data[position++];
+            if (b == '\\') {
+                position++;
+            } else if (b == '"') {
+                return;
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private void expectLiteral(String literal) throws JSONException {
+        for (int i = 0; i < literal.length(); i++) {
+            if (next() != literal.charAt(i)) {
+                throw error("Expected " + literal);
+            }
+        }
+    }
+
+    private void expect(char expected) throws JSONException {
+        if (next() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+    }
+
+    private byte peek() throws JSONException {
+        if (position >= data.length) {
+            throw error("Unexpected end of input");
+        }
+        return data[position];
+    }
+
+    private byte next() throws JSONException {
+        byte b = peek();
+        position++;
+        return b;
+    }
+
+    private void skipWhitespace() {
+        while (position < data.length && isWhitespace(data[position])) {
+            position++;
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private JSONException error(String message) {
+        return new JSONException(message + " at position " + position);
+    }
+}
@@ -7,7 +7,8 @@ import oracle.adfmf.json.JSONException;
 import oracle.adfmf.json.JSONObject;
 
 import oracle.mobile.cloud.sample.fif.technician.app.data.entities.Incident;
-import oracle.mobile.cloud.sample.fif.technician.app.log.AppLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.ComponentLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.LogComponent;
 
 /**
  * Incidents class is used to parse the JSON objects into a list of incident (Lis&lt;Incident&gt;) An example payload for
@@ -53,6 +54,8 @@ import oracle.mobile.cloud.sample.fif.technician.app.log.AppLogger;
  * @copyright Copyright (c) 2015 Oracle. All rights reserved.
  */
 public class Incidents {
+
+    private static final ComponentLogger LOG = ComponentLogger.getLogger(LogComponent.PARSING, "Incidents");
     
     private JSONArray items = null;
     
@@ -89,7 +92,7 @@ public class Incidents {
                     incidents.add(incident);
                     
                 } catch (JSONException e) {
-                    AppLogger.logSevereError("Failed to parse JSON Array Object. \n"+"Error: "+e.getMessage(), this.getClass().getSimpleName(), "getIncidents");
+                    LOG.severe("getIncidents", "incident.parseFailure", "index", indx, "error", e.getMessage());
                 }
             }
 
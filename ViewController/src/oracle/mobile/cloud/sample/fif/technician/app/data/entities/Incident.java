@@ -1,12 +1,10 @@
 package oracle.mobile.cloud.sample.fif.technician.app.data.entities;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -15,7 +13,9 @@ import oracle.adfmf.java.beans.PropertyChangeSupport;
 import oracle.adfmf.json.JSONException;
 import oracle.adfmf.json.JSONObject;
 
-import oracle.mobile.cloud.sample.fif.technician.app.log.AppLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.ComponentLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.LogComponent;
+import oracle.mobile.cloud.sample.fif.technician.utils.DateUtil;
 
 
 /**
@@ -48,13 +48,23 @@ import oracle.mobile.cloud.sample.fif.technician.app.log.AppLogger;
  */
 public class Incident {
 
+    private static final ComponentLogger LOG = ComponentLogger.getLogger(LogComponent.PARSING, "Incident");
+
+    //date string that starts each note in the incident notes. Example data string: 2015-03-27T14:13:01.707Z
+    //The pattern is compiled once as it is used for every incident
+    private static final Pattern NOTE_DATE_PATTERN = Pattern.compile("[\\d]{4}-[\\d]{2}-[\\d]{2}[\\D][\\d]{2}:[\\d]{2}:[\\d][\\d].[\\d]+[\\D]");
+
     private Date createdOn = null;
     private String customerName = null;
     private String drivingTime = null;
     private Integer id = null;
     private String street = null;
     private String city = null;
-    private List<NoteItem> notes = null;
+    private volatile List<NoteItem> notes = null;
+    
+    //notes string as queried from MCS. It is split into note items when the notes are first read (the incident list 
+    //does not show notes, so the work is only done for incidents opened in the detail view)
+    private volatile String rawNotes = null;
     private String priority = "Low";
     
     private String priorityImg = "pri1.png";
@@ -85,6 +95,31 @@ public class Incident {
         this.postalCode = postalCode;
     }
 
+    /**
+     * Copies the incident without its property change listeners, e.g. to change the status of an incident that is shared
+     * by several caches. The notes are shared by the copy, they are not changed after they were set
+     * @return a new incident with the same values
+     */
+    public Incident copy() {
+        Incident copy = new Incident();
+        copy.createdOn = createdOn;
+        copy.customerName = customerName;
+        copy.drivingTime = drivingTime;
+        copy.id = id;
+        copy.street = street;
+        copy.city = city;
+        //raw notes first, so the copy has notes if getNotes() splits them concurrently
+        copy.rawNotes = rawNotes;
+        copy.notes = notes;
+        copy.priority = priority;
+        copy.priorityImg = priorityImg;
+        copy.remoteImgLink = remoteImgLink;
+        copy.status = status;
+        copy.title = title;
+        copy.postalCode = postalCode;
+        return copy;
+    }
+
 
     public void setCreatedOn(Date createdOn) {
         Date oldCreatedOn = this.createdOn;
@@ -131,11 +166,49 @@ public class Incident {
     public void setNotes(List<NoteItem> notes) {
         List<NoteItem> oldNotes = this.notes;
         this.notes = notes;
+        this.rawNotes = null;
         propertyChangeSupport.firePropertyChange("notes", oldNotes, notes);
     }
 
+    /**
+     * Returns the note items of the incident. For incidents queried from MCS, the notes string is split into note 
+     * items on the first call and the result is kept for later calls
+     * @return list of note items
+     */
     public List<NoteItem> getNotes() {
-        return notes;
+        List<NoteItem> noteItems = notes;
+        if (noteItems == null) {
+            String notesToSplit = rawNotes;
+            if (notesToSplit != null) {
+                //two threads may split the same string at the same time. Both produce the same result
+                noteItems = splitNotes(notesToSplit);
+                notes = noteItems;
+                rawNotes = null;
+            } else {
+                //another thread split the notes after the first read. notes is written before rawNotes is cleared
+                noteItems = notes;
+            }
+        }
+        return noteItems;
+    }
+
+    /**
+     * Sets the notes string as queried from MCS. It is split into note items when the notes are first read
+     * @param rawNotes notes string
+     */
+    public void setRawNotes(String rawNotes) {
+        List<NoteItem> oldNotes = this.notes;
+        //raw notes first, so getNotes() always sees either the raw notes or the note items
+        this.rawNotes = rawNotes;
+        this.notes = null;
+        propertyChangeSupport.firePropertyChange("notes", oldNotes, null);
+    }
+
+    /**
+     * @return notes string as queried from MCS if it has not been split into note items yet, else null
+     */
+    public String getRawNotes() {
+        return rawNotes;
     }
 
     public void setPriority(String priority) {
@@ -233,7 +306,7 @@ public class Incident {
             
             this.customerName = incidentJSONObject.getJSONObject("contact").getString("name");
                         
-            this.createdOn = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.ENGLISH).parse(incidentJSONObject.getString("createdon"));
+            this.createdOn = DateUtil.parseIncidentDate(incidentJSONObject.getString("createdon"));
             this.priority = incidentJSONObject.getString("priority");                           
             this.status = incidentJSONObject.getString("status");
             
@@ -265,88 +338,60 @@ public class Incident {
             this.city = contactInfo.optString("city", "");            
             this.postalCode = contactInfo.optString("postalCode", "");
                
-            String note = incidentJSONObject.optString("notes","");
-            ArrayList<NoteItem> tempListOfNotes = new ArrayList<NoteItem>();
-            
-            if (note != null && note.length() != 0) {
-                //remove line breaks and replace them with a blank
-                
-                note.replace("\\n", " ");
-                note.replace("\\r", " ");               
-                
-                int startIndexOfDateString = findIndexOfDateString(0,note);     
-                
-                int secondOccurenceIndexOfDateString = -1;
-                
-                int noteCount = 1;
-                
-                //loop through string  
-                while(startIndexOfDateString > -1){
-                    //find a second occurence
-                    secondOccurenceIndexOfDateString = findIndexOfDateString(startIndexOfDateString+1,note);
-                    
-                    //no second match found. returned value is -1 for secondIndexOfDateString
-                    //this means we only have a single item in the original note string
-                    if(secondOccurenceIndexOfDateString < 0){
-                        NoteItem item = new NoteItem();
-                        item.setIndex(noteCount);
-                        //get note item and remove trailing and leading blanks
-                        item.setMessage(note.substring(startIndexOfDateString).trim());
-                        tempListOfNotes.add(item);
-                        startIndexOfDateString = secondOccurenceIndexOfDateString;
-                        //stop loop
-                        break;
-                    }                    
-                    //match is found for second occurence and we can access the substring
-                    else{ 
-                        NoteItem item = new NoteItem();
-                        item.setIndex(noteCount);
-                        //get note item and remove trailing and leading blanks
-                        item.setMessage(note.substring(startIndexOfDateString,secondOccurenceIndexOfDateString-1).trim());
-                        tempListOfNotes.add(item);                        
-                        startIndexOfDateString = secondOccurenceIndexOfDateString;
-                    }
-                    
-                    noteCount++;
-                                    
-                }              
-            }
-          //add values to entity list attribute
-          notes = new ArrayList<NoteItem>(tempListOfNotes);
+            //the notes are split into note items when they are first read
+            notes = null;
+            rawNotes = incidentJSONObject.optString("notes","");
             
         } catch (ParseException jse) {
             //could not parse the note information. 
-            AppLogger.logWarning("Could not parse: "+this.id+" and date string: "+incidentJSONObject.getString("createdon"), 
-                                 this.getClass().getSimpleName(), "populateInstanceFromJSON");
+            LOG.warning("populateInstanceFromJSON", "incident.dateParseFailure", "id", this.id, "createdon",
+                        incidentJSONObject.getString("createdon"));
             
         }
     }
 
 
     /**
-     * Method uses regular expression to find instance of date string in the incident notes string. The Regular expression
-     * is: [\d]{4}-[\d]{2}-[\d]{2}[\D][\d]{2}:[\d]{2}:[\d][\d].[\d]+[\D] and a date example is 2015-03-27T14:13:01.707Z
-     * @param startIndex The index to start the search from
-     * @param inputStr the string to search in
-     * @return the index of the first match after the start position
+     * Splits the incident notes string into note items. Each note starts with a date string set by the incident report 
+     * in MCS. The regular expression is: [\d]{4}-[\d]{2}-[\d]{2}[\D][\d]{2}:[\d]{2}:[\d][\d].[\d]+[\D] and a date 
+     * example is 2015-03-27T14:13:01.707Z. The notes string is scanned once, a note ends where the next date string 
+     * starts. Text before the first date string is ignored.
+     * 
+     * @param note the notes string of the incident
+     * @return list of note items, empty if the string contains no date
      */
-    private int findIndexOfDateString(int startIndex, String inputStr){
-           int posFound = -1;
-           
-           //look for date pattern set by the incident report in MCS
-           //Example data string: 2015-03-27T14:13:01.707Z
-           
-           String patternStr = "[\\d]{4}-[\\d]{2}-[\\d]{2}[\\D][\\d]{2}:[\\d]{2}:[\\d][\\d].[\\d]+[\\D]";
-           
-           Pattern pattern = Pattern.compile(patternStr);
-           Matcher matcher = pattern.matcher(inputStr);
-           
-           //get first occurence
-           if(matcher.find(startIndex)){
-            posFound = matcher.start();
-           
+    static ArrayList<NoteItem> splitNotes(String note){
+        ArrayList<NoteItem> listOfNotes = new ArrayList<NoteItem>();
+        
+        if (note == null || note.length() == 0) {
+            return listOfNotes;
+        }
+        
+        Matcher matcher = NOTE_DATE_PATTERN.matcher(note);
+        
+        int startIndexOfDateString = -1;
+        int noteCount = 1;
+        
+        while(matcher.find()){
+            if(startIndexOfDateString > -1){
+                //the note ends before the next date string. Remove trailing and leading blanks
+                listOfNotes.add(createNoteItem(noteCount++, note.substring(startIndexOfDateString, matcher.start()-1).trim()));
+            }
+            startIndexOfDateString = matcher.start();
         }
-        return posFound;
+        
+        //the last note ends with the notes string
+        if(startIndexOfDateString > -1){
+            listOfNotes.add(createNoteItem(noteCount, note.substring(startIndexOfDateString).trim()));
+        }
+        return listOfNotes;
+    }
+    
+    private static NoteItem createNoteItem(int index, String message){
+        NoteItem item = new NoteItem();
+        item.setIndex(index);
+        item.setMessage(message);
+        return item;
     }
 
     public void addPropertyChangeListener(PropertyChangeListener l) {
@@ -0,0 +1,101 @@
+package oracle.mobile.cloud.sample.fif.technician.app.data.query;
+
+import java.util.Locale;
+
+import oracle.mobile.cloud.sample.fif.technician.app.data.entities.Incident;
+
+/**
+ * Normalized search keys of an incident. The keys are computed once when the incident list is indexed, so that
+ * filtering and sorting compare prepared upper case Strings and numbers instead of calling equalsIgnoreCase and
+ * getTime() for each incident on each filter change.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public final class IncidentKey {
+
+    private final Incident incident;
+
+    private final String status;
+    private final String priority;
+    private final int priorityRank;
+    private final String customerName;
+    private final String city;
+    private final String postalCode;
+    private final String title;
+    private final long createdOn;
+
+    public IncidentKey(Incident incident) {
+        this.incident = incident;
+        this.status = normalize(incident.getStatus());
+        this.priority = normalize(incident.getPriority());
+        this.priorityRank = rankPriority(this.priority);
+        this.customerName = normalize(incident.getCustomerName());
+        this.city = normalize(incident.getCity());
+        this.postalCode = normalize(incident.getPostalCode());
+        this.title = normalize(incident.getTitle());
+        this.createdOn = incident.getCreatedOn() != null ? incident.getCreatedOn().getTime() : 0;
+    }
+
+    /**
+     * Converts a value into the form used for comparisons: trimmed, upper case, never null
+     * @param value
+     * @return normalized value
+     */
+    public static String normalize(String value) {
+        return value == null ? "" : value.trim().toUpperCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @param normalizedPriority HIGH, MEDIUM, LOW
+     * @return 0 for high, 1 for medium, 2 for low and 3 for any other value
+     */
+    private static int rankPriority(String normalizedPriority) {
+        if ("HIGH".equals(normalizedPriority)) {
+            return 0;
+        } else if ("MEDIUM".equals(normalizedPriority)) {
+            return 1;
+        } else if ("LOW".equals(normalizedPriority)) {
+            return 2;
+        }
+        return 3;
+    }
+
+    public Incident getIncident() {
+        return incident;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getPriority() {
+        return priority;
+    }
+
+    public int getPriorityRank() {
+        return priorityRank;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public String getPostalCode() {
+        return postalCode;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return creation time in milliseconds, 0 if the incident has no creation date
+     */
+    public long getCreatedOn() {
+        return createdOn;
+    }
+}
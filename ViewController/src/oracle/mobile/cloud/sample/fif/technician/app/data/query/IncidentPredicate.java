@@ -0,0 +1,16 @@
+package oracle.mobile.cloud.sample.fif.technician.app.data.query;
+
+/**
+ * Condition an incident must meet to be shown in the list view. Implementations compare against the normalized keys of
+ * the incident and should normalize their own search values once, when they are created.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public interface IncidentPredicate {
+
+    /**
+     * @param key normalized search keys of the incident
+     * @return true if the incident meets the condition
+     */
+    boolean matches(IncidentKey key);
+}
@@ -0,0 +1,293 @@
+package oracle.mobile.cloud.sample.fif.technician.app.data.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import oracle.mobile.cloud.sample.fif.technician.app.data.collections.IncidentIndex;
+import oracle.mobile.cloud.sample.fif.technician.app.data.entities.Incident;
+
+/**
+ * In memory query over the indexed incident list. A query combines any number of conditions (all of which must be met)
+ * with an optional sort order, for example
+ *
+ * new IncidentQuery().status("New").priority("High").city("Ottawa").sortBy(IncidentQuery.SortOrder.CREATED_ON, false)
+ *
+ * Null or empty search values are ignored, so that empty fields in the UI do not filter. A status of "All" is ignored
+ * as well.
+ *
+ * Question 1: Why is the status handled differently from the other conditions?
+ * Answer   1: The incident index groups the incidents by status. A query with a status condition only looks at the
+ *             incidents in that group. A query with only a status condition and no sort order returns the read-only
+ *             list of the index without copying it.
+ *
+ * Question 2: How do I filter by a condition that is not provided by this class?
+ * Answer   2: Implement IncidentPredicate and pass it to where(). Use anyOf() to combine conditions with OR.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public class IncidentQuery {
+
+    /**
+     * Sort orders supported for the incident list
+     */
+    public enum SortOrder {
+        CREATED_ON, PRIORITY, STATUS, CUSTOMER_NAME, CITY, TITLE;
+
+        /**
+         * @param name name of the sort order, case insensitive
+         * @return the sort order or null if the name is null, empty or unknown
+         */
+        public static SortOrder fromString(String name) {
+            String normalizedName = IncidentKey.normalize(name);
+            for (SortOrder order : values()) {
+                if (order.name().equals(normalizedName)) {
+                    return order;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final ArrayList<IncidentPredicate> predicates = new ArrayList<IncidentPredicate>();
+    private String status = null;
+    private SortOrder sortOrder = null;
+    private boolean ascending = true;
+
+    public IncidentQuery() {
+        super();
+    }
+
+    /**
+     * @param status "New", "InProgress", "Complete" or "All" for any status
+     * @return this query
+     */
+    public IncidentQuery status(String status) {
+        String normalizedStatus = IncidentKey.normalize(status);
+        if (normalizedStatus.length() > 0 && !"ALL".equals(normalizedStatus)) {
+            this.status = normalizedStatus;
+        }
+        return this;
+    }
+
+    /**
+     * @param priority "High", "Medium", "Low"
+     * @return this query
+     */
+    public IncidentQuery priority(String priority) {
+        final String normalizedPriority = IncidentKey.normalize(priority);
+        if (normalizedPriority.length() > 0) {
+            predicates.add(new IncidentPredicate() {
+                public boolean matches(IncidentKey key) {
+                    return key.getPriority().equals(normalizedPriority);
+                }
+            });
+        }
+        return this;
+    }
+
+    /**
+     * @param customerName full or partial customer name
+     * @return this query
+     */
+    public IncidentQuery customerName(String customerName) {
+        final String normalizedName = IncidentKey.normalize(customerName);
+        if (normalizedName.length() > 0) {
+            predicates.add(new IncidentPredicate() {
+                public boolean matches(IncidentKey key) {
+                    return key.getCustomerName().contains(normalizedName);
+                }
+            });
+        }
+        return this;
+    }
+
+    /**
+     * @param city name of the city
+     * @return this query
+     */
+    public IncidentQuery city(String city) {
+        final String normalizedCity = IncidentKey.normalize(city);
+        if (normalizedCity.length() > 0) {
+            predicates.add(new IncidentPredicate() {
+                public boolean matches(IncidentKey key) {
+                    return key.getCity().equals(normalizedCity);
+                }
+            });
+        }
+        return this;
+    }
+
+    /**
+     * @param postalCode full postal code or its beginning
+     * @return this query
+     */
+    public IncidentQuery postalCode(String postalCode) {
+        final String normalizedPostalCode = IncidentKey.normalize(postalCode);
+        if (normalizedPostalCode.length() > 0) {
+            predicates.add(new IncidentPredicate() {
+                public boolean matches(IncidentKey key) {
+                    return key.getPostalCode().startsWith(normalizedPostalCode);
+                }
+            });
+        }
+        return this;
+    }
+
+    /**
+     * @param text text to look for in the incident title
+     * @return this query
+     */
+    public IncidentQuery titleContains(String text) {
+        final String normalizedText = IncidentKey.normalize(text);
+        if (normalizedText.length() > 0) {
+            predicates.add(new IncidentPredicate() {
+                public boolean matches(IncidentKey key) {
+                    return key.getTitle().contains(normalizedText);
+                }
+            });
+        }
+        return this;
+    }
+
+    /**
+     * @param from earliest creation date (inclusive) or null for no lower limit
+     * @param to latest creation date (inclusive) or null for no upper limit
+     * @return this query
+     */
+    public IncidentQuery createdBetween(Date from, Date to) {
+        if (from != null || to != null) {
+            final long fromMillis = from != null ? from.getTime() : Long.MIN_VALUE;
+            final long toMillis = to != null ? to.getTime() : Long.MAX_VALUE;
+            predicates.add(new IncidentPredicate() {
+                public boolean matches(IncidentKey key) {
+                    return key.getCreatedOn() >= fromMillis && key.getCreatedOn() <= toMillis;
+                }
+            });
+        }
+        return this;
+    }
+
+    /**
+     * Adds a custom condition
+     * @param predicate
+     * @return this query
+     */
+    public IncidentQuery where(IncidentPredicate predicate) {
+        if (predicate != null) {
+            predicates.add(predicate);
+        }
+        return this;
+    }
+
+    /**
+     * Combines conditions so that at least one of them must be met
+     * @param alternatives
+     * @return condition to pass to where()
+     */
+    public static IncidentPredicate anyOf(final IncidentPredicate... alternatives) {
+        return new IncidentPredicate() {
+            public boolean matches(IncidentKey key) {
+                for (IncidentPredicate alternative : alternatives) {
+                    if (alternative.matches(key)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param sortOrder attribute to sort by or null to keep the order of the queried list
+     * @param ascending
+     * @return this query
+     */
+    public IncidentQuery sortBy(SortOrder sortOrder, boolean ascending) {
+        this.sortOrder = sortOrder;
+        this.ascending = ascending;
+        return this;
+    }
+
+    /**
+     * Runs the query against the index. The returned list may be shared with the index and is read-only.
+     * @param index
+     * @return incidents that meet all conditions in the requested order
+     */
+    public List<Incident> execute(IncidentIndex index) {
+
+        //nothing to filter or sort: the prepared lists of the index are the result
+        if (predicates.isEmpty() && sortOrder == null) {
+            return status != null ? index.getByStatus(status) : index.getAll();
+        }
+
+        List<IncidentKey> candidates = status != null ? index.getKeysByStatus(status) : index.getKeys();
+        int predicateCount = predicates.size();
+
+        ArrayList<IncidentKey> matches = new ArrayList<IncidentKey>();
+        for (IncidentKey key : candidates) {
+            boolean match = true;
+            for (int i = 0; i < predicateCount && match; i++) {
+                match = predicates.get(i).matches(key);
+            }
+            if (match) {
+                matches.add(key);
+            }
+        }
+
+        if (sortOrder != null) {
+            Comparator<IncidentKey> comparator = createComparator(sortOrder);
+            Collections.sort(matches, ascending ? comparator : Collections.reverseOrder(comparator));
+        }
+
+        ArrayList<Incident> result = new ArrayList<Incident>(matches.size());
+        for (IncidentKey key : matches) {
+            result.add(key.getIncident());
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static Comparator<IncidentKey> createComparator(SortOrder sortOrder) {
+        switch (sortOrder) {
+        case CREATED_ON:
+            return new Comparator<IncidentKey>() {
+                public int compare(IncidentKey key1, IncidentKey key2) {
+                    return key1.getCreatedOn() < key2.getCreatedOn() ? -1 :
+                           (key1.getCreatedOn() == key2.getCreatedOn() ? 0 : 1);
+                }
+            };
+        case PRIORITY:
+            return new Comparator<IncidentKey>() {
+                public int compare(IncidentKey key1, IncidentKey key2) {
+                    return key1.getPriorityRank() - key2.getPriorityRank();
+                }
+            };
+        case STATUS:
+            return new Comparator<IncidentKey>() {
+                public int compare(IncidentKey key1, IncidentKey key2) {
+                    return key1.getStatus().compareTo(key2.getStatus());
+                }
+            };
+        case CUSTOMER_NAME:
+            return new Comparator<IncidentKey>() {
+                public int compare(IncidentKey key1, IncidentKey key2) {
+                    return key1.getCustomerName().compareTo(key2.getCustomerName());
+                }
+            };
+        case CITY:
+            return new Comparator<IncidentKey>() {
+                public int compare(IncidentKey key1, IncidentKey key2) {
+                    return key1.getCity().compareTo(key2.getCity());
+                }
+            };
+        default:
+            return new Comparator<IncidentKey>() {
+                public int compare(IncidentKey key1, IncidentKey key2) {
+                    return key1.getTitle().compareTo(key2.getTitle());
+                }
+            };
+        }
+    }
+}
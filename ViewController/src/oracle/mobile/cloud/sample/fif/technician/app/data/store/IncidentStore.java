@@ -0,0 +1,353 @@
+package oracle.mobile.cloud.sample.fif.technician.app.data.store;
+
+import java.io.File;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import oracle.adfmf.framework.api.AdfmfJavaUtilities;
+
+import oracle.mobile.cloud.sample.fif.technician.app.data.entities.Incident;
+import oracle.mobile.cloud.sample.fif.technician.app.data.entities.NoteItem;
+import oracle.mobile.cloud.sample.fif.technician.app.log.AppLogger;
+
+
+/**
+ * On-device store for the incidents queried from MCS. Incidents and their notes are saved in an embedded SQLite
+ * database keyed by the incident id, so the list view can render the technician's incidents on a cold start before the
+ * background query to MCS returns. Notes that have been split are saved as NoteItems, all others as the notes string
+ * queried from MCS, which is split when the notes are read.
+ *
+ * The store is accessed through JDBC. On the device the MAF SQLite driver is used with a database file in the
+ * application directory. Because the JDBC URL is passed to the constructor, the same class works with any other SQLite
+ * JDBC driver and a plain database file, e.g. on a Linux build machine.
+ *
+ * Question 1: What happens with incidents that have been removed in MCS?
+ * Answer   1: replaceIncidents() reconciles the stored list of a technician with the list queried from MCS. Incidents
+ *             no longer returned by MCS are deleted from the store.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public class IncidentStore {
+
+    private static final String DATABASE_FILE_NAME = "fif_incidents.db";
+    private static final String JDBC_URL_PREFIX = "jdbc:sqlite:";
+    private static final String MAF_SQLITE_DRIVER = "SQLite.JDBCDriver";
+
+    //version of the tables, saved as user_version of the database. The tables only hold a copy of the MCS data, so
+    //tables of an older version are dropped and filled again by the next query
+    private static final int SCHEMA_VERSION = 2;
+
+    private static final String CREATE_INCIDENT_TABLE =
+        "CREATE TABLE IF NOT EXISTS INCIDENT (ID INTEGER PRIMARY KEY, TECHNICIAN TEXT NOT NULL, LIST_POSITION INTEGER, " +
+        "TITLE TEXT, CUSTOMER_NAME TEXT, CREATED_ON INTEGER, PRIORITY TEXT, PRIORITY_IMG TEXT, STATUS TEXT, " +
+        "DRIVING_TIME TEXT, STREET TEXT, CITY TEXT, POSTAL_CODE TEXT, IMAGE_LINK TEXT, RAW_NOTES TEXT)";
+    private static final String CREATE_NOTE_ITEM_TABLE =
+        "CREATE TABLE IF NOT EXISTS NOTE_ITEM (INCIDENT_ID INTEGER NOT NULL, NOTE_INDEX INTEGER NOT NULL, " +
+        "MESSAGE TEXT, PRIMARY KEY (INCIDENT_ID, NOTE_INDEX))";
+
+    private static final String SELECT_INCIDENTS =
+        "SELECT ID, TITLE, CUSTOMER_NAME, CREATED_ON, PRIORITY, PRIORITY_IMG, STATUS, DRIVING_TIME, STREET, CITY, " +
+        "POSTAL_CODE, IMAGE_LINK, RAW_NOTES FROM INCIDENT WHERE TECHNICIAN = ? ORDER BY LIST_POSITION";
+    private static final String SELECT_NOTE_ITEMS =
+        "SELECT N.INCIDENT_ID, N.NOTE_INDEX, N.MESSAGE FROM NOTE_ITEM N JOIN INCIDENT I ON I.ID = N.INCIDENT_ID " +
+        "WHERE I.TECHNICIAN = ? ORDER BY N.INCIDENT_ID, N.NOTE_INDEX";
+    private static final String INSERT_INCIDENT =
+        "INSERT OR REPLACE INTO INCIDENT (ID, TECHNICIAN, LIST_POSITION, TITLE, CUSTOMER_NAME, CREATED_ON, PRIORITY, " +
+        "PRIORITY_IMG, STATUS, DRIVING_TIME, STREET, CITY, POSTAL_CODE, IMAGE_LINK, RAW_NOTES) " +
+        "VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+    private static final String INSERT_NOTE_ITEM =
+        "INSERT INTO NOTE_ITEM (INCIDENT_ID, NOTE_INDEX, MESSAGE) VALUES (?,?,?)";
+    private static final String DELETE_NOTE_ITEMS_OF_TECHNICIAN =
+        "DELETE FROM NOTE_ITEM WHERE INCIDENT_ID IN (SELECT ID FROM INCIDENT WHERE TECHNICIAN = ?)";
+    private static final String DELETE_INCIDENTS_OF_TECHNICIAN = "DELETE FROM INCIDENT WHERE TECHNICIAN = ?";
+    private static final String DROP_INCIDENT_TABLE = "DROP TABLE IF EXISTS INCIDENT";
+    private static final String DROP_NOTE_ITEM_TABLE = "DROP TABLE IF EXISTS NOTE_ITEM";
+
+    private final String jdbcUrl;
+    private Connection connection = null;
+
+    /**
+     * @param jdbcUrl JDBC URL of the SQLite database, e.g. jdbc:sqlite:/path/to/fif_incidents.db
+     */
+    public IncidentStore(String jdbcUrl) {
+        super();
+        this.jdbcUrl = jdbcUrl;
+    }
+
+    /**
+     * Creates a store for the database file in the MAF application directory on the device
+     * @return IncidentStore
+     */
+    public static IncidentStore createOnDeviceStore() {
+        String applicationDirectory = AdfmfJavaUtilities.getDirectoryPathRoot(AdfmfJavaUtilities.ApplicationDirectory);
+        return new IncidentStore(JDBC_URL_PREFIX + applicationDirectory + File.separator + DATABASE_FILE_NAME);
+    }
+
+    /**
+     * Reads the incidents last saved for a technician, including their notes, in the order they were queried from MCS
+     *
+     * @param technician the technician the incidents are assigned to
+     * @return List of Incident. The list is empty if nothing is stored or if the database cannot be read
+     */
+    public synchronized ArrayList<Incident> loadIncidents(String technician) {
+
+        ArrayList<Incident> incidents = new ArrayList<Incident>();
+        if (technician == null) {
+            return incidents;
+        }
+
+        try {
+            Connection conn = getConnection();
+            HashMap<Integer, List<NoteItem>> notesByIncident = new HashMap<Integer, List<NoteItem>>();
+
+            PreparedStatement noteStatement = conn.prepareStatement(SELECT_NOTE_ITEMS);
+            try {
+                noteStatement.setString(1, technician);
+                ResultSet rs = noteStatement.executeQuery();
+                while (rs.next()) {
+                    Integer incidentId = rs.getInt(1);
+                    List<NoteItem> notes = notesByIncident.get(incidentId);
+                    if (notes == null) {
+                        notes = new ArrayList<NoteItem>();
+                        notesByIncident.put(incidentId, notes);
+                    }
+                    NoteItem item = new NoteItem();
+                    item.setIndex(rs.getInt(2));
+                    item.setMessage(rs.getString(3));
+                    notes.add(item);
+                }
+                rs.close();
+            } finally {
+                noteStatement.close();
+            }
+
+            PreparedStatement incidentStatement = conn.prepareStatement(SELECT_INCIDENTS);
+            try {
+                incidentStatement.setString(1, technician);
+                ResultSet rs = incidentStatement.executeQuery();
+                while (rs.next()) {
+                    int id = rs.getInt(1);
+                    long createdOn = rs.getLong(4);
+                    Date createdOnDate = rs.wasNull() ? null : new Date(createdOn);
+
+                    List<NoteItem> notes = notesByIncident.get(id);
+                    Incident incident =
+                        new Incident(id, rs.getString(2), rs.getString(3), createdOnDate, rs.getString(5),
+                                     rs.getString(7), rs.getString(8), notes == null ? new ArrayList<NoteItem>() : notes,
+                                     rs.getString(10), rs.getString(9), rs.getString(11), rs.getString(12));
+                    incident.setPriorityImg(rs.getString(6));
+                    String rawNotes = rs.getString(13);
+                    if (rawNotes != null) {
+                        //the notes had not been split when they were saved
+                        incident.setRawNotes(rawNotes);
+                    }
+                    incidents.add(incident);
+                }
+                rs.close();
+            } finally {
+                incidentStatement.close();
+            }
+
+            AppLogger.logFine("Loaded " + incidents.size() + " incidents from local store for technician: " + technician,
+                              this.getClass().getSimpleName(), "loadIncidents");
+
+        } catch (SQLException e) {
+            AppLogger.logSevereError("Failed to read incidents from local store: " + e.getMessage(),
+                                     this.getClass().getSimpleName(), "loadIncidents");
+        }
+        return incidents;
+    }
+
+    /**
+     * Reconciles the stored incidents of a technician with the list queried from MCS. Incidents missing in the list
+     * are deleted, all others are inserted or replaced. The change is applied in a single transaction.
+     *
+     * @param technician the technician the incidents are assigned to
+     * @param incidents the incidents as queried from MCS
+     */
+    public synchronized void replaceIncidents(String technician, List<Incident> incidents) {
+
+        if (technician == null || incidents == null) {
+            return;
+        }
+
+        Connection conn = null;
+        try {
+            conn = getConnection();
+            conn.setAutoCommit(false);
+
+            PreparedStatement deleteNotes = conn.prepareStatement(DELETE_NOTE_ITEMS_OF_TECHNICIAN);
+            try {
+                deleteNotes.setString(1, technician);
+                deleteNotes.executeUpdate();
+            } finally {
+                deleteNotes.close();
+            }
+
+            PreparedStatement deleteIncidents = conn.prepareStatement(DELETE_INCIDENTS_OF_TECHNICIAN);
+            try {
+                deleteIncidents.setString(1, technician);
+                deleteIncidents.executeUpdate();
+            } finally {
+                deleteIncidents.close();
+            }
+
+            PreparedStatement insertIncident = conn.prepareStatement(INSERT_INCIDENT);
+            PreparedStatement insertNote = conn.prepareStatement(INSERT_NOTE_ITEM);
+            try {
+                int position = 0;
+                for (Incident incident : incidents) {
+                    if (incident == null || incident.getId() == null) {
+                        continue;
+                    }
+                    bindIncident(insertIncident, technician, position++, incident);
+                    insertIncident.addBatch();
+                    bindNotes(insertNote, incident);
+                }
+                insertIncident.executeBatch();
+                insertNote.executeBatch();
+            } finally {
+                insertIncident.close();
+                insertNote.close();
+            }
+
+            conn.commit();
+            AppLogger.logFine("Saved " + incidents.size() + " incidents to local store for technician: " + technician,
+                              this.getClass().getSimpleName(), "replaceIncidents");
+
+        } catch (SQLException e) {
+            AppLogger.logSevereError("Failed to save incidents to local store: " + e.getMessage(),
+                                     this.getClass().getSimpleName(), "replaceIncidents");
+            rollbackSilently(conn);
+        } finally {
+            restoreAutoCommit(conn);
+        }
+    }
+
+    /**
+     * Closes the database connection. The connection is re-opened on the next access
+     */
+    public synchronized void close() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                AppLogger.logWarning("Failed to close local store: " + e.getMessage(), this.getClass().getSimpleName(),
+                                     "close");
+            }
+            connection = null;
+        }
+    }
+
+
+    /*
+     * Opens the database connection and creates the tables upon first access
+     */
+    private Connection getConnection() throws SQLException {
+        if (connection == null) {
+            try {
+                //the MAF SQLite driver needs to be registered. Other environments register their driver themselves
+                Class.forName(MAF_SQLITE_DRIVER);
+            } catch (ClassNotFoundException e) {
+                AppLogger.logFine("MAF SQLite driver not found. Using the JDBC driver registered for: " + jdbcUrl,
+                                  this.getClass().getSimpleName(), "getConnection");
+            }
+            connection = DriverManager.getConnection(jdbcUrl);
+
+            Statement statement = connection.createStatement();
+            try {
+                ResultSet rs = statement.executeQuery("PRAGMA user_version");
+                int version = rs.next() ? rs.getInt(1) : 0;
+                rs.close();
+                if (version != SCHEMA_VERSION) {
+                    statement.executeUpdate(DROP_NOTE_ITEM_TABLE);
+                    statement.executeUpdate(DROP_INCIDENT_TABLE);
+                }
+                statement.executeUpdate(CREATE_INCIDENT_TABLE);
+                statement.executeUpdate(CREATE_NOTE_ITEM_TABLE);
+                if (version != SCHEMA_VERSION) {
+                    statement.executeUpdate("PRAGMA user_version = " + SCHEMA_VERSION);
+                }
+            } finally {
+                statement.close();
+            }
+        }
+        return connection;
+    }
+
+    private void bindIncident(PreparedStatement statement, String technician, int position,
+                              Incident incident) throws SQLException {
+        statement.setInt(1, incident.getId());
+        statement.setString(2, technician);
+        statement.setInt(3, position);
+        statement.setString(4, incident.getTitle());
+        statement.setString(5, incident.getCustomerName());
+        if (incident.getCreatedOn() != null) {
+            statement.setLong(6, incident.getCreatedOn().getTime());
+        } else {
+            statement.setNull(6, Types.INTEGER);
+        }
+        statement.setString(7, incident.getPriority());
+        statement.setString(8, incident.getPriorityImg());
+        statement.setString(9, incident.getStatus());
+        statement.setString(10, incident.getDrivingTime());
+        statement.setString(11, incident.getStreet());
+        statement.setString(12, incident.getCity());
+        statement.setString(13, incident.getPostalCode());
+        statement.setString(14, incident.getRemoteImgLink());
+        statement.setString(15, incident.getRawNotes());
+    }
+
+    /**
+     * Adds the note items of an incident whose notes have been split. Notes that have not been split are saved as
+     * notes string with the incident, so saving the list does not split the notes of every incident
+     */
+    private void bindNotes(PreparedStatement statement, Incident incident) throws SQLException {
+        if (incident.getRawNotes() != null) {
+            return;
+        }
+        List<NoteItem> notes = incident.getNotes();
+        if (notes == null) {
+            return;
+        }
+        for (NoteItem note : notes) {
+            statement.setInt(1, incident.getId());
+            statement.setInt(2, note.getIndex());
+            statement.setString(3, note.getMessage());
+            statement.addBatch();
+        }
+    }
+
+    private void rollbackSilently(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                AppLogger.logWarning("Rollback failed: " + e.getMessage(), this.getClass().getSimpleName(),
+                                     "rollbackSilently");
+            }
+        }
+    }
+
+    private void restoreAutoCommit(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                //connection is broken. Re-open on next access
+                close();
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package oracle.mobile.cloud.sample.fif.technician.app.data.sync;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import oracle.adfmf.framework.api.AdfmfJavaUtilities;
+import oracle.adfmf.json.JSONArray;
+import oracle.adfmf.json.JSONException;
+import oracle.adfmf.json.JSONObject;
+
+/**
+ * Saves the pending incident updates as JSON array in a file. The file is small (one entry per incident with pending
+ * changes) and is rewritten as a whole on each change: the updates are written to a temporary file first, which is
+ * synced to the storage and then replaces the outbox file, so a crash while writing leaves the previous version
+ * intact. An outbox file that cannot be parsed, e.g. after the device lost power, is replaced by the temporary file
+ * if there is one. The updates of all users are kept in the same file, each with the name of the user who made it.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public class FileIncidentOutboxStore implements IncidentOutboxStore {
+
+    private static final String OUTBOX_FILE_NAME = "fif_incident_outbox.json";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private static final String INCIDENT_ID = "incidentId";
+    private static final String USERNAME = "username";
+    private static final String STATUS = "status";
+    private static final String NOTES = "notes";
+    private static final String PREVIOUS_STATUS = "previousStatus";
+    private static final String CREATED_AT = "createdAt";
+
+    private final File file;
+
+    /**
+     * @param file outbox file. The directory must exist
+     */
+    public FileIncidentOutboxStore(File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("'file' cannot be null");
+        }
+        this.file = file;
+    }
+
+    /**
+     * Creates a store for the outbox file in the MAF application directory on the device
+     * @return FileIncidentOutboxStore
+     */
+    public static FileIncidentOutboxStore createOnDeviceStore() {
+        String applicationDirectory = AdfmfJavaUtilities.getDirectoryPathRoot(AdfmfJavaUtilities.ApplicationDirectory);
+        return new FileIncidentOutboxStore(new File(applicationDirectory, OUTBOX_FILE_NAME));
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized ArrayList<IncidentStatusUpdate> load() throws IOException {
+        File tempFile = getTempFile();
+        if (!file.exists()) {
+            //the application may have stopped after the temporary file was written and before it was renamed
+            return tempFile.exists() ? load(tempFile) : new ArrayList<IncidentStatusUpdate>();
+        }
+        try {
+            return load(file);
+        } catch (IOException e) {
+            if (!tempFile.exists()) {
+                throw e;
+            }
+            try {
+                return load(tempFile);
+            } catch (IOException tempFileException) {
+                throw e;
+            }
+        }
+    }
+
+    private ArrayList<IncidentStatusUpdate> load(File source) throws IOException {
+        ArrayList<IncidentStatusUpdate> updates = new ArrayList<IncidentStatusUpdate>();
+        try {
+            JSONArray jsonUpdates = new JSONArray(new String(readFile(source), StandardCharsets.UTF_8));
+            for (int i = 0; i < jsonUpdates.length(); i++) {
+                JSONObject jsonUpdate = jsonUpdates.getJSONObject(i);
+                updates.add(new IncidentStatusUpdate(jsonUpdate.getString(INCIDENT_ID),
+                                                     jsonUpdate.getString(USERNAME), optString(jsonUpdate, STATUS),
+                                                     optString(jsonUpdate, NOTES),
+                                                     optString(jsonUpdate, PREVIOUS_STATUS),
+                                                     jsonUpdate.optLong(CREATED_AT, 0)));
+            }
+        } catch (JSONException e) {
+            throw new IOException("Outbox file " + source + " cannot be parsed: " + e.getMessage());
+        }
+        return updates;
+    }
+
+    @Override
+    public synchronized void save(List<IncidentStatusUpdate> updates) throws IOException {
+        JSONArray jsonUpdates = new JSONArray();
+        try {
+            for (IncidentStatusUpdate update : updates) {
+                JSONObject jsonUpdate = new JSONObject();
+                jsonUpdate.put(INCIDENT_ID, update.getIncidentId());
+                jsonUpdate.put(USERNAME, update.getUsername());
+                jsonUpdate.put(STATUS, update.getStatus() != null ? update.getStatus() : JSONObject.NULL);
+                jsonUpdate.put(NOTES, update.getNotes() != null ? update.getNotes() : JSONObject.NULL);
+                jsonUpdate.put(PREVIOUS_STATUS,
+                               update.getPreviousStatus() != null ? update.getPreviousStatus() : JSONObject.NULL);
+                jsonUpdate.put(CREATED_AT, update.getCreatedAt());
+                jsonUpdates.put(jsonUpdate);
+            }
+        } catch (JSONException e) {
+            throw new IOException("Outbox cannot be converted to JSON: " + e.getMessage());
+        }
+
+        File tempFile = getTempFile();
+        FileOutputStream out = new FileOutputStream(tempFile);
+        try {
+            out.write(jsonUpdates.toString().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            //the content must be on the storage before the rename, else a power loss can leave an empty outbox file
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        //renameTo does not replace an existing file on all platforms
+        if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+            throw new IOException("Outbox file " + file + " cannot be replaced");
+        }
+    }
+
+    private File getTempFile() {
+        return new File(file.getPath() + TEMP_FILE_SUFFIX);
+    }
+
+    private static String optString(JSONObject jsonObject, String key) {
+        String value = jsonObject.optString(key, null);
+        return value == null || "null".equals(value) ? null : value;
+    }
+
+    private static byte[] readFile(File source) throws IOException {
+        InputStream in = new FileInputStream(source);
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream((int) Math.max(source.length(), 32));
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            return content.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
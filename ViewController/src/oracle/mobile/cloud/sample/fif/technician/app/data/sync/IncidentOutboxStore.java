@@ -0,0 +1,28 @@
+package oracle.mobile.cloud.sample.fif.technician.app.data.sync;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persists the updates of the IncidentUpdateQueue so that updates made without network connection are not lost when
+ * the application is closed before they were sent.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public interface IncidentOutboxStore {
+
+    /**
+     * @return the saved updates, oldest first. Empty if nothing was saved
+     * @throws IOException if the updates cannot be read
+     */
+    ArrayList<IncidentStatusUpdate> load() throws IOException;
+
+    /**
+     * Replaces the saved updates
+     * @param updates all pending updates, oldest first
+     * @throws IOException if the updates cannot be written
+     */
+    void save(List<IncidentStatusUpdate> updates) throws IOException;
+}
@@ -0,0 +1,79 @@
+package oracle.mobile.cloud.sample.fif.technician.app.data.sync;
+
+/**
+ * Status change and note of an incident that waits in the IncidentUpdateQueue to be sent to MCS. The status the
+ * incident had before the change is kept so the change can be rolled back if MCS does not accept it. The update is sent
+ * with the OAuth token of the user who made it, so it keeps the name of this user.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public final class IncidentStatusUpdate {
+
+    private final String incidentId;
+    private final String username;
+    private final String status;
+    private final String notes;
+    private final String previousStatus;
+    private final long createdAt;
+
+    /**
+     * @param incidentId id of the incident to update
+     * @param username authenticated user who made the change
+     * @param status new status: "New", "InProgress" or "Complete"
+     * @param notes technician note, may be null
+     * @param previousStatus status shown before the change, null if the incident was not cached
+     */
+    public IncidentStatusUpdate(String incidentId, String username, String status, String notes,
+                                String previousStatus) {
+        this(incidentId, username, status, notes, previousStatus, System.currentTimeMillis());
+    }
+
+    IncidentStatusUpdate(String incidentId, String username, String status, String notes, String previousStatus,
+                         long createdAt) {
+        if (incidentId == null || incidentId.isEmpty()) {
+            throw new IllegalArgumentException("'incidentId' cannot be null or empty");
+        }
+        if (username == null || username.isEmpty()) {
+            throw new IllegalArgumentException("'username' cannot be null or empty");
+        }
+        this.incidentId = incidentId;
+        this.username = username;
+        this.status = status;
+        this.notes = notes;
+        this.previousStatus = previousStatus;
+        this.createdAt = createdAt;
+    }
+
+    public String getIncidentId() {
+        return incidentId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public String getPreviousStatus() {
+        return previousStatus;
+    }
+
+    /**
+     * @return time the technician made the change, in milliseconds since 1970
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "[incidentId:" + incidentId + ";username:" + username + ";status:" + status + ";previousStatus:" + previousStatus +
+               ";createdAt:" + createdAt + "]";
+    }
+}
@@ -0,0 +1,555 @@
+package oracle.mobile.cloud.sample.fif.technician.app.data.sync;
+
+import java.io.IOException;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import oracle.mobile.cloud.sample.fif.technician.app.log.ComponentLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.LogComponent;
+import oracle.mobile.cloud.sample.fif.technician.maf.CircuitOpenException;
+import oracle.mobile.cloud.sample.fif.technician.maf.ResponseContext;
+import oracle.mobile.cloud.sample.fif.technician.maf.RestClient;
+import oracle.mobile.cloud.sample.fif.technician.maf.RetryPolicy;
+import oracle.mobile.cloud.sample.fif.technician.utils.MAFUtil;
+
+/**
+ * Write-behind queue (outbox) for incident status updates. The data control shows a status change right away and adds
+ * the update to this queue, which sends it to MCS from a background thread. Updates are sent one at a time in the order
+ * they were added, so that two changes of the same incident arrive at MCS in the order the technician made them.
+ *
+ * An update that MCS did not process (connection refused, server busy) stays at the head of the queue and is sent
+ * again after a backoff that grows with each attempt. The Listener is told when an update was accepted by MCS or when
+ * it finally failed, either because MCS rejected it or because it failed too often, so the data control can roll the
+ * change back. The Sender sends each update once, all retries are made by the queue.
+ *
+ * Question 1: Why not send the updates on the FiFExecutor?
+ * Answer   1: The queue waits between retries. Waiting on one of the two executor threads would stall incident queries
+ *             and image downloads for that time. The queue has its own thread, which ends when the queue is empty.
+ *
+ * Question 2: What happens without network connection?
+ * Answer   2: Nothing is sent and no attempts are counted. The queue checks the network every OFFLINE_POLL_MILLIS and
+ *             starts sending when the device is online again. With an IncidentOutboxStore the pending updates are
+ *             saved on each change and are loaded again when the application starts.
+ *
+ * Question 3: Why is an update not sent again after a timeout?
+ * Answer   3: A status update is not idempotent, MCS adds the notes of each request to the incident. Without a
+ *             response the queue cannot know whether MCS applied the update, and sending it again may add the notes
+ *             twice. The update is removed from the queue and the Listener is told that the outcome is unknown. Only
+ *             failures that show the request did not reach MCS (no connection, HTTP 408 or 503) are retried.
+ *
+ * Question 4: What if the technician changes the same incident several times while offline?
+ * Answer   4: The changes are compacted into one update with the last status and all notes, so MCS gets a single
+ *             request per incident. An update that is being sent is not changed, the next change is queued after it.
+ *
+ * Question 5: What if another user logs in on the device while updates are pending?
+ * Answer   5: Updates are sent with the OAuth token of the authenticated user, so only the updates of this user are
+ *             sent. drainPendingUpdates(username) tells the queue who is logged in. The updates of other users are
+ *             kept in the queue and in the store and are sent when their user logs in again.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public class IncidentUpdateQueue {
+
+    private static final ComponentLogger LOG = ComponentLogger.getLogger(LogComponent.APP, "IncidentUpdateQueue");
+
+    private static final long OFFLINE_POLL_MILLIS = TimeUnit.SECONDS.toMillis(15);
+    private static final String NOTES_SEPARATOR = "\n";
+    //the request was not processed by MCS. Sending it again cannot apply the update twice
+    private static final int[] NOT_PROCESSED_STATUSES = { ResponseContext.STATUS_RESPONSE_REQUEST_TIMEOUT,
+                                                          ResponseContext.STATUS_RESPONSE_SERVICE_UNAVAILABLE };
+
+    /**
+     * Sends an update to MCS
+     */
+    public interface Sender {
+        /**
+         * Sends the update once. The request must not be retried by the Sender, e.g. use RetryPolicy.NONE
+         * @param update
+         * @return HTTP status of the response
+         * @throws Exception if the update could not be sent
+         */
+        int send(IncidentStatusUpdate update) throws Exception;
+    }
+
+    /**
+     * Is told about the outcome of an update. Called from the queue thread
+     */
+    public interface Listener {
+        void updateSent(IncidentStatusUpdate update);
+
+        /**
+         * @param update the update that was not accepted by MCS
+         * @param status HTTP status of the last attempt, 0 if no response was received
+         * @param message error message or response payload of the last attempt
+         */
+        void updateFailed(IncidentStatusUpdate update, int status, String message);
+
+        /**
+         * @param update the update that was sent without getting a response. MCS may or may not have applied it
+         * @param message error message of the attempt
+         */
+        void updateUnconfirmed(IncidentStatusUpdate update, String message);
+    }
+
+    /**
+     * Tells whether the device has network access
+     */
+    public interface NetworkMonitor {
+        boolean isOnline();
+    }
+
+    /**
+     * Network state of the device as reported by MAF
+     */
+    public static final NetworkMonitor DEVICE_NETWORK = new NetworkMonitor() {
+        public boolean isOnline() {
+            return MAFUtil.isNetworkAccess();
+        }
+    };
+
+    private final Sender sender;
+    private final Listener listener;
+    private final RetryPolicy retryPolicy;
+    private final IncidentOutboxStore store;
+    private final NetworkMonitor networkMonitor;
+
+    private final LinkedList<IncidentStatusUpdate> pendingUpdates = new LinkedList<IncidentStatusUpdate>();
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    //attempts made for the update at the head of the queue. Only accessed from the queue thread
+    private int headAttempts = 0;
+    //user whose updates are sent, null before a user logged in. Guarded by pendingUpdates
+    private String authenticatedUsername = null;
+    //true while the queue is sending or waiting for a retry. Guarded by pendingUpdates
+    private boolean drainScheduled = false;
+    //update being sent, which must not be compacted. Guarded by pendingUpdates
+    private IncidentStatusUpdate inFlightUpdate = null;
+
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong compactedCount = new AtomicLong();
+    private final AtomicLong unconfirmedCount = new AtomicLong();
+
+    /**
+     * Creates a queue that keeps the updates in memory only
+     * @param sender sends the updates
+     * @param listener is told about the outcome of each update
+     * @param retryPolicy number of retries and backoff for updates that fail with a transient error
+     */
+    public IncidentUpdateQueue(Sender sender, Listener listener, RetryPolicy retryPolicy) {
+        this(sender, listener, retryPolicy, null, DEVICE_NETWORK);
+    }
+
+    /**
+     * @param sender sends the updates
+     * @param listener is told about the outcome of each update
+     * @param retryPolicy number of retries and backoff for updates that fail with a transient error
+     * @param store saves the pending updates, null to keep them in memory only. Saved updates are loaded, but not sent
+     * before drainPendingUpdates() is called for their user
+     * @param networkMonitor tells whether updates can be sent
+     */
+    public IncidentUpdateQueue(Sender sender, Listener listener, RetryPolicy retryPolicy, IncidentOutboxStore store,
+                               NetworkMonitor networkMonitor) {
+        if (sender == null || listener == null || retryPolicy == null || networkMonitor == null) {
+            throw new IllegalArgumentException("'sender', 'listener', 'retryPolicy' and 'networkMonitor' cannot be null");
+        }
+        this.sender = sender;
+        this.listener = listener;
+        this.retryPolicy = retryPolicy;
+        this.store = store;
+        this.networkMonitor = networkMonitor;
+
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "FiF-IncidentUpdates");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.setKeepAliveTime(30, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+
+        if (store != null) {
+            try {
+                pendingUpdates.addAll(store.load());
+                LOG.info("IncidentUpdateQueue", "incident.outbox.loaded", "pending", pendingUpdates.size());
+            } catch (IOException e) {
+                LOG.severe("IncidentUpdateQueue", "incident.outbox.loadFailed", "error", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Adds an update to the end of the queue and starts sending if the queue is not already busy. If an update of the
+     * same incident and user is waiting, the two are compacted into one. The update is only sent while its user is
+     * the authenticated user
+     * @param update
+     */
+    public void enqueue(IncidentStatusUpdate update) {
+        boolean compacted = false;
+        synchronized (pendingUpdates) {
+            ListIterator<IncidentStatusUpdate> iterator = pendingUpdates.listIterator(pendingUpdates.size());
+            while (iterator.hasPrevious() && !compacted) {
+                IncidentStatusUpdate pendingUpdate = iterator.previous();
+                if (pendingUpdate.getIncidentId().equals(update.getIncidentId()) &&
+                    pendingUpdate.getUsername().equals(update.getUsername())) {
+                    if (pendingUpdate != inFlightUpdate) {
+                        iterator.set(compact(pendingUpdate, update));
+                        compacted = true;
+                    }
+                    //only the last update of the incident can be waiting, older ones are in flight
+                    break;
+                }
+            }
+            if (!compacted) {
+                pendingUpdates.addLast(update);
+            }
+            persist();
+        }
+        if (compacted) {
+            compactedCount.incrementAndGet();
+        }
+        LOG.fine("enqueue", "incident.update.queued", "id", update.getIncidentId(), "status", update.getStatus(),
+                 "compacted", compacted, "pending", size());
+        scheduleDrain(0);
+    }
+
+    /**
+     * Starts sending the pending updates of a user, e.g. those loaded from the store after the user logged in. The
+     * updates of other users are kept, but no longer sent
+     * @param username the authenticated user
+     */
+    public void drainPendingUpdates(String username) {
+        int heldUpdates = 0;
+        synchronized (pendingUpdates) {
+            authenticatedUsername = username;
+            for (IncidentStatusUpdate update : pendingUpdates) {
+                if (!update.getUsername().equals(username)) {
+                    heldUpdates++;
+                }
+            }
+        }
+        LOG.info("drainPendingUpdates", "incident.outbox.user", "username", username, "heldForOtherUsers",
+                 heldUpdates);
+        scheduleDrain(0);
+    }
+
+    /**
+     * @return number of updates of all users not yet accepted by MCS
+     */
+    public int size() {
+        synchronized (pendingUpdates) {
+            return pendingUpdates.size();
+        }
+    }
+
+    /**
+     * @return copy of the updates of the authenticated user not yet accepted by MCS, oldest first
+     */
+    public ArrayList<IncidentStatusUpdate> getPendingUpdates() {
+        synchronized (pendingUpdates) {
+            ArrayList<IncidentStatusUpdate> updates = new ArrayList<IncidentStatusUpdate>();
+            for (IncidentStatusUpdate update : pendingUpdates) {
+                if (isSendable(update)) {
+                    updates.add(update);
+                }
+            }
+            return updates;
+        }
+    }
+
+    /**
+     * @param incidentId
+     * @return true if an update of the incident by the authenticated user is not yet accepted by MCS
+     */
+    public boolean hasPendingUpdate(String incidentId) {
+        synchronized (pendingUpdates) {
+            for (IncidentStatusUpdate update : pendingUpdates) {
+                if (update.getIncidentId().equals(incidentId) && isSendable(update)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * @return number of updates merged into a waiting update of the same incident
+     */
+    public long getCompactedCount() {
+        return compactedCount.get();
+    }
+
+    /**
+     * @return number of updates sent without getting a response
+     */
+    public long getUnconfirmedCount() {
+        return unconfirmedCount.get();
+    }
+
+    /**
+     * Flattens the queue counters into a String for logging
+     * @return String of key/value pairs
+     */
+    public String dumpStatistics() {
+        return "[pending:" + size() + ";sent:" + sentCount.get() + ";failed:" + failedCount.get() + ";retries:" +
+               retryCount.get() + ";compacted:" + compactedCount.get() + ";unconfirmed:" + unconfirmedCount.get() +
+               "]";
+    }
+
+    /**
+     * @return update with the status of the newer update, the notes of both and the previous status of the older one
+     */
+    private static IncidentStatusUpdate compact(IncidentStatusUpdate older, IncidentStatusUpdate newer) {
+        String notes;
+        if (older.getNotes() == null || older.getNotes().isEmpty()) {
+            notes = newer.getNotes();
+        } else if (newer.getNotes() == null || newer.getNotes().isEmpty()) {
+            notes = older.getNotes();
+        } else {
+            notes = older.getNotes() + NOTES_SEPARATOR + newer.getNotes();
+        }
+        return new IncidentStatusUpdate(older.getIncidentId(), older.getUsername(), newer.getStatus(), notes,
+                                        older.getPreviousStatus(), older.getCreatedAt());
+    }
+
+    /**
+     * Must be called holding the pendingUpdates lock
+     * @return true if the update was made by the authenticated user
+     */
+    private boolean isSendable(IncidentStatusUpdate update) {
+        return update.getUsername().equals(authenticatedUsername);
+    }
+
+    /**
+     * Must be called holding the pendingUpdates lock
+     * @return the oldest update of the authenticated user, null if there is none
+     */
+    private IncidentStatusUpdate nextUpdate() {
+        for (IncidentStatusUpdate update : pendingUpdates) {
+            if (isSendable(update)) {
+                return update;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Saves the pending updates. Must be called holding the pendingUpdates lock, so saves are in order
+     */
+    private void persist() {
+        if (store == null) {
+            return;
+        }
+        try {
+            store.save(pendingUpdates);
+        } catch (IOException e) {
+            //the updates are still sent as long as the application runs
+            LOG.severe("persist", "incident.outbox.saveFailed", "pending", pendingUpdates.size(), "error",
+                       e.getMessage());
+        }
+    }
+
+    /**
+     * Starts sending unless the queue is already sending or waiting for a retry
+     */
+    private void scheduleDrain(long delayMillis) {
+        synchronized (pendingUpdates) {
+            if (drainScheduled || nextUpdate() == null) {
+                return;
+            }
+            drainScheduled = true;
+        }
+        scheduleDrainTask(delayMillis);
+    }
+
+    private void scheduleDrainTask(long delayMillis) {
+        scheduler.schedule(new Runnable() {
+            public void run() {
+                drain();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends the updates of the authenticated user until none is left or the update at the head of the queue has to wait
+     * for a retry or for the network. The head of the queue is the oldest update of the authenticated user
+     */
+    private void drain() {
+        while (true) {
+            if (!networkMonitor.isOnline()) {
+                LOG.fine("drain", "incident.update.offline", "pending", size(), "pollMs", OFFLINE_POLL_MILLIS);
+                scheduleDrainTask(OFFLINE_POLL_MILLIS);
+                return;
+            }
+            IncidentStatusUpdate update;
+            synchronized (pendingUpdates) {
+                update = nextUpdate();
+                if (update == null) {
+                    drainScheduled = false;
+                    return;
+                }
+                inFlightUpdate = update;
+            }
+            long retryDelay;
+            try {
+                retryDelay = send(update);
+            } finally {
+                synchronized (pendingUpdates) {
+                    inFlightUpdate = null;
+                }
+            }
+            if (retryDelay >= 0) {
+                //drainScheduled stays set, so updates added meanwhile do not skip the wait
+                scheduleDrainTask(retryDelay);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends the update at the head of the queue and removes it unless it is retried
+     * @return time to wait before the update is sent again, -1 if the update was removed from the queue
+     */
+    private long send(IncidentStatusUpdate update) {
+        int status;
+        String message;
+        boolean connectionFailed = false;
+        try {
+            status = sender.send(update);
+            message = "HTTP status " + status;
+            if (status >= 200 && status < 300) {
+                removeHead(update);
+                sentCount.incrementAndGet();
+                LOG.fine("send", "incident.update.sent", "id", update.getIncidentId(), "status", update.getStatus(),
+                         "attempts", headAttempts + 1);
+                headAttempts = 0;
+                notifyListener(update, true, status, null);
+                return -1;
+            }
+        } catch (CircuitOpenException e) {
+            //MCS is not responding. The request was not sent, so it does not count as attempt
+            LOG.info("send", "incident.update.paused", "id", update.getIncidentId(), "retryAfterMs",
+                     e.getRetryAfterMillis());
+            return Math.max(e.getRetryAfterMillis(), retryPolicy.getInitialBackoffMillis());
+        } catch (Exception e) {
+            status = RestClient.getStatusFromException(e);
+            message = e.getMessage();
+            connectionFailed = isConnectionFailure(e);
+        }
+
+        if (status == ResponseContext.STATUS_0 && !connectionFailed) {
+            //the request may have been written before the connection failed or timed out
+            removeHead(update);
+            unconfirmedCount.incrementAndGet();
+            LOG.warning("send", "incident.update.unconfirmed", "id", update.getIncidentId(), "status",
+                        update.getStatus(), "attempts", headAttempts + 1, "error", message);
+            headAttempts = 0;
+            notifyListener(update, null, status, message);
+            return -1;
+        }
+
+        if (status == ResponseContext.STATUS_0 && !networkMonitor.isOnline()) {
+            //the network went away before the request was sent. Wait for it without counting the attempt
+            return OFFLINE_POLL_MILLIS;
+        }
+
+        if (isNotProcessed(status) && headAttempts < retryPolicy.getMaxRetries()) {
+            long backoff = retryPolicy.getBackoffMillis(headAttempts);
+            headAttempts++;
+            retryCount.incrementAndGet();
+            LOG.info("send", "incident.update.retry", "id", update.getIncidentId(), "status", status, "attempt",
+                     headAttempts, "backoffMs", backoff);
+            return backoff;
+        }
+
+        removeHead(update);
+        failedCount.incrementAndGet();
+        LOG.warning("send", "incident.update.failed", "id", update.getIncidentId(), "status", status, "attempts",
+                    headAttempts + 1, "error", message);
+        headAttempts = 0;
+        notifyListener(update, false, status, message);
+        return -1;
+    }
+
+    /**
+     * @param status HTTP status of the failed attempt, 0 if no connection was made
+     * @return true if MCS did not process the request, so it can be sent again
+     */
+    private static boolean isNotProcessed(int status) {
+        if (status == ResponseContext.STATUS_0) {
+            return true;
+        }
+        for (int notProcessedStatus : NOT_PROCESSED_STATUSES) {
+            if (status == notProcessedStatus) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param e exception of the failed attempt
+     * @return true if no connection to MCS was made, so the request was not written
+     */
+    private static boolean isConnectionFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof UnknownHostException ||
+                cause instanceof NoRouteToHostException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param sent true if MCS accepted the update, false if it failed, null if the outcome is unknown
+     */
+    private void notifyListener(IncidentStatusUpdate update, Boolean sent, int status, String message) {
+        try {
+            if (sent == null) {
+                listener.updateUnconfirmed(update, message);
+            } else if (sent) {
+                listener.updateSent(update);
+            } else {
+                listener.updateFailed(update, status, message);
+            }
+        } catch (RuntimeException e) {
+            //a failing listener must not stop the queue
+            LOG.severe("notifyListener", "incident.update.listenerFailed", "id", update.getIncidentId(), "error",
+                       e.getMessage());
+        }
+    }
+
+    private void removeHead(IncidentStatusUpdate update) {
+        synchronized (pendingUpdates) {
+            //removed by identity: the authenticated user may have changed while the update was sent
+            if (pendingUpdates.remove(update)) {
+                persist();
+            }
+        }
+    }
+}
@@ -1,41 +1,59 @@
 package oracle.mobile.cloud.sample.fif.technician.app.datacontrol;
 
-import java.text.SimpleDateFormat;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 import oracle.adf.model.datacontrols.device.DeviceManagerFactory;
 import oracle.adf.model.datacontrols.device.Location;
 
 import oracle.adfmf.framework.api.AdfmfJavaUtilities;
-import oracle.adfmf.framework.api.JSONBeanSerializationHelper;
 import oracle.adfmf.framework.exception.AdfException;
 import oracle.adfmf.java.beans.PropertyChangeListener;
 import oracle.adfmf.java.beans.PropertyChangeSupport;
 import oracle.adfmf.java.beans.ProviderChangeListener;
 import oracle.adfmf.java.beans.ProviderChangeSupport;
 import oracle.adfmf.json.JSONObject;
+import oracle.adfmf.util.Utility;
 
-import oracle.mobile.cloud.sample.fif.technician.app.data.collections.Incidents;
+import oracle.mobile.cloud.sample.fif.technician.app.data.collections.IncidentDetailCache;
+import oracle.mobile.cloud.sample.fif.technician.app.data.collections.IncidentIndex;
+import oracle.mobile.cloud.sample.fif.technician.app.data.collections.IncidentStreamDecoder;
 import oracle.mobile.cloud.sample.fif.technician.app.data.entities.Incident;
+import oracle.mobile.cloud.sample.fif.technician.app.data.query.IncidentQuery;
+import oracle.mobile.cloud.sample.fif.technician.app.data.sync.FileIncidentOutboxStore;
+import oracle.mobile.cloud.sample.fif.technician.app.data.sync.IncidentStatusUpdate;
+import oracle.mobile.cloud.sample.fif.technician.app.data.sync.IncidentUpdateQueue;
+import oracle.mobile.cloud.sample.fif.technician.app.data.store.IncidentStore;
 import oracle.mobile.cloud.sample.fif.technician.app.images.FiFImageHandler;
 import oracle.mobile.cloud.sample.fif.technician.app.log.AppLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.AsyncLogSink;
+import oracle.mobile.cloud.sample.fif.technician.app.log.ComponentLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.LogComponent;
 import oracle.mobile.cloud.sample.fif.technician.constants.FiFConstants;
+import oracle.mobile.cloud.sample.fif.technician.maf.CircuitBreaker;
+import oracle.mobile.cloud.sample.fif.technician.maf.CircuitOpenException;
+import oracle.mobile.cloud.sample.fif.technician.maf.EndpointMetrics;
 import oracle.mobile.cloud.sample.fif.technician.maf.RequestContext;
 import oracle.mobile.cloud.sample.fif.technician.maf.ResponseContext;
 import oracle.mobile.cloud.sample.fif.technician.maf.RestClient;
+import oracle.mobile.cloud.sample.fif.technician.maf.RestMetrics;
+import oracle.mobile.cloud.sample.fif.technician.maf.RetryPolicy;
+import oracle.mobile.cloud.sample.fif.technician.maf.SingleFlight;
 import oracle.mobile.cloud.sample.fif.technician.mcs.analytics.Analytics;
 import oracle.mobile.cloud.sample.fif.technician.mcs.analytics.Event;
-import oracle.mobile.cloud.sample.fif.technician.mcs.analytics.Session;
-import oracle.mobile.cloud.sample.fif.technician.mcs.log.FiFLogger;
 import oracle.mobile.cloud.sample.fif.technician.mcs.mbe.FiFMBEConfig;
 import oracle.mobile.cloud.sample.fif.technician.mcs.mbe.FiFMobileBackend;
 import oracle.mobile.cloud.sample.fif.technician.mcs.notifications.Notifications;
+import oracle.mobile.cloud.sample.fif.technician.utils.DateUtil;
+import oracle.mobile.cloud.sample.fif.technician.utils.FiFExecutor;
+import oracle.mobile.cloud.sample.fif.technician.utils.MAFUtil;
 
 
 /**
@@ -75,8 +93,27 @@ import oracle.mobile.cloud.sample.fif.technician.mcs.notifications.Notifications
  */
 public class FiFTechnicianDC{
     
+    //REST requests and responses are logged as component REST so that they can be traced without the other FINE messages
+    private static final ComponentLogger REST_LOG = ComponentLogger.getLogger(LogComponent.REST, "FiFTechnicianDC");
+    
     private final String REST_CONNECTION_NAME = "FiFMBE";
     private final String FIF_CUSTOM_API_INCIDENTS_URI = "/mobile/custom/incident/incidents";
+    private static final String REST_METRICS_EVENT_NAME = "RestMetrics";
+    
+    //incidents of a technician are queried in pages. The first page is shown while the next pages are queried. 
+    //MAX_INCIDENTS_IN_MEMORY limits the number of incidents held for technicians with a very long incident history
+    private static final int INCIDENT_PAGE_SIZE = 25;
+    private static final int MAX_INCIDENTS_IN_MEMORY = 500;
+    private static final int MAX_CACHED_INCIDENT_RESPONSES = 32;
+    
+    //incident details are read from the cache if the incident was queried less than INCIDENT_DETAIL_TTL_MILLIS ago
+    private static final int MAX_CACHED_INCIDENT_DETAILS = 64;
+    private static final long INCIDENT_DETAIL_TTL_MILLIS = 30000;
+    
+    //status updates sent in the background are retried for about five minutes before the change is rolled back
+    private static final RetryPolicy STATUS_UPDATE_RETRY_POLICY = new RetryPolicy(8, 2000, 60000, false);
+    private static final String OPTIMISTIC_STATUS_UPDATES_EL = "#{preferenceScope.application.sync.optimisticStatusUpdates}";
+    private static final String COMPRESS_ANALYTICS_UPLOADS_EL = "#{preferenceScope.application.sync.compressAnalyticsUploads}";
     
     
     protected ProviderChangeSupport providerChangeSupport = new ProviderChangeSupport(this);
@@ -109,8 +146,9 @@ public class FiFTechnicianDC{
     //are re-queried using this parameter
     private String currentIncidentId = null;
     
-    //collection exposed in list view
-    private ArrayList<Incident> allIncidents = new ArrayList<Incident>();
+    //collection exposed in list view. The list is replaced from the background thread that queries MCS. It is a copy
+    //of the index lists, so the binding layer cannot change the cached incidents
+    private volatile ArrayList<Incident> allIncidents = new ArrayList<Incident>();
     
     //the SRDetail page requires the longitude and latitide information as separate 
     //values. To simplify the code on the client and allow direct MAF binding access,
@@ -122,8 +160,68 @@ public class FiFTechnicianDC{
     private String technicianLocationLat = null;
         
     //to avoid unnecessary server ound trips, keep a hidden copy of the incident list queried from the 
-    //server. This list then is used to filter list items in memory e.g. by status New, InProgress, Complete, All
-    private ArrayList<Incident> mIncidentListCache = null;
+    //server. This list then is used to filter list items in memory e.g. by status New, InProgress, Complete, All.
+    //The list is the read-only list of mIncidentIndex
+    private volatile List<Incident> mIncidentListCache = null;
+    
+    //status and priority index of mIncidentListCache. Built once per query so the list filter does not re-scan and 
+    //copy the cached incidents on each filter change
+    private volatile IncidentIndex mIncidentIndex = null;
+    
+    //true while mIncidentListCache is the empty list set after a failed query. The incidents saved on the device are 
+    //read in the background and may arrive after the query failed; they replace the empty list then. Guarded by this
+    private boolean mIncidentListIsPlaceholder = false;
+    
+    //incidents for the technician are queried asynchronously. The flag prevents the binding layer from starting a second
+    //query while the first one is still running, and the pending filter is applied once the query returns
+    private volatile boolean mIncidentQueryInProgress = false;
+    private volatile IncidentQuery mPendingIncidentQuery = null;
+    
+    //on-device copy of the technician's incidents. The list view renders from it on a cold start while the 
+    //incidents are re-queried from MCS in the background
+    private IncidentStore mIncidentStore = null;
+    
+    //incident lists parsed from successful (http 200) queries, keyed by the request URI (one entry per page). Incident 
+    //queries are sent as conditional requests and if MCS responds with http 304, the list is reused without parsing JSON.
+    //The least recently used entry is removed when the map is full
+    private final LinkedHashMap<String, ArrayList<Incident>> mParsedIncidentResponses = new LinkedHashMap<String, ArrayList<Incident>>(16, 0.75f, true){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ArrayList<Incident>> eldest) {
+            return size() > MAX_CACHED_INCIDENT_RESPONSES;
+        }
+    };
+    
+    //incidents queried by id or contained in a queried incident list. Used by the detail page
+    private final IncidentDetailCache mIncidentDetailCache = new IncidentDetailCache(MAX_CACHED_INCIDENT_DETAILS, INCIDENT_DETAIL_TTL_MILLIS);
+    
+    //incident queries in flight. The binding layer, push messages and the detail page may query the same incident or 
+    //incident list at the same time. Concurrent identical queries share one request and one parsed result
+    private final SingleFlight<Incident> mIncidentDetailQueries = new SingleFlight<Incident>();
+    private final SingleFlight<ArrayList<Incident>> mIncidentListQueries = new SingleFlight<ArrayList<Incident>>();
+    
+    //status updates that are shown in the list already and are sent to MCS in the background. Updates made without 
+    //network connection are kept in an outbox file until they are sent
+    private final IncidentUpdateQueue mIncidentUpdateQueue;
+    
+    //filter applied to the list view, re-applied when the status of a listed incident changes
+    private volatile IncidentQuery mCurrentIncidentQuery = null;
+    
+    //network state of the device. Used by the update queue, which polls it while updates wait for the network, and 
+    //by the status update. When the device is online again, the circuit breakers opened while it was offline are closed
+    private final IncidentUpdateQueue.NetworkMonitor mNetworkMonitor = new IncidentUpdateQueue.NetworkMonitor() {
+        private boolean online = true;
+        
+        public synchronized boolean isOnline() {
+            boolean wasOnline = online;
+            online = MAFUtil.isNetworkAccess();
+            if(online && !wasOnline){
+                AppLogger.logFine("Network connection restored. Closing circuit breakers", FiFTechnicianDC.class.getSimpleName(), "isOnline");
+                CircuitBreaker.resetAll();
+            }
+            return online;
+        }
+    };
+    
     private PropertyChangeSupport propertyChangeSupport = new PropertyChangeSupport(this);
 
     /* ***********************************************
@@ -132,16 +230,36 @@ public class FiFTechnicianDC{
         
     public FiFTechnicianDC() {                    
         super();        
+        //log levels of the application components may have been changed in the application preferences
+        ComponentLogger.applyPreferences();
         //read MBE related information from the MAF application preferences
         boolean preferenceSuccess = _initFormAplicationPreferences();        
         
+        //updates saved in the outbox are sent after the user logged in
+        mIncidentUpdateQueue = new IncidentUpdateQueue(new IncidentUpdateQueue.Sender() {
+                public int send(IncidentStatusUpdate update) throws Exception {
+                    return _sendIncidentStatusUpdate(update.getIncidentId(), update.getStatus(), update.getNotes()).getResponseStatus();
+                }
+            }, new IncidentUpdateQueue.Listener() {
+                public void updateSent(IncidentStatusUpdate update) {
+                    //the detail page queries the incident with the notes added by MCS
+                    mIncidentDetailCache.invalidate(update.getIncidentId());
+                }
+
+                public void updateFailed(IncidentStatusUpdate update, int status, String message) {
+                    _rollbackIncidentStatusUpdate(update, message);
+                }
+
+                public void updateUnconfirmed(IncidentStatusUpdate update, String message) {
+                    _reportUnconfirmedIncidentStatusUpdate(update, message);
+                }
+            }, STATUS_UPDATE_RETRY_POLICY, FileIncidentOutboxStore.createOnDeviceStore(), mNetworkMonitor);
+        
         
         HashMap<String,String> customEventDef = new  HashMap<String,String>();
         
         customEventDef.put("action","application initialization"); 
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
-        Date d = new Date();
-        String timeStamp = sdf.format(d);
+        String timeStamp = DateUtil.getEventTimeStamp();
         
         customEventDef.put("timeStamp",timeStamp);            
         
@@ -160,14 +278,14 @@ public class FiFTechnicianDC{
             customEventDef.put("mobile-backend-name",this.mFifMobileBackendName);
             customEventDef.put("application-key",this.mFifMobileBackendApplicationKey);                       
             
-            d = new Date();
-            timeStamp = sdf.format(d);
+            timeStamp = DateUtil.getEventTimeStamp();
             
             customEventDef.put("timeStamp",timeStamp);            
             
             this.addCustomAnalyticEvent("DataControlEvent", customEventDef);
             
             _initMobileBackend();
+            mIncidentStore = IncidentStore.createOnDeviceStore();
             //the 
             resetDataControlMessages();
         }
@@ -206,22 +324,26 @@ public class FiFTechnicianDC{
             if(username != null){
                 //set query condition to user name. In the x-week schema, joe and jill have their query names set to <name>@fixit.com
                 if(username.equalsIgnoreCase("joe")){
-                    FiFLogger.logFine("Querying all incidents reported for user  = joe@fixit.com", this.getClass().getSimpleName(), "getAllIncidents");
+                    AppLogger.logFine("Querying all incidents reported for user  = joe@fixit.com", this.getClass().getSimpleName(), "getAllIncidents");
                     this._qryIncidentsFromMcsForTechnician("joe@fixit.com");
                 }
                 else if (username.equalsIgnoreCase("jill")){
-                    FiFLogger.logFine("Querying all incidents reported for user  = jill@fixit.com", this.getClass().getSimpleName(), "getAllIncidents");
+                    AppLogger.logFine("Querying all incidents reported for user  = jill@fixit.com", this.getClass().getSimpleName(), "getAllIncidents");
                     this._qryIncidentsFromMcsForTechnician("jill@fixit.com");
                 }
                 else{
                     //note that this may not return values if there is no incident reported for this technician. So best is to use joe or jill 
                     //with the current x-week schema
-                    FiFLogger.logFine("Querying all incidents reported for user  = "+username, this.getClass().getSimpleName(), "getAllIncidents");
+                    AppLogger.logFine("Querying all incidents reported for user  = "+username, this.getClass().getSimpleName(), "getAllIncidents");
                     this._qryIncidentsFromMcsForTechnician(username);
                 } 
             }  
             
         } 
+        //the list is empty while the incidents are loaded in the background
+        if(allIncidents == null){
+            allIncidents = new ArrayList<Incident>();
+        }
       return allIncidents;
     }
        
@@ -238,52 +360,89 @@ public class FiFTechnicianDC{
                throw new AdfException("The name of the contact person cannot be null",AdfException.ERROR);
            }        
            ArrayList<Incident> contactIncidentList = this._getIncidentsFromMcsWithFilter(contact, null, this._getCurrentGeoPosition());
-           return contactIncidentList;           
+           return contactIncidentList == null ? new ArrayList<Incident>() : contactIncidentList;           
        }
                                           
     /**
      * In memory filtering of the incident reports by status: New, Open, Complete, All.
      */
     public void filterIncidentListInMemory(String filterValue){
-        AppLogger.logFine("Start in Memory Filtering of incidents by filter criteria: "+filterValue , this.getClass().getSimpleName(), "filterIncidentListInMemory");               
+        AppLogger.logFine("Start in Memory Filtering of incidents by filter criteria: {}", this.getClass().getSimpleName(), "filterIncidentListInMemory", filterValue);               
         
-        //is cache null?            
-        if(this.mIncidentListCache == null){
-           AppLogger.logFine("Cache not available for in memory filtering. Re-querying data from MCS ...." , this.getClass().getSimpleName(), "filterIncidentListInMemory");  
-                
-           //populate list. The incidents are kept in a local variable "allIncidents" so no need
-           //to deal with a return value
-           this.getAllIncidents();                
+        //only the known status values filter the list. Other values leave the list unchanged
+        if(filterValue.equalsIgnoreCase("ALL") || filterValue.equalsIgnoreCase("INPROGRESS") || filterValue.equalsIgnoreCase("COMPLETE") || filterValue.equalsIgnoreCase("NEW")){
+            //a status-only query reads the prepared list from the index
+            _applyIncidentQuery(new IncidentQuery().status(filterValue));
         }
-            
-        //if all should be shown, then re-read from cache
-        if(filterValue .equalsIgnoreCase("ALL")){                
-            //reset the content of all incidents
-            this.allIncidents = new ArrayList<Incident>();
-            this.allIncidents.addAll(new ArrayList<Incident>(this.mIncidentListCache));
+        else{
+            providerChangeSupport.fireProviderRefresh("allIncidents");
         }
+    }
+    
+    /**
+     * In memory filtering and sorting of the incident reports by multiple criteria. Criteria that are null or empty are 
+     * ignored. All other criteria must be met for an incident to be shown.
+     * 
+     * @param status New, InProgress, Complete or All
+     * @param priority High, Medium, Low
+     * @param customerName full or partial customer name
+     * @param city name of the city
+     * @param postalCode full postal code or its beginning
+     * @param titleText text contained in the incident title
+     * @param createdFrom earliest creation date of the incident
+     * @param createdTo latest creation date of the incident
+     * @param sortBy CREATED_ON, PRIORITY, STATUS, CUSTOMER_NAME, CITY, TITLE. Null or empty keeps the order of the queried list
+     * @param sortAscending sort order, ignored if sortBy is not set
+     */
+    public void queryIncidentListInMemory(String status, String priority, String customerName, String city, String postalCode, 
+                                          String titleText, Date createdFrom, Date createdTo, String sortBy, Boolean sortAscending){
+        
+        AppLogger.logFine("Start in Memory query of incidents. Status: {}, priority: {}, customer: {}, city: {}, postal code: {}, title: {}, created from: {} to: {}, sort by: {}", 
+                          this.getClass().getSimpleName(), "queryIncidentListInMemory", status, priority, customerName, city, postalCode, titleText, createdFrom, createdTo, sortBy);               
+        
+        IncidentQuery query = new IncidentQuery().status(status).priority(priority).customerName(customerName).city(city)
+                                                 .postalCode(postalCode).titleContains(titleText).createdBetween(createdFrom, createdTo)
+                                                 .sortBy(IncidentQuery.SortOrder.fromString(sortBy), sortAscending == null || sortAscending.booleanValue());
+        _applyIncidentQuery(query);
+    }
+    
+    /**
+     * Runs the query against the index of the cached incident list and shows the result in the list view. If the 
+     * incidents are not queried yet, the query is applied when they arrive.
+     * 
+     * @param query
+     */
+    private void _applyIncidentQuery(IncidentQuery query){
+        
+        //is cache null? The index is read once, as the cache may be cleared while the query runs
+        IncidentIndex incidentIndex = this.mIncidentIndex;
+        if(incidentIndex == null){
+           AppLogger.logFine("Cache not available for in memory filtering. Re-querying data from MCS ...." , this.getClass().getSimpleName(), "_applyIncidentQuery");  
                 
-        //Loop over the list of incidents and remove all incident reports that have a status not matching the filter criteria
-        else if(filterValue.equalsIgnoreCase("INPROGRESS") || filterValue.equalsIgnoreCase("COMPLETE") || filterValue.equalsIgnoreCase("NEW")){
-            AppLogger.logFine("List size BEFORE aplying filter: "+allIncidents.size() , this.getClass().getSimpleName(), "filterIncidentListInMemory");  
-            //reset the content of all incidents
-            
-             ArrayList<Incident> tempList = new ArrayList<Incident>();
-
-            for(Incident incident : this.mIncidentListCache){
-                //remove all objects that don't match the status to filter for
-                if(incident.getStatus().equalsIgnoreCase(filterValue)){
-                    tempList.add(incident);
-                }
-            }
-            this.allIncidents = new ArrayList<Incident>(tempList);
-            AppLogger.logFine("List size AFTER aplying filter: "+allIncidents.size() , this.getClass().getSimpleName(), "_filterIncidentListInMemory");                         
+           //populate list. The incidents are queried asynchronously, so the filter is applied (again) when
+           //the query returns
+           mPendingIncidentQuery = query;
+           this.getAllIncidents();                
+           
+           //nothing saved on the device to filter in the meantime
+           incidentIndex = this.mIncidentIndex;
+           if(incidentIndex == null){
+               return;
+           }
         }
+        
+        AppLogger.logFine("List size BEFORE aplying filter: {}", this.getClass().getSimpleName(), "_applyIncidentQuery", incidentIndex.size());  
+        this.allIncidents = new ArrayList<Incident>(query.execute(incidentIndex));
+        this.mCurrentIncidentQuery = query;
+        AppLogger.logFine("List size AFTER aplying filter: {}", this.getClass().getSimpleName(), "_applyIncidentQuery", allIncidents.size());                         
+        
         providerChangeSupport.fireProviderRefresh("allIncidents");
     }  
      
     /**
-     * Updates the status of a specified incident 
+     * Updates the status of a specified incident. If optimistic status updates are enabled in the application preferences, 
+     * the new status is shown right away and the update is sent to MCS in the background. The change is rolled back if 
+     * MCS does not accept it. Otherwise the method waits for MCS to confirm the update
      * 
      * @param incidentId required parameter ID that identifies the incident to update in MCS
      * @param status "Complete", "InProgress", "New", "All"
@@ -297,6 +456,181 @@ public class FiFTechnicianDC{
         if(incidentId == null){
             AppLogger.logSevereError("Incident id in call to status update cannot be null", this.getClass().getSimpleName(), "updateIncidentStatus");                
         }
+        else if(_isOptimisticStatusUpdate()){
+            _updateIncidentStatusOptimistic(incidentId, status, notes);
+            return;
+        }
+        else if(!mNetworkMonitor.isOnline()){
+            //keep the update in the outbox until the network is back
+            _updateIncidentStatusOptimistic(incidentId, status, notes);
+            this.setDcMessage("No network connection. The update is sent when the network is available.");
+            return;
+        }
+        
+        try {       
+            
+           ResponseContext response = _sendIncidentStatusUpdate(incidentId, status, notes);
+           //its a PUT request and we expect http status 200 to indicate success
+           if(response.getResponseStatus() == ResponseContext.STATUS_RESPONSE_OK){
+               REST_LOG.fine("updateIncidentStatus", "incident.status.response", "status", response.getResponseStatus(),
+                             "payload", response.getResponsePayload());               
+               this.setDcMessage("Update Sucessful.");
+               this.setDcHasMessage(true);
+           }
+           else{
+             AppLogger.logSevereError("Request failed with status: {} Message is:{}", this.getClass().getSimpleName(), "updateIncidentStatus", response.getResponseStatus(), response.getResponsePayload());                
+             
+             this.setDcMessage("Update Failed with error: "+response.getResponsePayload());
+             this.setDcHasMessage(true);
+           }        
+        } catch (Exception e) {
+          AppLogger.logSevereError("REST request failed with exception: "+e.getMessage(), this.getClass().getSimpleName(), "updateIncidentStatus");
+          this.setDcMessage(_getRequestFailedMessage(e, "Update Failed. Unable to send the MCS REST request"));
+          if(e instanceof CircuitOpenException){
+              this.setDcHasMessage(true);
+          }
+        }
+        finally{
+            //query the incident from MCS next time it is displayed
+            mIncidentDetailCache.invalidate(incidentId);
+        }
+
+    }
+
+    /**
+     * Shows the new status in the incident list and on the detail page and queues the update for sending to MCS. The
+     * queue sends the update when the device is online
+     */
+    private void _updateIncidentStatusOptimistic(String incidentId, String status, String notes){
+        
+        //queue first, so a list query that completes before the cache is patched shows the new status as well
+        synchronized(this){
+            String previousStatus = _getCachedIncidentStatus(incidentId);
+            String username = this.mFifConfig.getAuthenticatedUsername();
+            mIncidentUpdateQueue.enqueue(new IncidentStatusUpdate(incidentId, username, status, notes, previousStatus));
+            _setCachedIncidentStatus(incidentId, null, status);
+        }
+        
+        this.setDcMessage("Update saved. Sending to MCS in the background.");
+        this.setDcHasMessage(true);
+    }
+
+    /**
+     * Called from the update queue thread if MCS did not accept an update. Restores the previous status unless the 
+     * incident was changed again since
+     */
+    private void _rollbackIncidentStatusUpdate(IncidentStatusUpdate update, String errorMessage){
+        
+        AppLogger.logSevereError("Status update of incident {} failed: {}", this.getClass().getSimpleName(), "_rollbackIncidentStatusUpdate", update.getIncidentId(), errorMessage);
+        
+        if(update.getPreviousStatus() != null && !mIncidentUpdateQueue.hasPendingUpdate(update.getIncidentId())){
+            _setCachedIncidentStatus(update.getIncidentId(), update.getStatus(), update.getPreviousStatus());
+        }
+        mIncidentDetailCache.invalidate(update.getIncidentId());
+        
+        this.setDcMessage("Update of incident "+update.getIncidentId()+" failed. The status was reset.");
+        this.setDcHasMessage(true);
+        //the rollback is from the queue thread. Thus we need to call flushDataChangeEvent()
+        AdfmfJavaUtilities.flushDataChangeEvent();
+    }
+
+    /**
+     * Called from the update queue thread if an update was sent but MCS did not respond. The update is not sent again, as 
+     * MCS may have applied it already. The status shown is kept until the incident is queried from MCS again
+     */
+    private void _reportUnconfirmedIncidentStatusUpdate(IncidentStatusUpdate update, String errorMessage){
+        
+        AppLogger.logSevereError("Status update of incident {} was not confirmed: {}", this.getClass().getSimpleName(), "_reportUnconfirmedIncidentStatusUpdate", update.getIncidentId(), errorMessage);
+        
+        mIncidentDetailCache.invalidate(update.getIncidentId());
+        
+        this.setDcMessage("MCS did not confirm the update of incident "+update.getIncidentId()+". Please check the incident status.");
+        this.setDcHasMessage(true);
+        //called from the queue thread. Thus we need to call flushDataChangeEvent()
+        AdfmfJavaUtilities.flushDataChangeEvent();
+    }
+
+    /**
+     * @param incidentId
+     * @return the status of the incident in the cached incident list or in the incident detail cache, null if the 
+     *         incident is not cached
+     */
+    private synchronized String _getCachedIncidentStatus(String incidentId){
+        
+        List<Incident> incidentListCache = this.mIncidentListCache;
+        if(incidentListCache != null){
+            for(Incident incident : incidentListCache){
+                if(incident.getId() != null && incidentId.equals(incident.getId().toString())){
+                    return incident.getStatus();
+                }
+            }
+        }
+        Incident cachedIncident = mIncidentDetailCache.peek(incidentId);
+        return cachedIncident == null ? null : cachedIncident.getStatus();
+    }
+
+    /**
+     * Changes the status of the incident in the cached incident list and in the incident detail cache, rebuilds the index
+     * of the list and refreshes the list view. The incidents are shared with the parsed MCS responses, so the changed 
+     * incident is replaced by a copy instead of being changed
+     * 
+     * @param incidentId
+     * @param expectedStatus only change the status if the incident has this status, null to change it in any case
+     * @param status new status
+     * @return the status before the change or null if the incident is not cached
+     */
+    private synchronized String _setCachedIncidentStatus(String incidentId, String expectedStatus, String status){
+        
+        String previousStatus = null;
+        ArrayList<Incident> changedIncidentList = null;
+        
+        List<Incident> incidentListCache = this.mIncidentListCache;
+        if(incidentListCache != null){
+            for(int i = 0; i < incidentListCache.size(); i++){
+                Incident incident = incidentListCache.get(i);
+                if(incident.getId() != null && incidentId.equals(incident.getId().toString()) && 
+                   (expectedStatus == null || expectedStatus.equals(incident.getStatus()))){
+                    previousStatus = incident.getStatus();
+                    if(changedIncidentList == null){
+                        changedIncidentList = new ArrayList<Incident>(incidentListCache);
+                    }
+                    changedIncidentList.set(i, _copyIncidentWithStatus(incident, status));
+                }
+            }
+        }
+        Incident cachedIncident = mIncidentDetailCache.peek(incidentId);
+        if(cachedIncident != null && (expectedStatus == null || expectedStatus.equals(cachedIncident.getStatus()))){
+            if(previousStatus == null){
+                previousStatus = cachedIncident.getStatus();
+            }
+            mIncidentDetailCache.replace(_copyIncidentWithStatus(cachedIncident, status));
+        }
+        
+        if(changedIncidentList != null){
+            //the status index is a snapshot and must be rebuilt. The incidents keep their order
+            IncidentQuery currentQuery = this.mCurrentIncidentQuery;
+            IncidentIndex incidentIndex = _setIncidentListCache(changedIncidentList);
+            if(currentQuery != null){
+                this.allIncidents = new ArrayList<Incident>(currentQuery.execute(incidentIndex));
+            }
+            providerChangeSupport.fireProviderRefresh("allIncidents");
+        }
+        return previousStatus;
+    }
+
+    private static Incident _copyIncidentWithStatus(Incident incident, String status){
+        Incident copy = incident.copy();
+        copy.setStatus(status);
+        return copy;
+    }
+
+    /**
+     * Sends a status update to MCS. The request is sent once: a status update is not idempotent (MCS appends the notes of 
+     * each request) and a request that timed out may have been applied
+     * @return the MCS response
+     * @throws Exception if the request could not be sent
+     */
+    private ResponseContext _sendIncidentStatusUpdate(String incidentId, String status, String notes) throws Exception{
         
         String updateURI = FIF_CUSTOM_API_INCIDENTS_URI+"/"+incidentId+"/status";
         
@@ -305,13 +639,17 @@ public class FiFTechnicianDC{
         request.setConnectionName(REST_CONNECTION_NAME);
         request.setHttpMethod(RequestContext.HttpMethod.PUT);
         request.setRequestURI(updateURI);
+        request.setRetryPolicy(RetryPolicy.NONE);
         
-        String payload = "{\"Status\": \""+status+"\", \"Notes\": \""+notes+"\"}";
+        //JSONObject escapes quotes, backslashes and line breaks in the notes (compacted notes are joined by line breaks)
+        JSONObject statusUpdate = new JSONObject();
+        statusUpdate.put("Status", status);
+        statusUpdate.put("Notes", notes == null ? "" : notes);
+        String payload = statusUpdate.toString();
         
-        AppLogger.logFine("Sending REST request to URI: "+request.getRequestURI()+" with payload of: "+payload , this.getClass().getSimpleName(), "updateIncidentStatus");               
+        REST_LOG.fine("_sendIncidentStatusUpdate", "incident.status.request", "uri", request.getRequestURI(), "payload", payload);               
         
         request.setPayload(payload);
-        request.setRequestURI(updateURI);
         
         HashMap<String, String> httpHeaders = new HashMap<String, String>();
         httpHeaders.put("Oracle-Mobile-Backend-Id", this.mFifMobileBackend.getMbeConfiguration().getMobileBackendId());
@@ -320,26 +658,29 @@ public class FiFTechnicianDC{
         
         request.setHttpHeaders(httpHeaders);        
         
-        try {       
-            
-           ResponseContext response = RestClient.sendForStringResponse(request);           
-           //its a PUT request and we expect http status 200 to indicate success
-           if(response.getResponseStatus() == ResponseContext.STATUS_RESPONSE_OK){
-               AppLogger.logFine("REST response: http-"+response.getResponseStatus()+" "+response.getResponsePayload() , this.getClass().getSimpleName(), "updateIncidentStatus");               
-               this.setDcMessage("Update Sucessful.");
-               this.setDcHasMessage(true);
-           }
-           else{
-             AppLogger.logSevereError("Request failed with status: "+response.getResponseStatus()+" Message is:"+response.getResponsePayload(), this.getClass().getSimpleName(), "updateIncidentStatus");                
-             
-             this.setDcMessage("Update Failed with error: "+response.getResponsePayload());
-             this.setDcHasMessage(true);
-           }        
-        } catch (Exception e) {
-          AppLogger.logSevereError("REST request failed with exception: "+e.getMessage(), this.getClass().getSimpleName(), "updateIncidentStatus");
-          this.setDcMessage("Update Failed. Unable to send the MCS REST request");
-        }
+        return RestClient.sendForStringResponse(request);
+    }
 
+    /**
+     * @return true if status updates are shown before MCS confirmed them (application preference)
+     */
+    private boolean _isOptimisticStatusUpdate(){
+        return _getBooleanPreference(OPTIMISTIC_STATUS_UPDATES_EL);
+    }
+    
+    /**
+     * @param preferenceEL EL expression of a boolean application preference
+     * @return value of the preference, false if the preference is not available
+     */
+    private boolean _getBooleanPreference(String preferenceEL){
+        try{
+            Object value = AdfmfJavaUtilities.getELValue(preferenceEL);
+            return value != null && Boolean.parseBoolean(value.toString());
+        }
+        catch(RuntimeException e){
+            //preference not available
+            return false;
+        }
     }
 
     
@@ -368,18 +709,16 @@ public class FiFTechnicianDC{
     public void addCustomAnalyticEvent(String eventName, HashMap<String,String> eventProperties){        
             
             if(this.mFifEnableAnalytics == true && this.mFifAnalytics != null){                  
-                Session analyticSession =  mFifAnalytics.getSession();
-                if(analyticSession == null){
-                    mFifAnalytics.startSession();
-                }
+                mFifAnalytics.startSession();
                 
-                //create new event and associate it with the analytic session ID
-                Event analyticEvent = new Event(eventName, new Date(), eventProperties, mFifAnalytics.getSession().getSessionId());  
+                //create new event. The event is associated with the analytic session ID when it is queued, as a 
+                //concurrent flush may end the session in between
+                Event analyticEvent = new Event(eventName, new Date(), eventProperties);  
                 //queue this event for a later flush to the server
                 mFifAnalytics.addEventToOutgoingQueue(analyticEvent);
             }
             else{
-            FiFLogger.logFine("The analytics feature is disabled. Analytics enabled setting is = "+(this.mFifEnableAnalytics == true?"true":"false")+
+            AppLogger.logFine("The analytics feature is disabled. Analytics enabled setting is = "+(this.mFifEnableAnalytics == true?"true":"false")+
                                   " Analytics object null? "+this.mFifAnalytics==null?"true":"false", this.getClass().getSimpleName(), "addAnalyticEvent");
             }
             
@@ -392,16 +731,31 @@ public class FiFTechnicianDC{
      */
     public void flushAnalyticEventsToServer(){
         if(this.mFifEnableAnalytics == true && this.mFifAnalytics != null){                
+            _addRestMetricsToAnalyticEvents();
             mFifAnalytics.flushEventQueueToServer();
         }
         else{
-            FiFLogger.logFine("The analytics feature is disabled. Analytics enabled setting is = "+(this.mFifEnableAnalytics == true?"true":"false")+
+            AppLogger.logFine("The analytics feature is disabled. Analytics enabled setting is = "+(this.mFifEnableAnalytics == true?"true":"false")+
                               " Analytics object null? "+this.mFifAnalytics==null?"true":"false", this.getClass().getSimpleName(), "sendAnalyticEventsToServer");
+            //the REST metrics are not uploaded without analytics. Log them instead
+            REST_LOG.info("flushAnalyticEventsToServer", "rest.metrics", "endpoints", RestMetrics.dumpStatistics());
         }
+        AppLogger.logInfo("Log sink statistics: {}", this.getClass().getSimpleName(), "flushAnalyticEventsToServer", AsyncLogSink.dumpStatistics());
     }
  
  
  
+    /**
+     * Adds the REST metrics (latency, bytes and status codes per endpoint) collected since the last upload as custom 
+     * analytics events. One "RestMetrics" event is created per endpoint. The metrics are reset afterwards
+     */
+    private void _addRestMetricsToAnalyticEvents(){
+        for(EndpointMetrics.Snapshot endpointMetrics : RestMetrics.snapshot(true)){
+            addCustomAnalyticEvent(REST_METRICS_EVENT_NAME, endpointMetrics.toProperties());
+        }
+    }
+    
+    
     /* ***********************************************
      *  Setter/Getter
      * *********************************************** */
@@ -515,9 +869,9 @@ public class FiFTechnicianDC{
      * 
      * @see setCurrentIncidentId
      * 
-     * @return List with a single incident queried from MCS. Note that the detail list is always queried from the MCS instance and
-     * not read from the cahed objects. Reason for this is that the detail page is also accessed from push notification and there is 
-     * no guarantee tha the data was fetched. Not to overcomplicate things for a demo, the decision was made to always query live data
+     * @return List with a single incident. The incident is read from the incident detail cache if it was queried from MCS a 
+     * short time ago, otherwise it is queried from MCS. Incidents are removed from the cache when their status is updated or
+     * a push notification for the incident arrives, so the detail page does not show outdated data
      */    
     public List<Incident> getCurrentIncident(){      
         return this._getIncidentByIdFromMCS(this.getCurrentIncidentId());
@@ -547,9 +901,7 @@ public class FiFTechnicianDC{
         customEventDef.put("mobile-backend-id",this.mFifConfig.getMobileBackendId());
         customEventDef.put("username",this.mFifConfig.getAuthenticatedUsername()==null?"Unauthenticated":this.mFifConfig.getAuthenticatedUsername());
         
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
-        Date d = new Date();
-        String timeStamp = sdf.format(d);
+        String timeStamp = DateUtil.getEventTimeStamp();
         
         customEventDef.put("timeStamp",timeStamp);            
         
@@ -572,12 +924,19 @@ public class FiFTechnicianDC{
      */
     public void setOauthAuthenticatedUsernameAndToken(String username, String token){
                 
-        FiFLogger.logFine("Username and OAUTH token set : username = "+username+" token="+token, this.getClass().getSimpleName(), "setOauthAuthenticatedUsernameAndToken()");
+        AppLogger.logFine("Username and OAUTH token set : username = "+username+" token="+token, this.getClass().getSimpleName(), "setOauthAuthenticatedUsernameAndToken()");
         
         //the information needs to be set to the MBE configuration object so it becomes
         //available throughout the model
         this.mFifMobileBackend.getMbeConfiguration().setOauthHttpHeaderToken(token);
         this.mFifMobileBackend.getMbeConfiguration().setAuthenticatedUsername(username);
+        
+        //failures recorded before the login, e.g. with an expired token, say nothing about the endpoints
+        CircuitBreaker.resetAll();
+        
+        //status updates the user left in the outbox in an earlier session can be sent now. Updates of other users are 
+        //not sent with the token of this user
+        mIncidentUpdateQueue.drainPendingUpdates(username);
     }
     
 
@@ -597,7 +956,7 @@ public class FiFTechnicianDC{
             //example for debugging purposes: "c7645c692e143855054b40c3621d4c262ce1f97f0fd62a844bef34eab991758b"
             String tokenToRegister  = (String) AdfmfJavaUtilities.getELValue(FiFConstants.PUSH_TOKEN);              
             if(tokenToRegister == null){
-                   FiFLogger.logWarning("Token not found. Please check log if it was received from the vendor", this.getClass().getSimpleName(), "registerForMCSNotification");
+                   AppLogger.logWarning("Token not found. Please check log if it was received from the vendor", this.getClass().getSimpleName(), "registerForMCSNotification");
                }
                
                else {
@@ -610,9 +969,7 @@ public class FiFTechnicianDC{
            }
          };                          
         
-         ExecutorService executor = Executors.newFixedThreadPool(2);
-         executor.execute(DeviceRegistrationService);                 
-         executor.shutdown();
+         FiFExecutor.execute("registerForMCSNotification", DeviceRegistrationService);
                          
     }
     
@@ -637,10 +994,10 @@ public class FiFTechnicianDC{
                //the token is saved in the FiFPushHandler called in the Application Controller project
                //example for debugging purposes: "c7645c692e143855054b40c3621d4c262ce1f97f0fd62a844bef34eab991758b"
                String tokenToDeRegister  = (String) AdfmfJavaUtilities.getELValue(FiFConstants.PUSH_TOKEN);            
-               FiFLogger.logFine("MCS Device De-Registration : token = "+tokenToDeRegister, this.getClass().getSimpleName(), "deRegisterForMCSNotification()");
+               AppLogger.logFine("MCS Device De-Registration : token = "+tokenToDeRegister, this.getClass().getSimpleName(), "deRegisterForMCSNotification()");
                   
                if(tokenToDeRegister == null){
-                   FiFLogger.logWarning("Token not found. Please check log if it was received from the vendor", this.getClass().getSimpleName(), "deregisterForMCSNotification");
+                   AppLogger.logWarning("Token not found. Please check log if it was received from the vendor", this.getClass().getSimpleName(), "deregisterForMCSNotification");
                }
                else {
                    Notifications mcsNotificationRegistration = new Notifications(mFifMobileBackend);
@@ -653,9 +1010,7 @@ public class FiFTechnicianDC{
            }
          };                          
         
-         ExecutorService executor = Executors.newFixedThreadPool(2);
-         executor.execute(DeviceRegistrationService);                 
-         executor.shutdown();
+         FiFExecutor.execute("deRegisterForMCSNotification", DeviceRegistrationService);
     }
 
 
@@ -705,12 +1060,19 @@ public class FiFTechnicianDC{
      * @param incidentId A vaid incident number
      * @return Incident or null if no incident is found in MCS
      */
-    private Incident _getSingleIncidentById(String incidentId) {
+    private Incident _getSingleIncidentById(final String incidentId) {
+        
+        Incident cachedIncident = mIncidentDetailCache.get(incidentId);
+        if(cachedIncident != null){
+            REST_LOG.fine("_getSingleIncidentById", "incident.cache.hit", "id", incidentId, "hits", mIncidentDetailCache.getHitCount(),
+                          "misses", mIncidentDetailCache.getMissCount());
+            return cachedIncident;
+        }
         
         String queryURI = FIF_CUSTOM_API_INCIDENTS_URI+"/"+incidentId;
         
         //request context sets header application/json by default and also add empty payload
-        RequestContext request = new RequestContext();
+        final RequestContext request = new RequestContext();
         request.setConnectionName(REST_CONNECTION_NAME);
         request.setHttpMethod(RequestContext.HttpMethod.GET);
         request.setRequestURI(queryURI);
@@ -720,8 +1082,19 @@ public class FiFTechnicianDC{
         httpHeaders.put("Authorization", this.mFifMobileBackend.getMbeConfiguration().getOauthHttpHeaderToken());
         
         request.setHttpHeaders(httpHeaders);
-        Incident incident = this._querySingleIncidentFromMCS(request);
-        return incident;
+        try {
+            return mIncidentDetailQueries.execute(incidentId, new Callable<Incident>() {
+                public Incident call() {
+                    Incident incident = _querySingleIncidentFromMCS(request);
+                    mIncidentDetailCache.put(incident);
+                    return incident;
+                }
+            });
+        } catch (Exception e) {
+            //_querySingleIncidentFromMCS handles its exceptions
+            AppLogger.logSevereError("Incident query failed with exception: "+e.getMessage(), this.getClass().getSimpleName(), "_getSingleIncidentById");
+            return null;
+        }
     }  
     
     /**
@@ -733,11 +1106,12 @@ public class FiFTechnicianDC{
         
         resetDataControlMessages();
         
-        AppLogger.logFine("URI for querying incident reports: "+request.getRequestURI(), this.getClass().getSimpleName(), "_querySingleIncidentFromMCS");
+        REST_LOG.fine("_querySingleIncidentFromMCS", "incident.query", "uri", request.getRequestURI());
 
         try {
             ResponseContext response = RestClient.sendForStringResponse(request);
-            AppLogger.logFine("REST response: http-"+response.getResponseStatus()+" "+response.getResponsePayload() , this.getClass().getSimpleName(), "_querySingleIncidentFromMCS");
+            REST_LOG.fine("_querySingleIncidentFromMCS", "incident.response", "status", response.getResponseStatus(),
+                          "payload", response.getResponsePayload());
             //its a GET request and we expect http status 200 to indicate success
             if(response.getResponseStatus() == ResponseContext.STATUS_RESPONSE_OK){
                 
@@ -753,7 +1127,7 @@ public class FiFTechnicianDC{
             }
             else{
                 AppLogger.logSevereError("REST request succeeded but then failed with error code: "+response.getResponseStatus(), this.getClass().getSimpleName(), "_querySingleIncidentFromMCS");                
-                AppLogger.logSevereError("Error message: "+response.getResponsePayload(), this.getClass().getSimpleName(), "_querySingleIncidentFromMCS");                
+                AppLogger.logSevereError("Error message: {}", this.getClass().getSimpleName(), "_querySingleIncidentFromMCS", response.getResponsePayload());                
                 
                 this.setDcMessage("Request failed with error: "+response.getResponsePayload());
                 this.setDcHasMessage(true);
@@ -761,7 +1135,7 @@ public class FiFTechnicianDC{
             
         } catch (Exception e) {
             AppLogger.logSevereError("REST request failed with exception: "+e.getMessage(), this.getClass().getSimpleName(), "_querySingleIncidentFromMCS");
-            this.setDcMessage("Request failed. Unable to send REST MCS request.");
+            this.setDcMessage(_getRequestFailedMessage(e, "Request failed. Unable to send REST MCS request."));
             this.setDcHasMessage(true);
         }        
         return null;
@@ -776,7 +1150,7 @@ public class FiFTechnicianDC{
         
         
         //setup the MBE instance
-        FiFLogger.logFine("Creating FiF Mobile Backend Configuration", this.getClass().getSimpleName(), "initMobileBackend");
+        AppLogger.logFine("Creating FiF Mobile Backend Configuration", this.getClass().getSimpleName(), "initMobileBackend");
         
         mFifConfig = new FiFMBEConfig("FIFMBE",this.mFifMobileBackendId,this.mFifMobileBackendApplicationKey); 
         mFifConfig.setMafRestConnectionName("FiFMBE");
@@ -785,15 +1159,16 @@ public class FiFTechnicianDC{
         
         mFifConfig.setMobileBackendId(mFifMobileBackendId);
         
-        FiFLogger.logFine("Creating FiF Mobile Bakend Instance", this.getClass().getSimpleName(), "initMobileBackend");
+        AppLogger.logFine("Creating FiF Mobile Bakend Instance", this.getClass().getSimpleName(), "initMobileBackend");
         mFifMobileBackend = new FiFMobileBackend(this.mFifMobileBackendName,mFifConfig);
         
         //create MCS interaction points
-        FiFLogger.logFine("Start initializing MCS interaction handlers", this.getClass().getSimpleName(), "initMobileBackend");
+        AppLogger.logFine("Start initializing MCS interaction handlers", this.getClass().getSimpleName(), "initMobileBackend");
         
         mFifAnalytics = new Analytics(mFifMobileBackend);
+        mFifAnalytics.setCompressUploads(_getBooleanPreference(COMPRESS_ANALYTICS_UPLOADS_EL));
         mFifMobileBackend.setApplicationFeatureName(AdfmfJavaUtilities.getFeatureName());
-        FiFLogger.logFine("End initializing MCS interaction handlers", this.getClass().getSimpleName(), "initMobileBackend");
+        AppLogger.logFine("End initializing MCS interaction handlers", this.getClass().getSimpleName(), "initMobileBackend");
      
     }
     
@@ -813,14 +1188,14 @@ public class FiFTechnicianDC{
             errors.add("Mobile Backend ID");
         }
 
-        FiFLogger.logFine("Mobile Backend ID: "+mFifMobileBackendId, this.getClass().getSimpleName(), "initFromPreferences()");
+        AppLogger.logFine("Mobile Backend ID: "+mFifMobileBackendId, this.getClass().getSimpleName(), "initFromPreferences()");
                 
         //fifMobileBackendName - required
         mFifMobileBackendName = (String) AdfmfJavaUtilities.getELValue("#{preferenceScope.application.mcs.fifMobileBackendName}");
         if(mFifMobileBackendName == null){
             errors.add("FIF Mobile Backend Name");
         }
-        FiFLogger.logFine("FIF Mobile Backend Name: "+mFifMobileBackendName, this.getClass().getSimpleName(), "initFromPreferences()");
+        AppLogger.logFine("FIF Mobile Backend Name: "+mFifMobileBackendName, this.getClass().getSimpleName(), "initFromPreferences()");
                        
         //The application key challenge is that MAF applications are registered twice with a Mobile Backend in MCS: one time for 
         //iOS and one time for Android. This sample requires both keys to be provided in the preferences and then determines the 
@@ -828,10 +1203,10 @@ public class FiFTechnicianDC{
         
         //fifMobileBackendApplicationKey - required
         String androidAppKey = (String) AdfmfJavaUtilities.getELValue("#{preferenceScope.application.mcs.fifMobileBackendApplicationKeyAndroid}");
-        FiFLogger.logFine("FiF Mobile Backend Application Key for Android: "+androidAppKey, this.getClass().getSimpleName(), "initFromPreferences()");
+        AppLogger.logFine("FiF Mobile Backend Application Key for Android: "+androidAppKey, this.getClass().getSimpleName(), "initFromPreferences()");
         
         String iOSAppKey = (String) AdfmfJavaUtilities.getELValue("#{preferenceScope.application.mcs.fifMobileBackendApplicationKeyiOS}");
-        FiFLogger.logFine("FiF Mobile Backend Application Key for iOS: "+iOSAppKey, this.getClass().getSimpleName(), "initFromPreferences()");
+        AppLogger.logFine("FiF Mobile Backend Application Key for iOS: "+iOSAppKey, this.getClass().getSimpleName(), "initFromPreferences()");
         
         //next check the platform MAF runs on
         String mobileOs = DeviceManagerFactory.getDeviceManager().getOs();
@@ -854,7 +1229,7 @@ public class FiFTechnicianDC{
             messageBuffer.append("The following application preference settings are mandatory and cannot be NULL: ");
             for(String error : errors){
                 messageBuffer.append("\""+error+"\" ");
-                FiFLogger.logSevereError(messageBuffer.toString(), this.getClass().getSimpleName(), "initFromPreferences()");
+                AppLogger.logSevereError(messageBuffer.toString(), this.getClass().getSimpleName(), "initFromPreferences()");
                 //set error message for display on DC
                 this.setDcMessage(messageBuffer.toString());
                 this.setDcHasMessage(true);
@@ -868,7 +1243,10 @@ public class FiFTechnicianDC{
     }
     
     /**
-    * Queries the incidents in MCS by filter of technician and (optionally) gps (Latitide, Longitude)). 
+    * Queries the incidents in MCS by filter of technician and (optionally) gps (Latitide, Longitude)). The query is 
+    * executed in the background and the method returns immediately with the "loading" message set on the data 
+    * control. The incidents are queried in pages of INCIDENT_PAGE_SIZE. Each page is appended to the list and pushed 
+    * to the UI through a provider refresh on "allIncidents", so the list renders after the first page arrived.
     * 
     * @param technician    Name of the assigned technician
     */
@@ -878,44 +1256,115 @@ public class FiFTechnicianDC{
             throw new AdfException("The name of the technician cannot be null",AdfException.ERROR);
         }
         
- /*                               
+        //a query is already on its way. The result is pushed to the UI when it arrives
+        if(mIncidentQueryInProgress){
+            AppLogger.logFine("Incident query already in progress for technician: {}", this.getClass().getSimpleName(), "_qryIncidentsFromMcsForTechnician", technician);
+            return;
+        }
+        mIncidentQueryInProgress = true;
+        
+        //show the loading state until the data is queried from MCS
+        this.setDcMessage("Loading incidents ...");
+        this.setDcHasMessage(true);
+        
+        final String technicianName = technician;
+        
+        //render the incidents saved on the device from the last query while MCS is queried. The database is read in 
+        //the background so the UI thread does not wait for it
+        if(mIncidentListCache == null && mIncidentStore != null){
+            
+            Runnable storedIncidentLoader = new Runnable(){
+               public void run(){
+                   ArrayList<Incident> storedIncidents = mIncidentStore.loadIncidents(technicianName);
+                   if(storedIncidents.isEmpty()){
+                       return;
+                   }
+                   synchronized(FiFTechnicianDC.this){
+                       //MCS was faster. Don't replace the queried incidents with the saved ones
+                       if(mIncidentListCache != null && !mIncidentListIsPlaceholder){
+                           return;
+                       }
+                       _setIncidentListCache(storedIncidents);
+                   }
+                   _refreshIncidentList(false);
+               }
+            };
+            
+            FiFExecutor.execute("loadStoredIncidents", storedIncidentLoader);
+        }
+                               
         Runnable McsIcidentDataFetcher = new Runnable(){
            public void run(){  
                
-               allIncidents = new ArrayList<Incident>(_getIncidentsFromMcsWithFilter(null, technician, _getCurrentGeoPosition()));
-               
-               //save a copy
-               mIncidentListCache = new ArrayList<Incident>();
-               //create copy of incident array in cache
-               mIncidentListCache.addAll(new ArrayList<Incident>(allIncidents));
+               String gps = _getCurrentGeoPosition();
+               ArrayList<Incident> queriedIncidents = new ArrayList<Incident>();
+               HashSet<Integer> queriedIncidentIds = new HashSet<Integer>();
+               boolean allPagesQueried = false;
                
-               AppLogger.logFine("Asynchronous fetching of remote data: "+allIncidents.size()+" items found", this.getClass().getSimpleName(), "executeFilteredIncidentsQuery");
+               try{
+                   int offset = 0;
+                   while(!allPagesQueried && queriedIncidents.size() < MAX_INCIDENTS_IN_MEMORY){
+                       
+                       int limit = Math.min(INCIDENT_PAGE_SIZE, MAX_INCIDENTS_IN_MEMORY - queriedIncidents.size());
+                       ArrayList<Incident> page = _getIncidentsFromMcsWithFilter(null, technicianName, gps, limit, offset);
+                       
+                       //the query failed. Keep showing the incidents read from the device, or the pages queried so far
+                       if(page == null){
+                           break;
+                       }
+                       
+                       int newIncidentCount = 0;
+                       ArrayList<Incident> incidents = new ArrayList<Incident>(queriedIncidents.size() + page.size());
+                       incidents.addAll(queriedIncidents);
+                       for(Incident incident : page){
+                           //a server that does not support paging returns the same incidents again
+                           if(queriedIncidentIds.add(incident.getId())){
+                               incidents.add(incident);
+                               newIncidentCount++;
+                           }
+                       }
+                       queriedIncidents = incidents;
+                       
+                       //a short page, or a page with more items than requested (paging not supported), is the last one
+                       allPagesQueried = page.size() != limit || newIncidentCount == 0;
+                       offset += page.size();
+                       
+                       //show the incidents queried so far. The list is replaced, not changed, as it is shared with the index
+                       _setIncidentListCache(queriedIncidents);
+                       _refreshIncidentList(allPagesQueried);
+                   }
+                   
+                   if(!allPagesQueried && queriedIncidents.size() >= MAX_INCIDENTS_IN_MEMORY){
+                       AppLogger.logWarning("Incident list limited to "+MAX_INCIDENTS_IN_MEMORY+" items for technician: "+technicianName, this.getClass().getSimpleName(), "_qryIncidentsFromMcsForTechnician");
+                       allPagesQueried = true;
+                   }
+                   
+                   //reconcile the on-device copy with MCS. Only a complete list replaces the saved incidents
+                   if(allPagesQueried && mIncidentStore != null){
+                       mIncidentStore.replaceIncidents(technicianName, queriedIncidents);
+                   }
+                   AppLogger.logFine("Asynchronous fetching of remote data: {} items found", this.getClass().getSimpleName(), "_qryIncidentsFromMcsForTechnician", queriedIncidents.size());
+                   
+                   //nothing queried and nothing saved on the device (yet). The saved incidents replace the empty list
+                   //if they are read after the query failed
+                   synchronized(FiFTechnicianDC.this){
+                       if(mIncidentListCache == null){
+                           _setIncidentListCache(new ArrayList<Incident>());
+                           mIncidentListIsPlaceholder = true;
+                       }
+                   }
+               }
+               finally{
+                   mIncidentQueryInProgress = false;
+               }
                
-               //refresh the UI with the change
-               providerChangeSupport.fireProviderRefresh("allIncidents");
-               //refresh is from thread. Thus we need to call flushDataChangeEvent()
-               AdfmfJavaUtilities.flushDataChangeEvent();
+               if(!allPagesQueried){
+                   _refreshIncidentList(true);
+               }
            }
          };                          
         
-         ExecutorService executor = Executors.newFixedThreadPool(2);
-         executor.execute(McsIcidentDataFetcher);                 
-         executor.shutdown();    
-*/         
-         
-        allIncidents = new ArrayList<Incident>(_getIncidentsFromMcsWithFilter(null, technician, _getCurrentGeoPosition()));
-        
-        //save a copy
-        mIncidentListCache = new ArrayList<Incident>();
-        //create copy of incident array in cache
-        mIncidentListCache.addAll(new ArrayList<Incident>(allIncidents));
-        
-        AppLogger.logFine("Asynchronous fetching of remote data: "+allIncidents.size()+" items found", this.getClass().getSimpleName(), "executeFilteredIncidentsQuery");
-        
-        //refresh the UI with the change
-        providerChangeSupport.fireProviderRefresh("allIncidents");
-        //refresh is from thread. Thus we need to call flushDataChangeEvent()
-        AdfmfJavaUtilities.flushDataChangeEvent();         
+         FiFExecutor.execute("qryIncidentsFromMcsForTechnician", McsIcidentDataFetcher);
     }
     
            
@@ -928,9 +1377,23 @@ public class FiFTechnicianDC{
      * @param contact Name of the incident report contact person
      * @param technician username of the technician
      * @param gps Latitude, Longitude, separated by comma  E.g. 39.355589,-120.652492
-     * @return An array of Incident objects or an empty array
+     * @return An array of Incident objects, an empty array if no query is executed or null if the query failed
      */
     private ArrayList<Incident> _getIncidentsFromMcsWithFilter(String contact, String technician, String gps){
+        return _getIncidentsFromMcsWithFilter(contact, technician, gps, 0, 0);
+    }
+    
+    /**
+     * Queries a page of the allIncidents in MCS by filter of contact (incident reportee) and technician. 
+     *
+     * @param contact Name of the incident report contact person
+     * @param technician username of the technician
+     * @param gps Latitude, Longitude, separated by comma  E.g. 39.355589,-120.652492
+     * @param limit maximum number of incidents to return. 0 queries all incidents
+     * @param offset number of incidents to skip
+     * @return An array of Incident objects, an empty array if no query is executed or null if the query failed
+     */
+    private ArrayList<Incident> _getIncidentsFromMcsWithFilter(String contact, String technician, String gps, int limit, int offset){
         
         if((contact == null || contact.isEmpty()) && (technician == null || technician.isEmpty())){
             throw new AdfException("Contact and Technician name cannot both be empty or null",AdfException.ERROR);
@@ -964,16 +1427,19 @@ public class FiFTechnicianDC{
             }
         }
                  
+        if(limit > 0){
+            queryParams = queryParams+"&limit="+limit+"&offset="+offset;
+        }
+                 
         String fullRequestURI = FIF_CUSTOM_API_INCIDENTS_URI+queryParams;   
         
         
         //request context sets header application/json by default and also 
         //add empty payload
-        RequestContext request = new RequestContext();
+        final RequestContext request = new RequestContext();
         request.setConnectionName(REST_CONNECTION_NAME);
         request.setHttpMethod(RequestContext.HttpMethod.GET);
         request.setRequestURI(fullRequestURI);
-        request.setRetryLimit(2);
         
         HashMap<String, String> httpHeaders = new HashMap<String, String>();
         httpHeaders.put("oracle-mobile-backend-id", this.mFifMobileBackend.getMbeConfiguration().getMobileBackendId());
@@ -981,52 +1447,147 @@ public class FiFTechnicianDC{
 
         request.setHttpHeaders(httpHeaders);
         
-        _incidentList = _getIncidentsFromMCS(request);
+        try {
+            ArrayList<Incident> sharedIncidentList = mIncidentListQueries.execute(fullRequestURI, new Callable<ArrayList<Incident>>() {
+                public ArrayList<Incident> call() {
+                    return _getIncidentsFromMCS(request);
+                }
+            });
+            //the list is shared with concurrent callers of the same query
+            _incidentList = sharedIncidentList == null ? null : new ArrayList<Incident>(sharedIncidentList);
+        } catch (Exception e) {
+            //_getIncidentsFromMCS handles its exceptions
+            AppLogger.logSevereError("Incident query failed with exception: "+e.getMessage(), this.getClass().getSimpleName(), "executeFilteredIncidentsQuery");
+            _incidentList = null;
+        }
         
         return _incidentList;    
     }
 
+    /**
+     * Pushes the incident list to the UI after a page of incidents arrived. A filter selected while the incidents are 
+     * queried is applied to each page, and dropped after the last page
+     * 
+     * @param lastPage true if no more pages are queried
+     */
+    private void _refreshIncidentList(boolean lastPage){
+        IncidentQuery pendingQuery = mPendingIncidentQuery;
+        if(lastPage){
+            mPendingIncidentQuery = null;
+        }
+        
+        //the filter method refreshes the UI
+        if(pendingQuery != null && mIncidentListCache != null){
+            _applyIncidentQuery(pendingQuery);
+        }
+        else{
+            providerChangeSupport.fireProviderRefresh("allIncidents");
+        }
+        //refresh is from thread. Thus we need to call flushDataChangeEvent()
+        AdfmfJavaUtilities.flushDataChangeEvent();
+    }
+
+    /**
+     * Saves the queried incidents as the cache for in memory filtering, indexes them and shows all of them in the list
+     * view. The list must not be changed after this call, as it is shared by the cache and the index. 
+     * Synchronized with _setCachedIncidentStatus(), so a status update is either queued before the pending updates are
+     * applied to the list or patched into the list after it was set
+     * 
+     * @param incidents the incidents queried from MCS or read from the device
+     * @return the new index of the incidents
+     */
+    private synchronized IncidentIndex _setIncidentListCache(ArrayList<Incident> incidents) {
+        //a list queried while status updates are queued still has the old status. The incidents are shared with the 
+        //parsed MCS responses and the detail cache, so they are replaced by copies with the queued status
+        for(IncidentStatusUpdate update : incidents == null ? new ArrayList<IncidentStatusUpdate>() : mIncidentUpdateQueue.getPendingUpdates()){
+            for(int i = 0; i < incidents.size(); i++){
+                Incident incident = incidents.get(i);
+                if(incident.getId() != null && update.getIncidentId().equals(incident.getId().toString()) && 
+                   update.getStatus() != null && !update.getStatus().equals(incident.getStatus())){
+                    incidents.set(i, _copyIncidentWithStatus(incident, update.getStatus()));
+                }
+            }
+        }
+        IncidentIndex incidentIndex = new IncidentIndex(incidents);
+        this.mIncidentListIsPlaceholder = false;
+        //index first, so a filter that sees the new cache also sees its index
+        this.mIncidentIndex = incidentIndex;
+        this.mIncidentListCache = incidentIndex.getAll();
+        this.allIncidents = new ArrayList<Incident>(incidentIndex.getAll());
+        return incidentIndex;
+    }
+
     /**
      * Query incident lists based on the filter definition in the RequestContext object
      * 
      * @param request  Instance of RequestContext
+     * @return An array of Incident objects or null if the query failed, so callers can keep data they already have
      */
     private ArrayList<Incident> _getIncidentsFromMCS(RequestContext request) {
 
         resetDataControlMessages();
         
-        ArrayList<Incident>  incidentList = new ArrayList<Incident>();
+        ArrayList<Incident>  incidentList = null;
 
         
-        AppLogger.logFine("URI for querying incident reports: "+request.getRequestURI(), this.getClass().getSimpleName(), "executeFilteredIncidentsQuery");
+        REST_LOG.fine("_getIncidentsFromMCS", "incident.query", "uri", request.getRequestURI());
 
         try {
-            ResponseContext response = RestClient.sendForStringResponse(request);
+            //send If-None-Match / If-Modified-Since headers if the same URI has been queried before
+            request.setConditionalRequest(true);
+            
+            //the response is read as byte[] and decoded without converting it into a String first
+            ResponseContext response = RestClient.sendForByteResponse(request);
+            
+            //MCS confirmed the data has not changed, but the list parsed from the last query is not available (e.g.
+            //after a logout or when it was removed from the cache). Query again without the conditional headers
+            ArrayList<Incident> lastIncidentQueryResult = null;
+            synchronized(mParsedIncidentResponses){
+                lastIncidentQueryResult = mParsedIncidentResponses.get(request.getRequestURI());
+            }
+            if(response.getResponseStatus() == ResponseContext.STATUS_RESPONSE_NOT_MODIFIED && lastIncidentQueryResult == null){
+                
+                RestClient.forgetValidators(request);
+                response = RestClient.sendForByteResponse(request);
+            }
             
             //its a GET request and we expect http status 200 to indicate success
             if(response.getResponseStatus() == ResponseContext.STATUS_RESPONSE_OK){
                 
-               String jsonResult = (String) response.getResponsePayload();  
-               //parse JSON result into JSONArray
-               Incidents incidentsQueriedFromMCS = (Incidents) JSONBeanSerializationHelper.fromJSON(Incidents.class, jsonResult);
-               //the Incidents class handles the JSONObject to entity conversion
-               incidentList = incidentsQueriedFromMCS.populateIncidentList();
+               //decode the incidents one by one from the response bytes
+               incidentList = IncidentStreamDecoder.decode((byte[]) response.getResponsePayload());
+               
+               synchronized(mParsedIncidentResponses){
+                   mParsedIncidentResponses.put(request.getRequestURI(), incidentList);
+               }
+               mIncidentDetailCache.putAll(incidentList);
                
                 this.setDcMessage("Update Sucessful.");
                 this.setDcHasMessage(true);
                 
             }
+            //http 304: nothing changed on the server. Reuse the incidents parsed from the last query
+            else if(response.getResponseStatus() == ResponseContext.STATUS_RESPONSE_NOT_MODIFIED && lastIncidentQueryResult != null){
+                
+                AppLogger.logFine("Incidents not modified since last query. Reusing cached incident list.", this.getClass().getSimpleName(), "executeFilteredIncidentsQuery");
+                incidentList = new ArrayList<Incident>(lastIncidentQueryResult);
+                mIncidentDetailCache.putAll(incidentList);
+                
+                this.setDcMessage("Update Sucessful.");
+                this.setDcHasMessage(true);
+            }
             else{
+                String errorMessage = response.getResponsePayload() instanceof byte[] ? Utility.bytesToString((byte[]) response.getResponsePayload()) : (String) response.getResponsePayload();
                 AppLogger.logSevereError("REST request succeeded but then failed with error code: "+response.getResponseStatus(), this.getClass().getSimpleName(), "executeFilteredIncidentsQuery");                
-                AppLogger.logSevereError("Error message: "+response.getResponsePayload(), this.getClass().getSimpleName(), "executeFilteredIncidentsQuery");                
-                this.setDcMessage("Request failed with errors:" +response.getResponsePayload());
+                AppLogger.logSevereError("Error message: {}", this.getClass().getSimpleName(), "executeFilteredIncidentsQuery", errorMessage);                
+                this.setDcMessage("Request failed with errors:" +errorMessage);
                 this.setDcHasMessage(true);
                 
             }
             
         } catch (Exception e) {
             AppLogger.logSevereError("REST request failed with exception: "+e.getMessage(), this.getClass().getSimpleName(), "executeFilteredIncidentsQuery");
-            this.setDcMessage("Request failed. Unable to send MCS Service Request");
+            this.setDcMessage(_getRequestFailedMessage(e, "Request failed. Unable to send MCS Service Request"));
             this.setDcHasMessage(true);    
         }        
         return incidentList;
@@ -1048,7 +1609,7 @@ public class FiFTechnicianDC{
         
         supportsGeoLocation = DeviceManagerFactory.getDeviceManager().hasGeolocation();
         
-        FiFLogger.logFine("Is Geo location enabled? : "+supportsGeoLocation , this.getClass().getSimpleName(), "initFromPreferences()");
+        AppLogger.logFine("Is Geo location enabled? : "+supportsGeoLocation , this.getClass().getSimpleName(), "initFromPreferences()");
         
         if(supportsGeoLocation){
             //on simulators you may not be able to access the GEO location. To avoid errors, we simply set a 
@@ -1060,7 +1621,7 @@ public class FiFTechnicianDC{
                 double latitude = location.getLatitude();
                 double longitude = location.getLongitude();
 
-                FiFLogger.logFine("Geo location is /LAT/LONG) : " + Double.toString(latitude) + "," +
+                AppLogger.logFine("Geo location is /LAT/LONG) : " + Double.toString(latitude) + "," +
                                   Double.toString(longitude), this.getClass().getSimpleName(),
                                   "_getCurrentGeoPosition()");
                 return Double.toString(latitude) + "," + Double.toString(longitude);
@@ -1087,8 +1648,9 @@ public class FiFTechnicianDC{
         //deleting the cache list leads to a re-fetch of the 
         //data incident data from MCS
         this.mIncidentListCache = null;
+        this.mIncidentIndex = null;
         
-        //refetch data from MCS
+        //refetch data from MCS. The query runs in the background and refreshes the UI again when it returns
         this.getAllIncidents();
         
         //refresh UI
@@ -1100,8 +1662,38 @@ public class FiFTechnicianDC{
     
         //deleting the cache list leads to a re-fetch of the 
         //data incident data from MCS
-        this.mIncidentListCache = null;   
+        this.mIncidentListCache = null;
+        this.mIncidentIndex = null;   
         this.allIncidents = null;
+        synchronized(mParsedIncidentResponses){
+            mParsedIncidentResponses.clear();
+        }
+        mIncidentDetailCache.clear();
+    }
+    
+    /**
+     * Removes an incident from the incident detail cache, e.g. when a push notification reports a change of the incident.
+     * The next call to querySingleIncidentById or getCurrentIncident then queries the incident from MCS
+     * @param incidentId
+     */
+    public void invalidateCachedIncident(String incidentId){
+        mIncidentDetailCache.invalidate(incidentId);
+    }
+
+    /**
+     * Requests to an MCS endpoint that keeps failing are stopped by the RestClient for a while. Tell the user that
+     * instead of a generic error, so they know retrying right away does not help.
+     *
+     * @param e exception thrown by the RestClient
+     * @param defaultMessage message for all other exceptions
+     * @return message to display
+     */
+    private String _getRequestFailedMessage(Exception e, String defaultMessage){
+        if(e instanceof CircuitOpenException){
+            long seconds = Math.max(1, (((CircuitOpenException) e).getRetryAfterMillis() + 999) / 1000);
+            return "MCS is not responding. Requests are paused for "+seconds+" seconds.";
+        }
+        return defaultMessage;
     }
 
     public void resetDataControlMessages(){
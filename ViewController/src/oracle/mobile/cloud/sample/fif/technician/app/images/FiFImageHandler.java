@@ -3,7 +3,7 @@ package oracle.mobile.cloud.sample.fif.technician.app.images;
 import java.util.Base64;
 import java.util.HashMap;
 
-import oracle.mobile.cloud.sample.fif.technician.mcs.log.FiFLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.AppLogger;
 import oracle.mobile.cloud.sample.fif.technician.mcs.mbe.FiFMobileBackend;
 import oracle.mobile.cloud.sample.fif.technician.maf.RequestContext;
 import oracle.mobile.cloud.sample.fif.technician.maf.ResponseContext;
@@ -26,7 +26,7 @@ public class FiFImageHandler {
 
 
     public static String getImage(String incidentImageURL, FiFMobileBackend mbe) {
-        FiFLogger.logFine("Getting image for remoteURL " + incidentImageURL, "Storage", "getImage");
+        AppLogger.logFine("Getting image for remoteURL " + incidentImageURL, "Storage", "getImage");
         
         if (incidentImageURL != null && incidentImageURL.length() > 0) {
             //for MAF we need the URI of the string, not the full URL. To achieve this, we decompose the
@@ -45,7 +45,7 @@ public class FiFImageHandler {
                 objectURI += userQueryString;
             }
 
-            FiFLogger.logFine("Image object URI " + objectURI, "Storage", "getImage");
+            AppLogger.logFine("Image object URI " + objectURI, "Storage", "getImage");
 
             //get image from MCS
             RequestContext request = new RequestContext();
@@ -74,12 +74,12 @@ public class FiFImageHandler {
                 }
 
             } catch (Exception e) {
-                FiFLogger.logFine("Exception occured in call to REST client: " + e.getMessage(), "Storage", "getImage");
+                AppLogger.logFine("Exception occured in call to REST client: " + e.getMessage(), "Storage", "getImage");
                 return FiFImageHandler.NO_IMAGE_AVAILABLE;
             }
 
         } else {
-            FiFLogger.logFine("Invalid remote image URL " + incidentImageURL, "Storage", "getImage");
+            AppLogger.logFine("Invalid remote image URL " + incidentImageURL, "Storage", "getImage");
             return FiFImageHandler.NO_IMAGE_AVAILABLE;
 
         }
@@ -1,21 +1,15 @@
 package oracle.mobile.cloud.sample.fif.technician.app.log;
 
-import java.text.SimpleDateFormat;
-
-import java.util.Date;
 import java.util.logging.Level;
 
-import oracle.adfmf.util.Utility;
-
 /**
+ * Writes plain text messages as component APP through the ComponentLogger. Use a ComponentLogger for new code.
  *
  * @author   Frank Nimphius
- * @coyright Oracle Corporation, 2015
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
  */
 public class AppLogger {
     
-    private static final String LOG_TAG = "FixItFast Technician: ";
-    
     private AppLogger() {}    
     
     /**
@@ -23,20 +17,14 @@ public class AppLogger {
      * configuration information, to assist in debugging problems
      */
     public static void logConfig(String message, String className, String methodName){
-        SimpleDateFormat dt1 = new SimpleDateFormat("yyyyy-MM-dd hh:mm:ss");
-        if(Utility.ApplicationLogger.isLoggable(Level.CONFIG) || Utility.ApplicationLogger.isLoggable(Level.FINE)){
-            Utility.ApplicationLogger.logp(Level.CONFIG,className, methodName,dt1.format(new Date())+": "+message);
-        }
+        ComponentLogger.logMessage(LogComponent.APP, Level.CONFIG, className, methodName, message);
     }
     
     /**
      * FINE is a message level providing tracing information.
      */
     public static void logFine(String message, String className, String methodName){
-        SimpleDateFormat dt1 = new SimpleDateFormat("yyyyy-MM-dd hh:mm:ss");
-        if(Utility.ApplicationLogger.isLoggable(Level.FINE)){
-          Utility.ApplicationLogger.logp(Level.FINE,LOG_TAG+className, methodName,dt1.format(new Date())+": "+message);
-        }
+        ComponentLogger.logMessage(LogComponent.APP, Level.FINE, className, methodName, message);
     }
     
     /**
@@ -44,20 +32,14 @@ public class AppLogger {
      * of importance and will prevent normal program execution.
      */
     public static void logSevereError(String message, String className, String methodName){
-        SimpleDateFormat dt1 = new SimpleDateFormat("yyyyy-MM-dd hh:mm:ss");
-            if(Utility.ApplicationLogger.isLoggable(Level.SEVERE) || Utility.ApplicationLogger.isLoggable(Level.FINE)){
-           Utility.ApplicationLogger.logp(Level.SEVERE,LOG_TAG+className, methodName, dt1.format(new Date())+": "+message);
-        }
+        ComponentLogger.logMessage(LogComponent.APP, Level.SEVERE, className, methodName, message);
     }
     /**
      * Indicating a potential problem. Describes event that will
      * be of interest to end users or system managers
      */
     public static void logWarning(String message, String className, String methodName){
-        SimpleDateFormat dt1 = new SimpleDateFormat("yyyyy-MM-dd hh:mm:ss");
-            if(Utility.ApplicationLogger.isLoggable(Level.WARNING) || Utility.ApplicationLogger.isLoggable(Level.FINE)){
-          Utility.ApplicationLogger.logp(Level.WARNING,LOG_TAG+className, methodName, dt1.format(new Date())+": "+message);
-        }
+        ComponentLogger.logMessage(LogComponent.APP, Level.WARNING, className, methodName, message);
     }
     
     /**
@@ -66,9 +48,66 @@ public class AppLogger {
      * make sense to end users and system administrators.
      */
     public static void logInfo(String message, String className, String methodName){
-        SimpleDateFormat dt1 = new SimpleDateFormat("yyyyy-MM-dd hh:mm:ss");
-            if(Utility.ApplicationLogger.isLoggable(Level.INFO) || Utility.ApplicationLogger.isLoggable(Level.FINE)){
-          Utility.ApplicationLogger.logp(Level.INFO,LOG_TAG+className, methodName, dt1.format(new Date())+": "+message);
+        ComponentLogger.logMessage(LogComponent.APP, Level.INFO, className, methodName, message);
+    }
+
+    /**
+     * @return true if FINE messages are written. Use to guard log statements that need more than the message 
+     * template arguments, e.g. a loop over a list
+     */
+    public static boolean isFineLoggable(){
+        return ComponentLogger.isLoggable(LogComponent.APP, Level.FINE);
+    }
+    
+    /**
+     * FINE message with a message template. The message is only formatted if FINE is enabled
+     * @param messageTemplate message with "{}" placeholders for the arguments
+     */
+    public static void logFine(String messageTemplate, String className, String methodName, Object argument){
+        if(ComponentLogger.isLoggable(LogComponent.APP, Level.FINE)){
+            logFine(LogMessageTemplate.format(messageTemplate, argument), className, methodName);
+        }
+    }
+    
+    public static void logFine(String messageTemplate, String className, String methodName, Object argument1, Object argument2){
+        if(ComponentLogger.isLoggable(LogComponent.APP, Level.FINE)){
+            logFine(LogMessageTemplate.format(messageTemplate, argument1, argument2), className, methodName);
+        }
+    }
+    
+    public static void logFine(String messageTemplate, String className, String methodName, Object... arguments){
+        if(ComponentLogger.isLoggable(LogComponent.APP, Level.FINE)){
+            logFine(LogMessageTemplate.format(messageTemplate, arguments), className, methodName);
+        }
+    }
+    
+    /**
+     * SEVERE message with a message template. The message is only formatted if the level is enabled
+     * @param messageTemplate message with "{}" placeholders for the arguments
+     */
+    public static void logSevereError(String messageTemplate, String className, String methodName, Object... arguments){
+        if(ComponentLogger.isLoggable(LogComponent.APP, Level.SEVERE)){
+            logSevereError(LogMessageTemplate.format(messageTemplate, arguments), className, methodName);
+        }
+    }
+    
+    /**
+     * WARNING message with a message template. The message is only formatted if the level is enabled
+     * @param messageTemplate message with "{}" placeholders for the arguments
+     */
+    public static void logWarning(String messageTemplate, String className, String methodName, Object... arguments){
+        if(ComponentLogger.isLoggable(LogComponent.APP, Level.WARNING)){
+            logWarning(LogMessageTemplate.format(messageTemplate, arguments), className, methodName);
+        }
+    }
+    
+    /**
+     * INFO message with a message template. The message is only formatted if the level is enabled
+     * @param messageTemplate message with "{}" placeholders for the arguments
+     */
+    public static void logInfo(String messageTemplate, String className, String methodName, Object... arguments){
+        if(ComponentLogger.isLoggable(LogComponent.APP, Level.INFO)){
+            logInfo(LogMessageTemplate.format(messageTemplate, arguments), className, methodName);
         }
     }
 }
@@ -0,0 +1,258 @@
+package oracle.mobile.cloud.sample.fif.technician.app.log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+import oracle.adfmf.util.Utility;
+
+/**
+ * Writes the log records of AppLogger and ComponentLogger. In asynchronous mode (the default) the loggers only put the
+ * record into a bounded ring buffer. A background writer thread takes the records out in batches and writes them to
+ * Utility.ApplicationLogger, so that the UI thread and REST calls do not wait for the device log.
+ *
+ * The log message, including its timestamp, is created by the logger on the calling thread. Records are written in
+ * the order they were added to the buffer.
+ *
+ * Question 1: What happens if the buffer is full?
+ * Answer   1: This depends on the overflow policy. With WRITE_ON_CALLER (the default) the calling thread writes the
+ *             oldest buffered records itself until there is room for its record, so logging slows down the caller
+ *             instead of losing records or writing them out of order. With DROP the record is discarded and counted.
+ *
+ * Question 2: How do I make sure all records are written, e.g. before reading the device log?
+ * Answer   2: Call flush(). Switching to synchronous mode with setAsynchronous(false) flushes the buffer as well. A
+ *             SEVERE record flushes the buffer on the calling thread, as the application may not survive the error.
+ *             The feature life cycle listener flushes the buffer when the feature is deactivated.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public final class AsyncLogSink {
+
+    /**
+     * What to do with a record if the buffer is full
+     */
+    public enum OverflowPolicy {
+        //discard the record
+        DROP,
+        //the calling thread writes the oldest buffered records until there is room for the record
+        WRITE_ON_CALLER
+    }
+
+    private static final String WRITER_THREAD_NAME = "FiF-LogWriter";
+
+    private static final int BUFFER_CAPACITY = 1024;
+    private static final int BATCH_SIZE = 64;
+    //time the writer waits for more records before it writes a partial batch
+    private static final long WRITE_INTERVAL_MILLIS = 250;
+
+    private static final LogRingBuffer buffer = new LogRingBuffer(BUFFER_CAPACITY);
+    //taking records out of the buffer is limited to one thread at a time
+    private static final Object consumerLock = new Object();
+
+    private static volatile boolean asynchronous = true;
+    private static volatile OverflowPolicy overflowPolicy = OverflowPolicy.WRITE_ON_CALLER;
+    private static volatile Thread writerThread = null;
+
+    private static final AtomicLong writtenCount = new AtomicLong();
+    private static final AtomicLong droppedCount = new AtomicLong();
+    private static final AtomicLong callerWrittenCount = new AtomicLong();
+    private static final AtomicLong batchCount = new AtomicLong();
+
+    private AsyncLogSink() {
+    }
+
+    /**
+     * Writes or buffers a log record
+     * @param level log level
+     * @param sourceClass
+     * @param sourceMethod
+     * @param message the complete log message
+     */
+    public static void write(Level level, String sourceClass, String sourceMethod, String message) {
+        if (!asynchronous) {
+            writeRecord(level, sourceClass, sourceMethod, message);
+            return;
+        }
+
+        LogRecord record = new LogRecord(level, sourceClass, sourceMethod, message);
+        if (!buffer.offer(record)) {
+            if (overflowPolicy == OverflowPolicy.DROP) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+            //backpressure: the caller makes room by writing the oldest records. The record itself always goes through
+            //the buffer, so it is not written before records that were added earlier
+            synchronized (consumerLock) {
+                while (!buffer.offer(record)) {
+                    //other threads filled the buffer again
+                    callerWrittenCount.addAndGet(drainBatch());
+                }
+            }
+        }
+
+        if (level.intValue() >= Level.SEVERE.intValue()) {
+            flush();
+            return;
+        }
+
+        Thread writer = writerThread;
+        if (writer == null) {
+            startWriter();
+        } else if (buffer.size() >= BATCH_SIZE || level.intValue() >= Level.WARNING.intValue()) {
+            //a full batch is waiting or the record is important: don't wait for the write interval
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Writes all buffered records on the calling thread
+     */
+    public static void flush() {
+        synchronized (consumerLock) {
+            while (drainBatch() > 0) {
+                //continue until the buffer is empty
+            }
+        }
+    }
+
+    /**
+     * @param asynchronous false to write records on the calling thread. Buffered records are written first
+     */
+    public static void setAsynchronous(boolean asynchronous) {
+        AsyncLogSink.asynchronous = asynchronous;
+        if (!asynchronous) {
+            flush();
+        }
+    }
+
+    public static boolean isAsynchronous() {
+        return asynchronous;
+    }
+
+    public static void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("'overflowPolicy' cannot be null");
+        }
+        AsyncLogSink.overflowPolicy = overflowPolicy;
+    }
+
+    public static OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * @return number of records written to the application log, including records written by the calling thread
+     */
+    public static long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * @return number of records discarded because the buffer was full and the overflow policy is DROP
+     */
+    public static long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return number of buffered records the calling threads had to write because the buffer was full
+     */
+    public static long getCallerWrittenCount() {
+        return callerWrittenCount.get();
+    }
+
+    /**
+     * @return number of records waiting in the buffer
+     */
+    public static int getBufferedCount() {
+        return buffer.size();
+    }
+
+    /**
+     * Flattens the sink counters into a String for logging
+     * @return String of key/value pairs
+     */
+    public static String dumpStatistics() {
+        return "[asynchronous:" + asynchronous + ";policy:" + overflowPolicy + ";capacity:" + buffer.capacity() +
+               ";buffered:" + getBufferedCount() + ";written:" + getWrittenCount() + ";dropped:" + getDroppedCount() +
+               ";callerWritten:" + getCallerWrittenCount() + ";batches:" + batchCount.get() + "]";
+    }
+
+    /**
+     * Takes up to BATCH_SIZE records out of the buffer and writes them. Callers must hold the consumer lock
+     * @return number of records written
+     */
+    private static int drainBatch() {
+        int written = 0;
+        LogRecord record;
+        while (written < BATCH_SIZE && (record = buffer.poll()) != null) {
+            writeRecord(record.level, record.sourceClass, record.sourceMethod, record.message);
+            written++;
+        }
+        if (written > 0) {
+            batchCount.incrementAndGet();
+        }
+        return written;
+    }
+
+    private static void writeRecord(Level level, String sourceClass, String sourceMethod, String message) {
+        Utility.ApplicationLogger.logp(level, sourceClass, sourceMethod, message);
+        writtenCount.incrementAndGet();
+    }
+
+    private static synchronized void startWriter() {
+        if (writerThread == null) {
+            Thread thread = new Thread(new Writer(), WRITER_THREAD_NAME);
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            writerThread = thread;
+            thread.start();
+        }
+    }
+
+
+    /**
+     * Background thread that writes the buffered records in batches
+     */
+    private static class Writer implements Runnable {
+
+        @Override
+        public void run() {
+            long writeInterval = TimeUnit.MILLISECONDS.toNanos(WRITE_INTERVAL_MILLIS);
+            while (true) {
+                int written;
+                try {
+                    synchronized (consumerLock) {
+                        written = drainBatch();
+                    }
+                } catch (RuntimeException e) {
+                    //a failing log handler must not stop the writer. The record is lost
+                    written = 0;
+                }
+                if (written < BATCH_SIZE) {
+                    LockSupport.parkNanos(writeInterval);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Log message waiting in the buffer
+     */
+    static final class LogRecord {
+
+        final Level level;
+        final String sourceClass;
+        final String sourceMethod;
+        final String message;
+
+        LogRecord(Level level, String sourceClass, String sourceMethod, String message) {
+            this.level = level;
+            this.sourceClass = sourceClass;
+            this.sourceMethod = sourceMethod;
+            this.message = message;
+        }
+    }
+}
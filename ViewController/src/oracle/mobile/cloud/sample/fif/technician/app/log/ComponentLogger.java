@@ -0,0 +1,267 @@
+package oracle.mobile.cloud.sample.fif.technician.app.log;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import oracle.adfmf.framework.api.AdfmfJavaUtilities;
+import oracle.adfmf.util.Utility;
+
+import oracle.mobile.cloud.sample.fif.technician.utils.DateUtil;
+
+/**
+ * Logging facade of the application. Each log record belongs to a component (REST, analytics, push, parsing or the
+ * application in general) and consists of an event name and key/value pairs, e.g.
+ *
+ * private static final ComponentLogger LOG = ComponentLogger.getLogger(LogComponent.REST, "RestClient");
+ * ...
+ * LOG.fine("send", "rest.response", "uri", uri, "status", status, "durationMs", duration);
+ *
+ * is written as
+ *
+ * 2015-03-27 02:13:01: [REST] rest.response uri=/mobile/custom/incident/incidents status=200 durationMs=312
+ *
+ * The values are only converted to String if the level is enabled for the component.
+ *
+ * Question 1: How are the log levels determined?
+ * Answer   1: Each component uses the level of the application logger (logging.properties) unless a level is set for
+ *             the component, either with setLevel() or in the "Logging" preferences of the application. To turn on
+ *             FINE for the REST calls only, set the REST level to FINE and leave the other components at "Default".
+ *             The application logger level is lowered as needed so that it does not filter records the components
+ *             want to write. The filtering is then done by this class.
+ *
+ * Question 2: What about AppLogger?
+ * Answer   2: AppLogger delegates to this class and logs as component APP. It is kept for the existing code, new code
+ *             should use a ComponentLogger. The deprecated FiFLogger delegates to AppLogger.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public final class ComponentLogger {
+
+    private static final String LOG_TAG = "FixItFast Technician: ";
+    private static final String PREFERENCE_EL_PREFIX = "#{preferenceScope.application.logging.";
+    private static final String DEFAULT_LEVEL = "DEFAULT";
+
+    //level of the application logger before any component level was set
+    private static final Level originalLoggerLevel = Utility.ApplicationLogger.getLevel();
+    private static final Level baseLevel = getEffectiveLevel(Utility.ApplicationLogger);
+
+    //level per component, indexed by ordinal. Null means the component uses the base level
+    private static final AtomicReferenceArray<Level> componentLevels =
+        new AtomicReferenceArray<Level>(LogComponent.values().length);
+
+    private final LogComponent component;
+    private final String source;
+
+    private ComponentLogger(LogComponent component, String source) {
+        this.component = component;
+        this.source = source;
+    }
+
+    /**
+     * @param component the component the records belong to
+     * @param source name of the logging class
+     * @return logger for the component
+     */
+    public static ComponentLogger getLogger(LogComponent component, String source) {
+        if (component == null) {
+            throw new IllegalArgumentException("'component' cannot be null");
+        }
+        return new ComponentLogger(component, source);
+    }
+
+    public LogComponent getComponent() {
+        return component;
+    }
+
+    public boolean isLoggable(Level level) {
+        return isLoggable(component, level);
+    }
+
+    /**
+     * @return true if FINE records are written. Use to guard log statements that need more than key/value arguments
+     */
+    public boolean isFineLoggable() {
+        return isLoggable(component, Level.FINE);
+    }
+
+    /**
+     * Writes a record if the level is enabled for the component
+     * @param level
+     * @param methodName name of the logging method
+     * @param event short name of what happened, e.g. "rest.response"
+     * @param keyValues alternating keys and values
+     */
+    public void log(Level level, String methodName, String event, Object... keyValues) {
+        if (isLoggable(component, level)) {
+            writeRecord(component, level, source, methodName, formatRecord(event, keyValues));
+        }
+    }
+
+    public void fine(String methodName, String event, Object... keyValues) {
+        log(Level.FINE, methodName, event, keyValues);
+    }
+
+    public void config(String methodName, String event, Object... keyValues) {
+        log(Level.CONFIG, methodName, event, keyValues);
+    }
+
+    public void info(String methodName, String event, Object... keyValues) {
+        log(Level.INFO, methodName, event, keyValues);
+    }
+
+    public void warning(String methodName, String event, Object... keyValues) {
+        log(Level.WARNING, methodName, event, keyValues);
+    }
+
+    public void severe(String methodName, String event, Object... keyValues) {
+        log(Level.SEVERE, methodName, event, keyValues);
+    }
+
+    /**
+     * @param component
+     * @param level
+     * @return true if records of the level are written for the component
+     */
+    public static boolean isLoggable(LogComponent component, Level level) {
+        Level threshold = getLevel(component);
+        return level.intValue() >= threshold.intValue() && threshold.intValue() != Level.OFF.intValue();
+    }
+
+    /**
+     * Writes a plain text message. Used by AppLogger
+     * @param component
+     * @param level
+     * @param source name of the logging class
+     * @param methodName name of the logging method
+     * @param message
+     */
+    public static void logMessage(LogComponent component, Level level, String source, String methodName,
+                                  String message) {
+        if (isLoggable(component, level)) {
+            writeRecord(component, level, source, methodName, message);
+        }
+    }
+
+    /**
+     * @param component
+     * @return the level set for the component or the level of the application logger
+     */
+    public static Level getLevel(LogComponent component) {
+        Level level = componentLevels.get(component.ordinal());
+        return level != null ? level : baseLevel;
+    }
+
+    /**
+     * @param component
+     * @param level level for the component or null to use the level of the application logger
+     */
+    public static synchronized void setLevel(LogComponent component, Level level) {
+        componentLevels.set(component.ordinal(), level);
+
+        Level lowest = baseLevel;
+        for (int i = 0; i < componentLevels.length(); i++) {
+            Level componentLevel = componentLevels.get(i);
+            if (componentLevel != null && componentLevel.intValue() < lowest.intValue()) {
+                lowest = componentLevel;
+            }
+        }
+        //the application logger must let through everything a component wants to write
+        Utility.ApplicationLogger.setLevel(lowest == baseLevel ? originalLoggerLevel : lowest);
+    }
+
+    /**
+     * Reads the component levels from the "Logging" preferences of the application. Components set to "Default" use
+     * the level of the application logger
+     */
+    public static void applyPreferences() {
+        for (LogComponent component : LogComponent.values()) {
+            try {
+                Object value = AdfmfJavaUtilities.getELValue(PREFERENCE_EL_PREFIX + component.getPreferenceId() + "}");
+                setLevel(component, parseLevel(value));
+            } catch (RuntimeException e) {
+                //preferences are not available, e.g. outside of a feature. Keep the level
+            }
+        }
+    }
+
+    /**
+     * Flattens the component levels into a String for logging
+     * @return String of key/value pairs
+     */
+    public static String dumpLevels() {
+        StringBuilder levels = new StringBuilder("[");
+        for (LogComponent component : LogComponent.values()) {
+            if (levels.length() > 1) {
+                levels.append(';');
+            }
+            levels.append(component.name()).append(':').append(getLevel(component).getName());
+        }
+        return levels.append(']').toString();
+    }
+
+    private static Level parseLevel(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String name = value.toString().trim().toUpperCase(Locale.ENGLISH);
+        if (name.length() == 0 || DEFAULT_LEVEL.equals(name)) {
+            return null;
+        }
+        try {
+            return Level.parse(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Level getEffectiveLevel(Logger logger) {
+        for (Logger current = logger; current != null; current = current.getParent()) {
+            if (current.getLevel() != null) {
+                return current.getLevel();
+            }
+        }
+        return Level.INFO;
+    }
+
+    private static void writeRecord(LogComponent component, Level level, String source, String methodName,
+                                    String message) {
+        AsyncLogSink.write(level, LOG_TAG + source, methodName,
+                           DateUtil.getLogTimeStamp() + ": [" + component.name() + "] " + message);
+    }
+
+    /**
+     * @return event name followed by key=value pairs. Values with blanks, quotes or '=' are quoted
+     */
+    private static String formatRecord(String event, Object[] keyValues) {
+        StringBuilder record = new StringBuilder(event != null ? event : "");
+        if (keyValues == null) {
+            return record.toString();
+        }
+        for (int i = 0; i < keyValues.length; i += 2) {
+            record.append(' ').append(keyValues[i]);
+            if (i + 1 < keyValues.length) {
+                record.append('=');
+                appendValue(record, keyValues[i + 1]);
+            }
+        }
+        return record.toString();
+    }
+
+    private static void appendValue(StringBuilder record, Object value) {
+        String text = value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : String.valueOf(value);
+        boolean quote = text.isEmpty();
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = Character.isWhitespace(c) || c == '"' || c == '=';
+        }
+        if (quote) {
+            record.append('"').append(text.replace("\"", "\\\"")).append('"');
+        } else {
+            record.append(text);
+        }
+    }
+}
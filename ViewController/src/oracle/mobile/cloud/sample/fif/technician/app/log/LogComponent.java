@@ -0,0 +1,33 @@
+package oracle.mobile.cloud.sample.fif.technician.app.log;
+
+/**
+ * Parts of the application whose log level can be set independently. The level of each component is read from the
+ * "Logging" preferences of the application (see ComponentLogger.applyPreferences()).
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public enum LogComponent {
+    //RestClient and the REST calls issued by the data control
+    REST("restLogLevel"),
+    //MCS analytics events and uploads
+    ANALYTICS("analyticsLogLevel"),
+    //push notification registration and handling
+    PUSH("pushLogLevel"),
+    //conversion of REST payloads into entities
+    PARSING("parsingLogLevel"),
+    //everything else
+    APP("appLogLevel");
+
+    private final String preferenceId;
+
+    private LogComponent(String preferenceId) {
+        this.preferenceId = preferenceId;
+    }
+
+    /**
+     * @return id of the preference in the "logging" preference group that holds the level of the component
+     */
+    public String getPreferenceId() {
+        return preferenceId;
+    }
+}
@@ -0,0 +1,58 @@
+package oracle.mobile.cloud.sample.fif.technician.app.log;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Formats parameterized log messages. Each "{}" in the message template is replaced by the next argument, e.g.
+ *
+ * AppLogger.logFine("REST response: http-{} {}", className, methodName, status, payload)
+ *
+ * The loggers only call this class when the log level is enabled. Call sites that pass the values as arguments,
+ * instead of concatenating the message, thus do no String work for disabled log levels.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public final class LogMessageTemplate {
+
+    private static final String PLACEHOLDER = "{}";
+
+    private LogMessageTemplate() {
+    }
+
+    /**
+     * @param template message with "{}" placeholders
+     * @param arguments values for the placeholders. Arguments without a placeholder are ignored, placeholders without
+     * an argument are printed as they are
+     * @return formatted message
+     */
+    public static String format(String template, Object... arguments) {
+        if (template == null || arguments == null || arguments.length == 0) {
+            return template;
+        }
+
+        StringBuilder message = new StringBuilder(template.length() + 16 * arguments.length);
+        int start = 0;
+        for (Object argument : arguments) {
+            int placeholder = template.indexOf(PLACEHOLDER, start);
+            if (placeholder < 0) {
+                break;
+            }
+            message.append(template, start, placeholder);
+            appendArgument(message, argument);
+            start = placeholder + PLACEHOLDER.length();
+        }
+        message.append(template, start, template.length());
+        return message.toString();
+    }
+
+    /**
+     * REST payloads are byte arrays in many places. They are printed as text rather than as array reference
+     */
+    private static void appendArgument(StringBuilder message, Object argument) {
+        if (argument instanceof byte[]) {
+            message.append(new String((byte[]) argument, StandardCharsets.UTF_8));
+        } else {
+            message.append(argument);
+        }
+    }
+}
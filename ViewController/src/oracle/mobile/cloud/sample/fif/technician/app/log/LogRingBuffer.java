@@ -0,0 +1,98 @@
+package oracle.mobile.cloud.sample.fif.technician.app.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded ring buffer for log records. Any number of threads add records without locking. Records are taken out by
+ * one thread at a time, the AsyncLogSink makes sure of that.
+ *
+ * Each slot has a sequence number that tells producers whether the slot is free for the position they want to write
+ * and tells the consumer whether the slot at its position has been written. Producers claim a position with a single
+ * compare-and-set on the tail counter.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+final class LogRingBuffer {
+
+    private final int mask;
+    private final AtomicReferenceArray<AsyncLogSink.LogRecord> slots;
+    private final AtomicLongArray sequences;
+
+    //next position to write, shared by all producers
+    private final AtomicLong tail = new AtomicLong();
+    //next position to read, only changed by the consumer
+    private volatile long head = 0;
+
+    /**
+     * @param capacity maximum number of records in the buffer, rounded up to the next power of two
+     */
+    LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        slots = new AtomicReferenceArray<AsyncLogSink.LogRecord>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds a record. Safe to call from any thread
+     * @param record
+     * @return false if the buffer is full
+     */
+    boolean offer(AsyncLogSink.LogRecord record) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, record);
+                    //publishes the record to the consumer
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (available < 0) {
+                //the slot still holds a record from the previous round
+                return false;
+            } else {
+                //another producer claimed the position
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest record out of the buffer. Must only be called by one thread at a time
+     * @return the record or null if the buffer is empty
+     */
+    AsyncLogSink.LogRecord poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        AsyncLogSink.LogRecord record = slots.get(index);
+        slots.set(index, null);
+        //frees the slot for the producers of the next round
+        sequences.set(index, position + mask + 1);
+        head = position + 1;
+        return record;
+    }
+
+    /**
+     * @return number of records in the buffer. Only an estimate while records are added or taken out
+     */
+    int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,30 @@
+package oracle.mobile.cloud.sample.fif.technician.flcl;
+
+import oracle.adfmf.feature.LifeCycleListener;
+
+import oracle.mobile.cloud.sample.fif.technician.app.log.AppLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.AsyncLogSink;
+
+/**
+ * Feature life cycle listener of the ServiceRequests feature, registered in maf-feature.xml.
+ *
+ * Question 1: Why does the listener flush the log?
+ * Answer   1: The log records are written by a background thread (see AsyncLogSink). The feature is deactivated when
+ *             the application goes to the background, where the operating system may end it without further notice.
+ *             Writing the buffered records on deactivate makes sure they are in the device log then.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public class FiFFeatureLifeCycleListenerImpl implements LifeCycleListener {
+    public FiFFeatureLifeCycleListenerImpl() {
+    }
+
+    public void activate() {
+        // Add code here...
+    }
+
+    public void deactivate() {
+        AppLogger.logFine("Log sink statistics: {}", this.getClass().getSimpleName(), "deactivate", AsyncLogSink.dumpStatistics());
+        AsyncLogSink.flush();
+    }
+}
@@ -0,0 +1,94 @@
+package oracle.mobile.cloud.sample.fif.technician.maf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import java.util.HashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Body and headers of a request with a byte[] payload as they are written to the connection. Requests marked for
+ * compression get a gzip compressed body and a "Content-Encoding: gzip" header, unless compression would make the
+ * body larger.
+ *
+ * The encoding does not depend on the REST Service Adapter, so the bytes and headers a server receives can be checked
+ * by sending them to a stand-in server.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public final class BinaryPayload {
+
+    public static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    public static final String GZIP_ENCODING = "gzip";
+
+    private final byte[] body;
+    private final HashMap headers;
+    private final int uncompressedLength;
+
+    private BinaryPayload(byte[] body, HashMap headers, int uncompressedLength) {
+        this.body = body;
+        this.headers = headers;
+        this.uncompressedLength = uncompressedLength;
+    }
+
+    /**
+     * @param request request with a byte[] payload
+     * @return the body and headers to send. The headers of the request are not changed
+     * @throws IOException if the payload cannot be compressed
+     */
+    public static BinaryPayload encode(RequestContext request) throws IOException {
+        byte[] payload = (byte[]) request.getPayload();
+        HashMap headers = request.getHttpHeaders();
+        if (request.isCompressPayload()) {
+            byte[] compressedPayload = gzip(payload);
+            //very small payloads get larger with the gzip header and are sent as they are
+            if (compressedPayload.length < payload.length) {
+                headers = headers != null ? new HashMap(headers) : new HashMap();
+                headers.put(CONTENT_ENCODING_HEADER, GZIP_ENCODING);
+                return new BinaryPayload(compressedPayload, headers, payload.length);
+            }
+        }
+        return new BinaryPayload(payload, headers, payload.length);
+    }
+
+    /**
+     * @return bytes to write to the connection
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return request headers including the Content-Encoding header of a compressed body, may be null
+     */
+    public HashMap getHeaders() {
+        return headers;
+    }
+
+    public boolean isCompressed() {
+        return body.length != uncompressedLength;
+    }
+
+    /**
+     * @return size of the payload before compression
+     */
+    public int getUncompressedLength() {
+        return uncompressedLength;
+    }
+
+    /**
+     * @param payload
+     * @return payload compressed in gzip format
+     * @throws IOException
+     */
+    private static byte[] gzip(byte[] payload) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(payload.length / 4 + 64);
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed);
+        try {
+            gzipOutputStream.write(payload);
+        } finally {
+            gzipOutputStream.close();
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,170 @@
+package oracle.mobile.cloud.sample.fif.technician.maf;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stops the RestClient from sending requests to an endpoint that keeps failing. There is one circuit breaker per
+ * connection name and URI template (see RestMetrics.getUriTemplate()).
+ *
+ * CLOSED    - requests are sent. After FAILURE_THRESHOLD consecutive failed calls the circuit opens
+ * OPEN      - requests fail immediately with a CircuitOpenException, without network access. After OPEN_MILLIS the
+ *             circuit becomes half open
+ * HALF_OPEN - a single request is sent as probe, all others fail immediately. If the probe succeeds the circuit
+ *             closes, if it fails the circuit opens again
+ *
+ * A call counts as failure if no response is received or the server responds with a 5xx or 408 status. Client
+ * errors like 401 or 404 are answers of a working server and count as success. A call that the RestClient retries
+ * counts once, with the result of its last attempt.
+ *
+ * The circuits are closed by resetAll() when a user logged in and when the device is online again after it was
+ * offline, as failures before that say nothing about the endpoint.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long OPEN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final ConcurrentHashMap<String, CircuitBreaker> circuitBreakers =
+        new ConcurrentHashMap<String, CircuitBreaker>();
+
+    private static final Circuit CLOSED_CIRCUIT = new Circuit(State.CLOSED, 0);
+
+    private final String endpoint;
+    //state and open time change together, so a thread that sees OPEN also sees the time the circuit opened
+    private final AtomicReference<Circuit> circuit = new AtomicReference<Circuit>(CLOSED_CIRCUIT);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private CircuitBreaker(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * @param request
+     * @return the circuit breaker of the endpoint the request is sent to
+     */
+    static CircuitBreaker forRequest(RequestContext request) {
+        String endpoint = request.getConnectionName() + " " + RestMetrics.getUriTemplate(request.getRequestURI());
+        CircuitBreaker circuitBreaker = circuitBreakers.get(endpoint);
+        if (circuitBreaker == null) {
+            CircuitBreaker newCircuitBreaker = new CircuitBreaker(endpoint);
+            circuitBreaker = circuitBreakers.putIfAbsent(endpoint, newCircuitBreaker);
+            if (circuitBreaker == null) {
+                circuitBreaker = newCircuitBreaker;
+            }
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * Closes all circuits, e.g. after the network connection is back or the user logged in again
+     */
+    public static void resetAll() {
+        circuitBreakers.clear();
+    }
+
+    /**
+     * @param status HTTP status of the response, 0 if no response was received
+     * @return true if the status indicates that the server or the network is not working
+     */
+    static boolean isFailureStatus(int status) {
+        return status == ResponseContext.STATUS_0 || status == ResponseContext.STATUS_RESPONSE_REQUEST_TIMEOUT ||
+               status >= ResponseContext.STATUS_RESPONSE_INTERNAL_SERVER_ERROR;
+    }
+
+    /**
+     * Called once per call, before the first attempt
+     * @throws CircuitOpenException if the request must not be sent
+     */
+    void acquirePermission() throws CircuitOpenException {
+        Circuit current = circuit.get();
+        if (current.state == State.CLOSED) {
+            return;
+        }
+        if (current.state == State.OPEN && current.getRemainingOpenMillis() == 0 &&
+            circuit.compareAndSet(current, new Circuit(State.HALF_OPEN, current.openedAt))) {
+            //this request is the probe
+            return;
+        }
+        throw new CircuitOpenException(endpoint, current.getRemainingOpenMillis());
+    }
+
+    /**
+     * Called once per call, after the last attempt
+     * @param status HTTP status of the last response, 0 if no response was received
+     */
+    void recordResult(int status) {
+        if (isFailureStatus(status)) {
+            recordFailure();
+        } else {
+            consecutiveFailures.set(0);
+            circuit.set(CLOSED_CIRCUIT);
+        }
+    }
+
+    private void recordFailure() {
+        int failures = consecutiveFailures.incrementAndGet();
+        Circuit current = circuit.get();
+        if (current.state == State.HALF_OPEN || (current.state == State.CLOSED && failures >= FAILURE_THRESHOLD)) {
+            circuit.compareAndSet(current, new Circuit(State.OPEN, System.currentTimeMillis()));
+        }
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public State getState() {
+        return circuit.get().state;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * @return time until an open circuit lets the next probe through, 0 if the circuit is not open or the time is up
+     */
+    public long getRemainingOpenMillis() {
+        return circuit.get().getRemainingOpenMillis();
+    }
+
+    @Override
+    public String toString() {
+        return "[endpoint:" + endpoint + ";state:" + getState() + ";consecutiveFailures:" + getConsecutiveFailures() +
+               ";remainingOpenMs:" + getRemainingOpenMillis() + "]";
+    }
+
+
+    /**
+     * State of the circuit and the time it opened. Immutable, a change replaces the instance
+     */
+    private static final class Circuit {
+
+        final State state;
+        final long openedAt;
+
+        Circuit(State state, long openedAt) {
+            this.state = state;
+            this.openedAt = openedAt;
+        }
+
+        /**
+         * @return time until an open circuit lets the next probe through, 0 if the circuit is not open or the time is up
+         */
+        long getRemainingOpenMillis() {
+            if (state != State.OPEN) {
+                return 0;
+            }
+            return Math.max(0, openedAt + OPEN_MILLIS - System.currentTimeMillis());
+        }
+    }
+}
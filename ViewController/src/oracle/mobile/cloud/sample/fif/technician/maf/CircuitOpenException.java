@@ -0,0 +1,33 @@
+package oracle.mobile.cloud.sample.fif.technician.maf;
+
+/**
+ * Thrown by the RestClient instead of sending a request to an endpoint whose circuit breaker is open. No network
+ * access took place.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public class CircuitOpenException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String endpoint;
+    private final long retryAfterMillis;
+
+    /**
+     * @param endpoint connection name and URI template of the endpoint
+     * @param retryAfterMillis time until the next request is let through as probe
+     */
+    public CircuitOpenException(String endpoint, long retryAfterMillis) {
+        super("Circuit open for " + endpoint + ", retry after " + retryAfterMillis + " ms");
+        this.endpoint = endpoint;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
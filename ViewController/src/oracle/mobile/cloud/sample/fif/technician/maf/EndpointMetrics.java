@@ -0,0 +1,268 @@
+package oracle.mobile.cloud.sample.fif.technician.maf;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Performance counters of a single REST endpoint: number of requests, failures and retries, request and response
+ * bytes, the HTTP status codes returned and a latency histogram. All counters are updated without locking.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public class EndpointMetrics {
+
+    //upper bounds (inclusive) of the latency histogram buckets in milliseconds. The last bucket takes all slower requests
+    private static final long[] LATENCY_BUCKET_BOUNDS = { 100, 250, 500, 1000, 2000, 5000, 10000, 30000 };
+
+    private final String endpoint;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong requestBytes = new AtomicLong();
+    private final AtomicLong responseBytes = new AtomicLong();
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BUCKET_BOUNDS.length + 1);
+    private final ConcurrentHashMap<Integer, AtomicLong> statusCounts = new ConcurrentHashMap<Integer, AtomicLong>();
+
+    EndpointMetrics(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Records a completed request
+     * @param status HTTP status of the response, 0 if no response was received
+     * @param latencyMillis time between sending the request and reading the response
+     * @param sentBytes size of the request payload
+     * @param receivedBytes size of the response payload
+     * @param failed true if the request ended with an exception
+     */
+    void recordRequest(int status, long latencyMillis, long sentBytes, long receivedBytes, boolean failed) {
+        requestCount.incrementAndGet();
+        if (failed) {
+            failureCount.incrementAndGet();
+        }
+        requestBytes.addAndGet(sentBytes);
+        responseBytes.addAndGet(receivedBytes);
+        totalLatencyMillis.addAndGet(latencyMillis);
+
+        long max = maxLatencyMillis.get();
+        while (latencyMillis > max && !maxLatencyMillis.compareAndSet(max, latencyMillis)) {
+            max = maxLatencyMillis.get();
+        }
+
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKET_BOUNDS.length && latencyMillis > LATENCY_BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+        latencyBuckets.incrementAndGet(bucket);
+
+        AtomicLong statusCount = statusCounts.get(status);
+        if (statusCount == null) {
+            AtomicLong newCount = new AtomicLong();
+            statusCount = statusCounts.putIfAbsent(status, newCount);
+            if (statusCount == null) {
+                statusCount = newCount;
+            }
+        }
+        statusCount.incrementAndGet();
+    }
+
+    void recordRetry() {
+        retryCount.incrementAndGet();
+    }
+
+    /**
+     * @return copy of the current counter values
+     */
+    public Snapshot snapshot() {
+        long[] buckets = new long[latencyBuckets.length()];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = latencyBuckets.get(i);
+        }
+        TreeMap<Integer, Long> statuses = new TreeMap<Integer, Long>();
+        for (Map.Entry<Integer, AtomicLong> entry : statusCounts.entrySet()) {
+            statuses.put(entry.getKey(), entry.getValue().get());
+        }
+        return new Snapshot(endpoint, requestCount.get(), failureCount.get(), retryCount.get(), requestBytes.get(),
+                            responseBytes.get(), totalLatencyMillis.get(), maxLatencyMillis.get(), buckets, statuses);
+    }
+
+
+    /**
+     * Counter values of an endpoint at the time the snapshot was taken
+     */
+    public static class Snapshot {
+
+        private final String endpoint;
+        private final long requestCount;
+        private final long failureCount;
+        private final long retryCount;
+        private final long requestBytes;
+        private final long responseBytes;
+        private final long totalLatencyMillis;
+        private final long maxLatencyMillis;
+        private final long[] latencyBuckets;
+        private final Map<Integer, Long> statusCounts;
+
+        Snapshot(String endpoint, long requestCount, long failureCount, long retryCount, long requestBytes,
+                 long responseBytes, long totalLatencyMillis, long maxLatencyMillis, long[] latencyBuckets,
+                 Map<Integer, Long> statusCounts) {
+            this.endpoint = endpoint;
+            this.requestCount = requestCount;
+            this.failureCount = failureCount;
+            this.retryCount = retryCount;
+            this.requestBytes = requestBytes;
+            this.responseBytes = responseBytes;
+            this.totalLatencyMillis = totalLatencyMillis;
+            this.maxLatencyMillis = maxLatencyMillis;
+            this.latencyBuckets = latencyBuckets;
+            this.statusCounts = Collections.unmodifiableMap(statusCounts);
+        }
+
+        /**
+         * @return connection name, HTTP method and URI template of the endpoint, e.g.
+         * "FiFMBE GET /mobile/custom/incident/incidents/{id}"
+         */
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public long getRequestCount() {
+            return requestCount;
+        }
+
+        /**
+         * @return number of requests that ended with an exception
+         */
+        public long getFailureCount() {
+            return failureCount;
+        }
+
+        public long getRetryCount() {
+            return retryCount;
+        }
+
+        public long getRequestBytes() {
+            return requestBytes;
+        }
+
+        public long getResponseBytes() {
+            return responseBytes;
+        }
+
+        public long getMaxLatencyMillis() {
+            return maxLatencyMillis;
+        }
+
+        public long getAverageLatencyMillis() {
+            return requestCount == 0 ? 0 : totalLatencyMillis / requestCount;
+        }
+
+        /**
+         * @param percentile value between 0 and 100, e.g. 95
+         * @return upper bound of the histogram bucket that contains the percentile. For the last bucket, which has no
+         * upper bound, the maximum latency is returned
+         */
+        public long getLatencyPercentileMillis(double percentile) {
+            long total = 0;
+            for (long count : latencyBuckets) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percentile / 100d);
+            long seen = 0;
+            for (int i = 0; i < LATENCY_BUCKET_BOUNDS.length; i++) {
+                seen += latencyBuckets[i];
+                if (seen >= rank) {
+                    return LATENCY_BUCKET_BOUNDS[i];
+                }
+            }
+            return maxLatencyMillis;
+        }
+
+        /**
+         * @return number of requests per latency bucket. The bucket bounds are returned by getLatencyBucketBounds()
+         */
+        public long[] getLatencyBuckets() {
+            return latencyBuckets.clone();
+        }
+
+        public static long[] getLatencyBucketBounds() {
+            return LATENCY_BUCKET_BOUNDS.clone();
+        }
+
+        /**
+         * @return number of responses per HTTP status code. Status 0 counts requests without response
+         */
+        public Map<Integer, Long> getStatusCounts() {
+            return statusCounts;
+        }
+
+        /**
+         * @return the counters as properties of a custom analytics event
+         */
+        public HashMap<String, String> toProperties() {
+            HashMap<String, String> properties = new HashMap<String, String>();
+            properties.put("endpoint", endpoint);
+            properties.put("requests", Long.toString(requestCount));
+            properties.put("failures", Long.toString(failureCount));
+            properties.put("retries", Long.toString(retryCount));
+            properties.put("requestBytes", Long.toString(requestBytes));
+            properties.put("responseBytes", Long.toString(responseBytes));
+            properties.put("avgLatencyMs", Long.toString(getAverageLatencyMillis()));
+            properties.put("p50LatencyMs", Long.toString(getLatencyPercentileMillis(50)));
+            properties.put("p95LatencyMs", Long.toString(getLatencyPercentileMillis(95)));
+            properties.put("maxLatencyMs", Long.toString(maxLatencyMillis));
+            properties.put("latencyHistogram", dumpHistogram());
+            for (Map.Entry<Integer, Long> entry : statusCounts.entrySet()) {
+                properties.put("status" + entry.getKey(), entry.getValue().toString());
+            }
+            return properties;
+        }
+
+        /**
+         * @return histogram as "<=100ms:12;<=250ms:3;...;>30000ms:0"
+         */
+        private String dumpHistogram() {
+            StringBuilder histogram = new StringBuilder();
+            for (int i = 0; i < latencyBuckets.length; i++) {
+                if (i > 0) {
+                    histogram.append(';');
+                }
+                if (i < LATENCY_BUCKET_BOUNDS.length) {
+                    histogram.append("<=").append(LATENCY_BUCKET_BOUNDS[i]);
+                } else {
+                    histogram.append('>').append(LATENCY_BUCKET_BOUNDS[LATENCY_BUCKET_BOUNDS.length - 1]);
+                }
+                histogram.append("ms:").append(latencyBuckets[i]);
+            }
+            return histogram.toString();
+        }
+
+        /**
+         * Flattens the counters into a String for logging
+         * @return String of key/value pairs
+         */
+        @Override
+        public String toString() {
+            return "[endpoint:" + endpoint + ";requests:" + requestCount + ";failures:" + failureCount + ";retries:" +
+                   retryCount + ";requestBytes:" + requestBytes + ";responseBytes:" + responseBytes +
+                   ";avgLatencyMs:" + getAverageLatencyMillis() + ";p95LatencyMs:" + getLatencyPercentileMillis(95) +
+                   ";maxLatencyMs:" + maxLatencyMillis + ";status:" + statusCounts + ";histogram:" + dumpHistogram() +
+                   "]";
+        }
+    }
+}
@@ -58,7 +58,11 @@ public class RequestContext {
     private HttpMethod httpMethod = HttpMethod.GET;
     private HashMap httpHeaders = new HashMap();
 
-    private int retryLimit = 0;
+    private RetryPolicy retryPolicy = null;
+    
+    private boolean conditionalRequest = false;
+
+    private boolean compressPayload = false;
 
     public RequestContext() {
         super();
@@ -122,11 +126,57 @@ public class RequestContext {
         return httpHeaders;
     }
 
+    /**
+     * Number of retries with the backoff of the default retry policy
+     * @param retryLimit
+     * @deprecated use setRetryPolicy
+     */
     public void setRetryLimit(int retryLimit) {
-        this.retryLimit = retryLimit;
+        this.retryPolicy = new RetryPolicy(retryLimit, RetryPolicy.DEFAULT.getInitialBackoffMillis(),
+                                           RetryPolicy.DEFAULT.getMaxBackoffMillis(), false);
     }
 
     public int getRetryLimit() {
-        return retryLimit;
+        return getRetryPolicy().getMaxRetries();
+    }
+
+    /**
+     * Defines if and when the RestClient sends the request again after a transient failure, e.g. a timeout or http 503.
+     * Requests without a retry policy use RetryPolicy.DEFAULT
+     * @param retryPolicy
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy != null ? retryPolicy : RetryPolicy.DEFAULT;
+    }
+
+    /**
+     * GET requests marked as conditional are sent with If-None-Match and If-Modified-Since headers if the RestClient 
+     * has seen an ETag or Last-Modified header for the same connection and URI before. The server then responds with 
+     * http 304 (not modified) and no payload if the resource did not change.
+     * @param conditionalRequest
+     */
+    public void setConditionalRequest(boolean conditionalRequest) {
+        this.conditionalRequest = conditionalRequest;
+    }
+
+    public boolean isConditionalRequest() {
+        return conditionalRequest;
+    }
+
+    /**
+     * byte[] payloads of requests marked for compression are sent gzip compressed with a "Content-Encoding: gzip"
+     * header. Only use this for servers that accept compressed request bodies. String payloads are sent as they are
+     * @param compressPayload
+     */
+    public void setCompressPayload(boolean compressPayload) {
+        this.compressPayload = compressPayload;
+    }
+
+    public boolean isCompressPayload() {
+        return compressPayload;
     }
 }
@@ -73,6 +73,24 @@ public class ResponseContext {
         return responseHeaders;
     }
 
+    /**
+     * Reads a single header of the MCS response. Header names are compared case insensitive
+     * @param headerName name of the header, e.g. ETag
+     * @return the header value or null if the header is not set
+     */
+    public String getResponseHeader(String headerName) {
+        if (responseHeaders == null || headerName == null) {
+            return null;
+        }
+        for (Object key : responseHeaders.keySet()) {
+            if (key != null && headerName.equalsIgnoreCase(key.toString())) {
+                Object value = responseHeaders.get(key);
+                return value == null ? null : value.toString();
+            }
+        }
+        return null;
+    }
+
     public void setResponsePayload(Object response) {
         this.responsePayload = response;
     }
@@ -109,4 +127,18 @@ public class ResponseContext {
     public String getRequestUrl() {
         return requestUrl;
     }
+
+    /**
+     * Copy for callers that share a response. The payload is not copied
+     * @return ResponseContext with the same values and its own header map
+     */
+    ResponseContext copy() {
+        ResponseContext copy = new ResponseContext();
+        copy.setResponseHeaders(responseHeaders == null ? null : new HashMap(responseHeaders));
+        copy.setResponsePayload(responsePayload);
+        copy.setResponseStatus(responseStatus);
+        copy.setResponseContentType(responseContentType);
+        copy.setRequestUrl(requestUrl);
+        return copy;
+    }
 }
@@ -0,0 +1,35 @@
+package oracle.mobile.cloud.sample.fif.technician.maf;
+
+/**
+ * Thrown by the RestClient if the REST Service Adapter failed to send a request or reported the response as error.
+ * The exception has the message of the adapter exception, which is its cause, and the http status of the response.
+ *
+ * Question 1: Where does the status come from?
+ * Answer   1: From the REST Service Adapter if it read a response status before it failed. Otherwise the status is
+ *             read from the exception message, see RestClient.getStatusFromException(). The status is 0 if there was
+ *             no response, e.g. for timeouts and network errors.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public class RestCallException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    /**
+     * @param cause exception thrown by the REST Service Adapter
+     * @param status http status of the response, 0 if there was none
+     */
+    public RestCallException(Exception cause, int status) {
+        super(cause.getMessage(), cause);
+        this.status = status;
+    }
+
+    /**
+     * @return http status of the response, 0 if there was none
+     */
+    public int getStatus() {
+        return status;
+    }
+}
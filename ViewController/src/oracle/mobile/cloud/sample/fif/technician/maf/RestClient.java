@@ -2,9 +2,14 @@ package oracle.mobile.cloud.sample.fif.technician.maf;
 
 import java.io.OutputStream;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.microedition.io.HttpConnection;
 
@@ -12,7 +17,8 @@ import oracle.adfmf.dc.ws.rest.RestServiceAdapter;
 import oracle.adfmf.framework.api.Model;
 import oracle.adfmf.util.Utility;
 
-import oracle.mobile.cloud.sample.fif.technician.mcs.log.FiFLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.ComponentLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.LogComponent;
 
 /**
  *
@@ -22,6 +28,30 @@ import oracle.mobile.cloud.sample.fif.technician.mcs.log.FiFLogger;
  * @copyright Copyright (c) 2015 Oracle. All rights reserved.
  */
 public class RestClient {
+    
+    private static final ComponentLogger LOG = ComponentLogger.getLogger(LogComponent.REST, "RestClient");
+    
+    private static final String ETAG_HEADER = "ETag";
+    private static final String LAST_MODIFIED_HEADER = "Last-Modified";
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE_HEADER = "If-Modified-Since";
+    
+    //http status in an exception message of the REST Service Adapter, e.g. "Response code: 503", "status code 404" or
+    //the MCS error payload "status": 500. Other numbers in a message (host addresses, ports, timeouts) are not matched
+    private static final Pattern EXCEPTION_STATUS_PATTERN =
+        Pattern.compile("(?i)\\b(?:status|code)\"?\\s*[:=]?\\s*([1-5]\\d{2})(?!\\d)");
+    
+    //ETag and Last-Modified values of the last successful response for conditional GET requests. The key 
+    //is built from the connection name, the request URI and the authorization header
+    private static final ConcurrentHashMap<String, String[]> responseValidators = new ConcurrentHashMap<String, String[]>();
+    
+    //GET requests in flight. Identical GET requests wait for the request in flight instead of querying the server again
+    private static final SingleFlight<ResponseContext> inFlightGetRequests = new SingleFlight<ResponseContext>();
+
+    //byte[] payloads sent gzip compressed, with their size before and after compression
+    private static final AtomicLong compressedRequests = new AtomicLong();
+    private static final AtomicLong uncompressedPayloadBytes = new AtomicLong();
+    private static final AtomicLong compressedPayloadBytes = new AtomicLong();
 
     private RestClient() {
     }
@@ -47,28 +77,212 @@ public class RestClient {
 
     /**
      * Sends the REST request to the server for String and byte array payloads. The response type is expected to be 
-     * byte[]
+     * byte[]. Requests that fail with a transient error are sent again as defined by the retry policy of the request.
+     * Requests to an endpoint that keeps failing are not sent at all while its circuit breaker is open.
+     * 
+     * GET requests for the same connection, URI and authorization that are sent while an identical request is in 
+     * flight do not go to the server but share the response of the request in flight. Each caller gets its own copy 
+     * of the ResponseContext, the payload byte[] is shared and must not be modified
      * 
      * @param request RequestContext object with the REST call configuration
      * @return ResponseContext with header information and responsePayload body
+     * @throws CircuitOpenException if the circuit breaker of the endpoint does not let the request through
+     * @throws RestCallException if the request failed, with the http status of the response if there was one
      * @throws Exception Exceptions thrown upon invoking the REST call (could be anything)
      */
-    public static ResponseContext sendForByteResponse(RequestContext request) throws Exception {
+    public static ResponseContext sendForByteResponse(final RequestContext request) throws Exception {
+        
+        if(request.getHttpMethod() != RequestContext.HttpMethod.GET || request.getPayload() instanceof byte[]){
+            return sendWithRetries(request);
+        }
+        
+        //conditional and unconditional requests may get different responses (304 vs. 200) and are not coalesced
+        String key = getValidatorKey(request) + "|" + request.isConditionalRequest();
+        ResponseContext responseContext = inFlightGetRequests.execute(key, new Callable<ResponseContext>() {
+            public ResponseContext call() throws Exception {
+                return sendWithRetries(request);
+            }
+        });
+        return responseContext.copy();
+    }
+
+    /**
+     * @return number of GET requests sent and number of GET requests that shared the response of a request in flight
+     */
+    public static String dumpCoalescingStatistics() {
+        return inFlightGetRequests.toString();
+    }
+
+    /**
+     * @return number of requests sent with a gzip compressed payload and the payload bytes before and after compression
+     */
+    public static String dumpCompressionStatistics() {
+        return "[requests:" + compressedRequests.get() + ";uncompressedBytes:" + uncompressedPayloadBytes.get() +
+               ";compressedBytes:" + compressedPayloadBytes.get() + "]";
+    }
+
+    /**
+     * Sends the request and its retries. The circuit breaker is asked once before the request is sent and gets the 
+     * result of the last attempt, so a call counts as one failure however often it was retried
+     */
+    private static ResponseContext sendWithRetries(RequestContext request) throws Exception {
+        RetryPolicy retryPolicy = request.getRetryPolicy();
+        CircuitBreaker circuitBreaker = CircuitBreaker.forRequest(request);
+        try {
+            circuitBreaker.acquirePermission();
+        } catch (CircuitOpenException e) {
+            LOG.info("sendForByteResponse", "rest.circuitOpen", "method", request.getHttpMethod(), "uri",
+                     request.getRequestURI(), "retryAfterMs", e.getRetryAfterMillis());
+            throw e;
+        }
+        int retries = 0;
+        while (true) {
+            LOG.fine("sendForByteResponse", "rest.request", "connection", request.getConnectionName(), "method",
+                     request.getHttpMethod(), "uri", request.getRequestURI(), "conditional",
+                     request.isConditionalRequest(), "retry", retries);
+            long startTime = System.nanoTime();
+            try {
+                ResponseContext responseContext = send(request);
+                long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                Object payload = responseContext.getResponsePayload();
+                int status = responseContext.getResponseStatus();
+                RestMetrics.recordRequest(request, status, duration, payload, false);
+                if (LOG.isFineLoggable()) {
+                    LOG.fine("sendForByteResponse", "rest.response", "method", request.getHttpMethod(), "uri",
+                             request.getRequestURI(), "status", status, "bytes",
+                             payload instanceof byte[] ? ((byte[]) payload).length : -1, "durationMs", duration);
+                }
+                //a retryable status returned as response. If the request is not retried, the caller handles the status
+                if (!retryPolicy.shouldRetry(request.getHttpMethod(), retries, status) ||
+                    !waitForRetry(request, retryPolicy, retries, status)) {
+                    circuitBreaker.recordResult(status);
+                    return responseContext;
+                }
+            } catch (Exception e) {
+                long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                int status = getStatusFromException(e);
+                RestMetrics.recordRequest(request, status, duration, null, true);
+                LOG.warning("sendForByteResponse", "rest.failure", "method", request.getHttpMethod(), "uri",
+                            request.getRequestURI(), "status", status, "durationMs", duration, "error", e.getMessage());
+                if (!retryPolicy.shouldRetry(request.getHttpMethod(), retries, status) ||
+                    !waitForRetry(request, retryPolicy, retries, status)) {
+                    circuitBreaker.recordResult(status);
+                    throw e;
+                }
+            }
+            retries++;
+        }
+    }
+
+    /**
+     * Waits for the backoff time of the retry policy
+     * @return false if the thread was interrupted while waiting. The request is not retried then
+     */
+    private static boolean waitForRetry(RequestContext request, RetryPolicy retryPolicy, int retries, int status) {
+        long backoff = retryPolicy.getBackoffMillis(retries);
+        RestMetrics.recordRetry(request);
+        LOG.info("waitForRetry", "rest.retry", "method", request.getHttpMethod(), "uri", request.getRequestURI(),
+                 "status", status, "retry", retries + 1, "backoffMs", backoff);
+        try {
+            Thread.sleep(backoff);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * The REST Service Adapter reports http errors as exceptions. The RestClient throws them as RestCallException with
+     * the response status of the adapter. For other exceptions, or if the adapter had no status, the status is read
+     * from the exception message. Only a number that follows "status" or "code" is read as status
+     * @param e exception thrown by the RestClient or the REST Service Adapter
+     * @return the http status of the failed call or 0 if there is none, e.g. for timeouts and network errors
+     */
+    public static int getStatusFromException(Exception e) {
+        if (e instanceof RestCallException) {
+            return ((RestCallException) e).getStatus();
+        }
+        String message = e.getMessage();
+        if (message == null) {
+            return ResponseContext.STATUS_0;
+        }
+        Matcher matcher = EXCEPTION_STATUS_PATTERN.matcher(message);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : ResponseContext.STATUS_0;
+    }
+
+    /**
+     * @param restServiceAdapter adapter that sent the request
+     * @param e exception thrown by the adapter
+     * @return exception with the response status of the adapter or, if the adapter has none, the status in the
+     *         exception message
+     */
+    private static RestCallException toRestCallException(RestServiceAdapter restServiceAdapter, Exception e) {
+        if (e instanceof RestCallException) {
+            return (RestCallException) e;
+        }
+        int status = ResponseContext.STATUS_0;
+        try {
+            status = restServiceAdapter.getResponseStatus();
+        } catch (RuntimeException statusException) {
+            //no response read
+        }
+        if (status <= ResponseContext.STATUS_0) {
+            status = getStatusFromException(e);
+        }
+        return new RestCallException(e, status);
+    }
+
+    /**
+     * Sends the request and reads the response
+     * @param request RequestContext object with the REST call configuration
+     * @return ResponseContext with header information and responsePayload body
+     * @throws RestCallException if the REST Service Adapter failed or reported the response status as error
+     * @throws Exception Exceptions thrown upon preparing the REST call
+     */
+    private static ResponseContext send(RequestContext request) throws Exception {
 
         RestServiceAdapter restServiceAdapter = prepareRestServiceAdapter(request);
         ResponseContext responseContext = new ResponseContext();
 
         //response can be either String or byte[]
         if(request.getPayload() == null || request.getPayload() instanceof String){
-            byte[] responseRaw = restServiceAdapter.sendReceive(request.getPayload() == null? "" : (String) request.getPayload());
+            
+            String validatorKey = null;
+            if(request.isConditionalRequest() && request.getHttpMethod() == RequestContext.HttpMethod.GET){
+                validatorKey = getValidatorKey(request);
+                addConditionalHeaders(restServiceAdapter, validatorKey);
+            }
+            
+            byte[] responseRaw = null;
+            int responseStatus = 0;
+            try{
+                responseRaw = restServiceAdapter.sendReceive(request.getPayload() == null? "" : (String) request.getPayload());
+                responseStatus = restServiceAdapter.getResponseStatus();
+            }
+            catch(Exception e){
+                //the REST Service Adapter may report http status codes other than 200 as exceptions (see UploadTask for 
+                //the same problem with http 202). A 304 response to a conditional request is not an error
+                RestCallException restCallException = toRestCallException(restServiceAdapter, e);
+                if(validatorKey != null && restCallException.getStatus() == ResponseContext.STATUS_RESPONSE_NOT_MODIFIED){
+                    responseStatus = ResponseContext.STATUS_RESPONSE_NOT_MODIFIED;
+                }
+                else{
+                    throw restCallException;
+                }
+            }
             
             responseContext.setRequestUrl(restServiceAdapter.getConnectionEndPoint(request.getConnectionName()) +
                                           restServiceAdapter.getRequestURI());
             
             responseContext.setResponsePayload(responseRaw);            
             responseContext.setResponseContentType(restServiceAdapter.getResponseContentType());
-            responseContext.setResponseStatus(restServiceAdapter.getResponseStatus());
+            responseContext.setResponseStatus(responseStatus);
             responseContext.setResponseHeaders(restServiceAdapter.getResponseHeaders());
+            
+            if(validatorKey != null && responseStatus == ResponseContext.STATUS_RESPONSE_OK){
+                saveValidators(validatorKey, responseContext);
+            }
         }
         
         //handle binary payload
@@ -99,14 +313,23 @@ public class RestClient {
         //prepare the response context object to return the outcome of the REST reqest
         ResponseContext responseContext = new ResponseContext();
         
-        HashMap headerProperties = request.getHttpHeaders();
-        HttpConnection httpConnection = restServiceAdapter.getHttpConnection(request.getHttpMethod().toString(), url, headerProperties);  
+        //the body and headers are encoded without the REST Service Adapter, see BinaryPayload
+        BinaryPayload binaryPayload = BinaryPayload.encode(request);
+        byte[] payload = binaryPayload.getBody();
+        if (binaryPayload.isCompressed()) {
+            compressedRequests.incrementAndGet();
+            uncompressedPayloadBytes.addAndGet(binaryPayload.getUncompressedLength());
+            compressedPayloadBytes.addAndGet(payload.length);
+            LOG.fine("handleBinaryRequest", "rest.payload.compressed", "uri", request.getRequestURI(), "bytes",
+                     binaryPayload.getUncompressedLength(), "compressedBytes", payload.length);
+        }
+        HttpConnection httpConnection = restServiceAdapter.getHttpConnection(request.getHttpMethod().toString(), url, binaryPayload.getHeaders());  
         
         OutputStream outputStream = restServiceAdapter.getOutputStream(httpConnection);   
     
         try{      
             if(outputStream != null){
-                outputStream.write((byte[]) request.getPayload());    
+                outputStream.write(payload);
                 
                 //this is an interesting bit. Apparently the RESTServiceAdapter is called again, which in fact it is not. When there is no payload 
                 //to send then the RESTServiceAdapter does not send anything. As the response buffer of the previous call - the http connection ->
@@ -122,14 +345,15 @@ public class RestClient {
             }
             else{
 
-                FiFLogger.logSevereError("Request could not be send to server. No error received.", "RestClient.java", "handleBinaryRequest");
+                LOG.severe("handleBinaryRequest", "rest.noOutputStream", "method", request.getHttpMethod(), "uri",
+                           request.getRequestURI());
             
             }        
         }
         catch(Exception e){
             //rethrow as in this try/catch block we are only 
             //intersted in closing the output stream gracefully
-            throw e;
+            throw toRestCallException(restServiceAdapter, e);
         }
         finally{
             Utility.closeSilently(outputStream);
@@ -139,6 +363,61 @@ public class RestClient {
     }
     
 
+    /**
+     * Removes the ETag and Last-Modified information saved for a conditional request. Callers use this when they no 
+     * longer hold the data of the last response, so the next request is sent unconditionally and returns a payload
+     * @param request RequestContext object of the conditional request
+     */
+    public static void forgetValidators(RequestContext request) {
+        responseValidators.remove(getValidatorKey(request));
+    }
+    
+    /**
+     * Adds If-None-Match and If-Modified-Since headers for resources that have been queried before
+     * @param restServiceAdapter
+     * @param validatorKey
+     */
+    private static void addConditionalHeaders(RestServiceAdapter restServiceAdapter, String validatorKey) {
+        String[] validators = responseValidators.get(validatorKey);
+        if (validators != null) {
+            if (validators[0] != null) {
+                restServiceAdapter.addRequestProperty(IF_NONE_MATCH_HEADER, validators[0]);
+            }
+            if (validators[1] != null) {
+                restServiceAdapter.addRequestProperty(IF_MODIFIED_SINCE_HEADER, validators[1]);
+            }
+        }
+    }
+    
+    /**
+     * Saves the ETag and Last-Modified headers of a successful response for the next conditional request
+     * @param validatorKey
+     * @param responseContext
+     */
+    private static void saveValidators(String validatorKey, ResponseContext responseContext) {
+        String eTag = responseContext.getResponseHeader(ETAG_HEADER);
+        String lastModified = responseContext.getResponseHeader(LAST_MODIFIED_HEADER);
+        if (eTag == null && lastModified == null) {
+            responseValidators.remove(validatorKey);
+        } else {
+            responseValidators.put(validatorKey, new String[] { eTag, lastModified });
+        }
+    }
+    
+    /**
+     * The same URI may return different data for different users. Thus the authorization header is part of the key
+     * @param request
+     * @return key for the validator map
+     */
+    private static String getValidatorKey(RequestContext request) {
+        Object authorization = null;
+        if (request.getHttpHeaders() != null) {
+            authorization = request.getHttpHeaders().get("Authorization");
+        }
+        return request.getConnectionName() + "|" + request.getRequestURI() + "|" +
+               (authorization == null ? 0 : authorization.hashCode());
+    }
+
     /**
      * Creates and configures an instance of RestServiceAdapter with information from the request context
      * @param request
@@ -153,7 +432,8 @@ public class RestClient {
         restServiceAdapter.setConnectionName(request.getConnectionName());
         restServiceAdapter.setRequestType(request.getHttpMethod().toString());
         restServiceAdapter.setRequestURI(request.getRequestURI());
-        restServiceAdapter.setRetryLimit(request.getRetryLimit());
+        //retries are handled by the RestClient with the retry policy of the request
+        restServiceAdapter.setRetryLimit(0);
 
         //set default accept header to application/json. The values are overwritten with the information in the header 
         //map of the request context object
@@ -0,0 +1,194 @@
+package oracle.mobile.cloud.sample.fif.technician.maf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the performance counters of all REST endpoints called through the RestClient. Each endpoint is
+ * identified by connection name, HTTP method and URI template. Path segments that contain digits, like incident ids or
+ * image names, are replaced by "{id}" in the URI template and query strings are removed, so that for example all
+ * incident status updates are counted for "FiFMBE PUT /mobile/custom/incident/incidents/{id}/status".
+ *
+ * Question 1: How do I get the metrics off the device?
+ * Answer   1: When the data control flushes the analytics events, it adds the counters as custom analytics events
+ *             and resets them (FiFTechnicianDC._addRestMetricsToAnalyticEvents()). With analytics disabled it logs
+ *             them with dumpStatistics() instead. snapshot() returns the current counters for other uses.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public final class RestMetrics {
+
+    //endpoints beyond this number are counted as "(other)" so a URI pattern not covered by the template rules
+    //cannot grow the registry without limit
+    private static final int MAX_ENDPOINTS = 64;
+    private static final String OTHER_ENDPOINTS = "(other)";
+    private static final String ID_SEGMENT = "{id}";
+
+    private static final ConcurrentHashMap<String, EndpointMetrics> endpoints =
+        new ConcurrentHashMap<String, EndpointMetrics>();
+
+    private RestMetrics() {
+    }
+
+    /**
+     * Records a completed request
+     * @param request the request sent
+     * @param status HTTP status of the response, 0 if no response was received
+     * @param latencyMillis
+     * @param responsePayload response as String or byte[], may be null
+     * @param failed true if the request ended with an exception
+     */
+    static void recordRequest(RequestContext request, int status, long latencyMillis, Object responsePayload,
+                              boolean failed) {
+        getEndpointMetrics(request).recordRequest(status, latencyMillis, getPayloadSize(request.getPayload()),
+                                                  getPayloadSize(responsePayload), failed);
+    }
+
+    /**
+     * Records that a request is sent again
+     * @param request
+     */
+    static void recordRetry(RequestContext request) {
+        getEndpointMetrics(request).recordRetry();
+    }
+
+    /**
+     * @return counters of all endpoints, sorted by endpoint
+     */
+    public static ArrayList<EndpointMetrics.Snapshot> snapshot() {
+        return snapshot(false);
+    }
+
+    /**
+     * @param reset true to start counting from zero after the snapshot. Requests that complete while the snapshot is
+     * taken may be missing from both, the snapshot and the new counters
+     * @return counters of all endpoints, sorted by endpoint
+     */
+    public static ArrayList<EndpointMetrics.Snapshot> snapshot(boolean reset) {
+        ArrayList<EndpointMetrics.Snapshot> snapshots = new ArrayList<EndpointMetrics.Snapshot>();
+        for (String endpoint : endpoints.keySet()) {
+            EndpointMetrics metrics = reset ? endpoints.remove(endpoint) : endpoints.get(endpoint);
+            if (metrics != null) {
+                snapshots.add(metrics.snapshot());
+            }
+        }
+        Collections.sort(snapshots, new Comparator<EndpointMetrics.Snapshot>() {
+            public int compare(EndpointMetrics.Snapshot snapshot1, EndpointMetrics.Snapshot snapshot2) {
+                return snapshot1.getEndpoint().compareTo(snapshot2.getEndpoint());
+            }
+        });
+        return snapshots;
+    }
+
+    public static void reset() {
+        endpoints.clear();
+    }
+
+    /**
+     * Flattens the counters of all endpoints into a String for logging
+     * @return one line per endpoint
+     */
+    public static String dumpStatistics() {
+        StringBuilder statistics = new StringBuilder();
+        for (EndpointMetrics.Snapshot snapshot : snapshot()) {
+            statistics.append(snapshot).append('\n');
+        }
+        return statistics.toString();
+    }
+
+    private static EndpointMetrics getEndpointMetrics(RequestContext request) {
+        String endpoint = getEndpoint(request);
+        EndpointMetrics metrics = endpoints.get(endpoint);
+        if (metrics == null) {
+            if (endpoints.size() >= MAX_ENDPOINTS) {
+                endpoint = request.getConnectionName() + " " + request.getHttpMethod().name() + " " + OTHER_ENDPOINTS;
+                metrics = endpoints.get(endpoint);
+            }
+            if (metrics == null) {
+                EndpointMetrics newMetrics = new EndpointMetrics(endpoint);
+                metrics = endpoints.putIfAbsent(endpoint, newMetrics);
+                if (metrics == null) {
+                    metrics = newMetrics;
+                }
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * @param request
+     * @return connection name, HTTP method and URI template of the request
+     */
+    static String getEndpoint(RequestContext request) {
+        return request.getConnectionName() + " " + request.getHttpMethod().name() + " " +
+               getUriTemplate(request.getRequestURI());
+    }
+
+    /**
+     * @param uri request URI, e.g. /mobile/custom/incident/incidents/1234/status?x=y
+     * @return URI without query string and with "{id}" for segments that contain digits, e.g.
+     * /mobile/custom/incident/incidents/{id}/status
+     */
+    static String getUriTemplate(String uri) {
+        if (uri == null) {
+            return "";
+        }
+        int query = uri.indexOf('?');
+        String path = query >= 0 ? uri.substring(0, query) : uri;
+
+        StringBuilder template = new StringBuilder(path.length());
+        int start = 0;
+        while (start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            boolean identifier = false;
+            for (int i = start; i < end && !identifier; i++) {
+                identifier = Character.isDigit(path.charAt(i));
+            }
+            if (identifier) {
+                template.append(ID_SEGMENT);
+            } else {
+                template.append(path, start, end);
+            }
+            if (end < path.length()) {
+                template.append('/');
+            }
+            start = end + 1;
+        }
+        return template.toString();
+    }
+
+    /**
+     * @param payload String or byte[]
+     * @return size of the payload in bytes (UTF-8 for Strings)
+     */
+    private static long getPayloadSize(Object payload) {
+        if (payload instanceof byte[]) {
+            return ((byte[]) payload).length;
+        }
+        if (payload instanceof String) {
+            String text = (String) payload;
+            long size = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    size += 1;
+                } else if (c < 0x800) {
+                    size += 2;
+                } else if (Character.isHighSurrogate(c)) {
+                    //the surrogate pair is one 4 byte character
+                    size += 4;
+                    i++;
+                } else {
+                    size += 3;
+                }
+            }
+            return size;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,125 @@
+package oracle.mobile.cloud.sample.fif.technician.maf;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether the RestClient sends a failed request again and how long it waits before. Requests are retried if
+ * they failed with a transient error:
+ *
+ * 0   - no response, e.g. a connection timeout or a lost network connection
+ * 408 - request timeout
+ * 502 - bad gateway
+ * 503 - service unavailable
+ *
+ * The wait time doubles with each retry, starting at the initial backoff and limited by the maximum backoff. A random
+ * part of up to half the wait time (jitter) keeps devices that failed at the same time from retrying at the same time.
+ *
+ * Question 1: Are POST and PATCH requests retried?
+ * Answer   1: Not by default. A request that timed out may have been processed by the server, and sending a POST
+ *             again may e.g. create a second object. GET, PUT and DELETE are idempotent and are always retried. Use
+ *             a policy with retryNonIdempotentRequests = true only if the server detects duplicate requests.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public class RetryPolicy {
+
+    /**
+     * Policy used for requests that do not set their own: two retries, waiting about 250 ms and 500 ms
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(2, 250, 2000, false);
+
+    /**
+     * Sends the request only once
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(0, 0, 0, false);
+
+    private final int maxRetries;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final boolean retryNonIdempotentRequests;
+
+    /**
+     * @param maxRetries number of times a request is sent again after the first attempt failed
+     * @param initialBackoffMillis wait time before the first retry
+     * @param maxBackoffMillis upper limit of the wait time
+     * @param retryNonIdempotentRequests true to retry POST and PATCH requests
+     */
+    public RetryPolicy(int maxRetries, long initialBackoffMillis, long maxBackoffMillis,
+                       boolean retryNonIdempotentRequests) {
+        if (maxRetries < 0 || initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis) {
+            throw new IllegalArgumentException("Invalid retry policy: maxRetries=" + maxRetries +
+                                               ", initialBackoffMillis=" + initialBackoffMillis +
+                                               ", maxBackoffMillis=" + maxBackoffMillis);
+        }
+        this.maxRetries = maxRetries;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.retryNonIdempotentRequests = retryNonIdempotentRequests;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    public boolean isRetryNonIdempotentRequests() {
+        return retryNonIdempotentRequests;
+    }
+
+    /**
+     * @param httpMethod
+     * @param retriesSoFar number of retries already sent for the request
+     * @param status HTTP status of the failed attempt, 0 if no response was received
+     * @return true if the request should be sent again
+     */
+    public boolean shouldRetry(RequestContext.HttpMethod httpMethod, int retriesSoFar, int status) {
+        return retriesSoFar < maxRetries && isRetryableStatus(status) &&
+               (retryNonIdempotentRequests || isIdempotent(httpMethod));
+    }
+
+    /**
+     * @param retriesSoFar number of retries already sent for the request
+     * @return time to wait before the next retry
+     */
+    public long getBackoffMillis(int retriesSoFar) {
+        long backoff = initialBackoffMillis;
+        for (int i = 0; i < retriesSoFar && backoff < maxBackoffMillis; i++) {
+            backoff *= 2;
+        }
+        backoff = Math.min(backoff, maxBackoffMillis);
+        long half = backoff / 2;
+        return half + (half > 0 ? ThreadLocalRandom.current().nextLong(half + 1) : 0);
+    }
+
+    /**
+     * @param status HTTP status, 0 if no response was received
+     * @return true if the error is transient and a retry may succeed
+     */
+    public static boolean isRetryableStatus(int status) {
+        return status == ResponseContext.STATUS_0 || status == ResponseContext.STATUS_RESPONSE_REQUEST_TIMEOUT ||
+               status == ResponseContext.STATUS_RESPONSE_BAD_GATEWAY ||
+               status == ResponseContext.STATUS_RESPONSE_SERVICE_UNAVAILABLE;
+    }
+
+    /**
+     * @param httpMethod
+     * @return true if sending the request twice has the same effect as sending it once
+     */
+    public static boolean isIdempotent(RequestContext.HttpMethod httpMethod) {
+        return httpMethod == RequestContext.HttpMethod.GET || httpMethod == RequestContext.HttpMethod.PUT ||
+               httpMethod == RequestContext.HttpMethod.DELETE;
+    }
+
+    @Override
+    public String toString() {
+        return "[maxRetries:" + maxRetries + ";initialBackoffMs:" + initialBackoffMillis + ";maxBackoffMs:" +
+               maxBackoffMillis + ";retryNonIdempotent:" + retryNonIdempotentRequests + "]";
+    }
+}
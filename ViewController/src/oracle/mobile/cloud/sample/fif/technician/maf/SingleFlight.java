@@ -0,0 +1,89 @@
+package oracle.mobile.cloud.sample.fif.technician.maf;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent calls for the same key into one. The first caller for a key executes the call, callers that
+ * arrive with the same key while the call is in flight wait for it and get the same result or exception. Once the call
+ * completed, the next caller for the key executes it again, so results are not cached.
+ *
+ * Question 1: Why not simply cache the result?
+ * Answer   1: The data control queries incidents again on purpose to show the latest data. Coalescing only saves the
+ *             requests that would have returned the same response anyway, because they were sent at the same time.
+ *
+ * Question 2: Can callers modify the shared result?
+ * Answer   2: No, all callers get the same object. Callers that need to modify it must work on a copy.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public class SingleFlight<V> {
+
+    private final ConcurrentHashMap<String, FutureTask<V>> inFlight = new ConcurrentHashMap<String, FutureTask<V>>();
+
+    private final AtomicLong executedCalls = new AtomicLong();
+    private final AtomicLong sharedCalls = new AtomicLong();
+
+    public SingleFlight() {
+        super();
+    }
+
+    /**
+     * Executes the call in the calling thread, unless a call with the same key is in flight. In this case waits for
+     * that call to complete
+     * @param key identifies calls that return the same result
+     * @param call
+     * @return result of the call
+     * @throws Exception exception thrown by the call
+     */
+    public V execute(String key, Callable<V> call) throws Exception {
+        FutureTask<V> task = new FutureTask<V>(call);
+        FutureTask<V> runningTask = inFlight.putIfAbsent(key, task);
+        if (runningTask == null) {
+            executedCalls.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+        } else {
+            sharedCalls.incrementAndGet();
+            task = runningTask;
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of calls executed
+     */
+    public long getExecutedCalls() {
+        return executedCalls.get();
+    }
+
+    /**
+     * @return number of calls that were not executed but got the result of a call in flight
+     */
+    public long getSharedCalls() {
+        return sharedCalls.get();
+    }
+
+    @Override
+    public String toString() {
+        return "[executed:" + executedCalls.get() + ";shared:" + sharedCalls.get() + ";inFlight:" + inFlight.size() +
+               "]";
+    }
+}
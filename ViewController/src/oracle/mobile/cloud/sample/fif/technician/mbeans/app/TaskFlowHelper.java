@@ -1,9 +1,7 @@
 package oracle.mobile.cloud.sample.fif.technician.mbeans.app;
 
-import java.text.SimpleDateFormat;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 
 import oracle.adfmf.bindings.dbf.AmxBindingContainer;
@@ -13,6 +11,7 @@ import oracle.adfmf.java.beans.PropertyChangeSupport;
 
 import oracle.mobile.cloud.sample.fif.technician.mbeans.security.AuthenticationHandler;
 import oracle.mobile.cloud.sample.fif.technician.mbeans.util.ManagedBeansUtil;
+import oracle.mobile.cloud.sample.fif.technician.utils.DateUtil;
 
 /**
  *
@@ -160,9 +159,7 @@ public class TaskFlowHelper {
         customEventDef.put("action","Query Incidents"); 
         customEventDef.put("source","task flow navigation"); 
         
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
-        Date d = new Date();
-        String timeStamp = sdf.format(d);
+        String timeStamp = DateUtil.getEventTimeStamp();
         
         customEventDef.put("timeStamp",timeStamp);            
         ManagedBeansUtil.addCustomAnalyticEvent("post user validation",customEventDef);
@@ -182,9 +179,7 @@ public class TaskFlowHelper {
         customEventDef.put("action","incident selected"); 
         customEventDef.put("incidentId",selectedIncident); 
         
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
-        Date d = new Date();
-        String timeStamp = sdf.format(d);
+        String timeStamp = DateUtil.getEventTimeStamp();
         
         customEventDef.put("timeStamp",timeStamp);            
         ManagedBeansUtil.addCustomAnalyticEvent("incident",customEventDef);
@@ -203,9 +198,7 @@ public class TaskFlowHelper {
         customEventDef.put("status","loginStatus"); 
         customEventDef.put("action","application login"); 
         
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
-        Date d = new Date();
-        String timeStamp = sdf.format(d);
+        String timeStamp = DateUtil.getEventTimeStamp();
         
         customEventDef.put("timeStamp",timeStamp);            
         ManagedBeansUtil.addCustomAnalyticEvent("login",customEventDef);
@@ -224,9 +217,7 @@ public class TaskFlowHelper {
         customEventDef.put("action","application logout"); 
         customEventDef.put("source","task flow navigation"); 
         
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
-        Date d = new Date();
-        String timeStamp = sdf.format(d);
+        String timeStamp = DateUtil.getEventTimeStamp();
         
         customEventDef.put("timeStamp",timeStamp);            
         ManagedBeansUtil.addCustomAnalyticEvent("view-navigation",customEventDef);
@@ -245,9 +236,7 @@ public class TaskFlowHelper {
         customEventDef.put("action","incident from push"); 
         customEventDef.put("incidentId",incidentId); 
         
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
-        Date d = new Date();
-        String timeStamp = sdf.format(d);
+        String timeStamp = DateUtil.getEventTimeStamp();
         
         customEventDef.put("timeStamp",timeStamp);            
         ManagedBeansUtil.addCustomAnalyticEvent("incident",customEventDef);
@@ -1,11 +1,7 @@
 package oracle.mobile.cloud.sample.fif.technician.mbeans.backing;
 
-import java.text.SimpleDateFormat;
-
-import java.util.Date;
 import java.util.HashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 import oracle.adfmf.framework.api.AdfmfJavaUtilities;
 import oracle.adfmf.java.beans.PropertyChangeListener;
@@ -14,6 +10,8 @@ import oracle.adfmf.java.beans.PropertyChangeSupport;
 import oracle.mobile.cloud.sample.fif.technician.app.log.AppLogger;
 import oracle.mobile.cloud.sample.fif.technician.mbeans.security.AuthenticationHandler;
 import oracle.mobile.cloud.sample.fif.technician.mbeans.util.ManagedBeansUtil;
+import oracle.mobile.cloud.sample.fif.technician.utils.DateUtil;
+import oracle.mobile.cloud.sample.fif.technician.utils.FiFExecutor;
 
 /**
  * Backing bean supporting the SRDetails page with information that otherwis would be hard to get from pure declarative
@@ -66,6 +64,9 @@ public class SRDetailBacking {
     
     String base64EncodedIncidentPhoto = null; 
     
+    //image URI fetched from MCS in the background, null if no image is fetched
+    private final AtomicReference<String> imageFetchURI = new AtomicReference<String>();
+    
     String serverUpdateMsg = SR_DETAIL_NOTE_UPDTATE_EMPTY_MSG;
 
     /**
@@ -92,9 +93,7 @@ public class SRDetailBacking {
         customEventDef.put("action",action); 
         customEventDef.put("selectedDetailView",viewSelection); 
         
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
-        Date d = new Date();
-        String timeStamp = sdf.format(d);
+        String timeStamp = DateUtil.getEventTimeStamp();
         
         customEventDef.put("timeStamp",timeStamp);            
         ManagedBeansUtil.addCustomAnalyticEvent("incident",customEventDef);
@@ -140,28 +139,37 @@ public class SRDetailBacking {
     
             //step 2: Incoke DC method to obtain image from MCS
             if(restURI != null && !restURI.isEmpty()){
-
-/*                
-                //for performance reason, have the image being fetched from MCS within a thread to not block
-                //the rendering of the detail page
-                Runnable ImageFetcher = new Runnable(){
-                     public void run(){                         
-                         //read image from MCS
-                         Object imageStringObject = ManagedBeansUtil.invokeDCSingleStringParameterMethod("getIncidentImageFromMCS", "incidentImageURL", restURI);
-                         if(imageStringObject != null && !((String)imageStringObject).isEmpty() ){
-                             base64EncodedIncidentPhoto = mafBase64ImageStringPrefix+(String)imageStringObject; 
-                         }        
-                     }
-                   };                              
-                   ExecutorService executor = Executors.newFixedThreadPool(2);
-                   executor.execute(ImageFetcher);
-                   executor.shutdown();
-*/
-                 //read image from MCS
-                  Object imageStringObject = ManagedBeansUtil.invokeDCSingleStringParameterMethod("getIncidentImageFromMCS", "incidentImageURL", restURI);
-                  if(imageStringObject != null && !((String)imageStringObject).isEmpty() ){
-                  base64EncodedIncidentPhoto = mafBase64ImageStringPrefix+(String)imageStringObject;  
-                  }
+                
+                //the method is called from the method activity and again when the photo view is selected. No need to
+                //start a second fetch of the same image while the first one is still running. The image of another 
+                //incident is fetched right away
+                String fetchedURI = imageFetchURI.get();
+                if(!restURI.equals(fetchedURI) && imageFetchURI.compareAndSet(fetchedURI, restURI)){
+                    
+                    //for performance reason, have the image being fetched from MCS within a thread to not block
+                    //the rendering of the detail page
+                    Runnable ImageFetcher = new Runnable(){
+                         public void run(){
+                             try{
+                                 //read image from MCS
+                                 Object imageStringObject = ManagedBeansUtil.invokeDCSingleStringParameterMethod("getIncidentImageFromMCS", "incidentImageURL", restURI);
+                                 
+                                 //the user may have navigated to another incident while the image was loading
+                                 String currentRestURI = (String) AdfmfJavaUtilities.evaluateELExpression("#{pageFlowScope.taskFlowHelper.currentIncidentImageLink}");
+                                 if(imageStringObject != null && !((String)imageStringObject).isEmpty() && restURI.equals(currentRestURI)){
+                                     setBase64EncodedIncidentPhoto(mafBase64ImageStringPrefix+(String)imageStringObject);
+                                     //refresh is from thread. Thus we need to call flushDataChangeEvent()
+                                     AdfmfJavaUtilities.flushDataChangeEvent();
+                                 }
+                             }
+                             finally{
+                                 //a fetch of another image may have been started meanwhile
+                                 imageFetchURI.compareAndSet(restURI, null);
+                             }
+                         }
+                       };                              
+                    FiFExecutor.execute("getBase64EncodedIncidentPhoto", ImageFetcher);
+                }
             }
             else{        
             //if you get here then the MAF binding for the SRDetails page does not have a image URI in its remoteImgLink attribute. Instead
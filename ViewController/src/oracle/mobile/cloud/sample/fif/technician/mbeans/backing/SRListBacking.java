@@ -1,5 +1,8 @@
 package oracle.mobile.cloud.sample.fif.technician.mbeans.backing;
 
+import java.util.ArrayList;
+import java.util.Date;
+
 import oracle.adfmf.amx.event.ActionEvent;
 import oracle.adfmf.dc.bean.ConcreteJavaBeanObject;
 import oracle.adfmf.framework.api.AdfmfJavaUtilities;
@@ -22,6 +25,17 @@ public class SRListBacking {
     private static String DEFAULT_FILTER_CRITERIA = "All";
     private String incidentFilterCriteria = DEFAULT_FILTER_CRITERIA;
     
+    //additional criteria for in memory filtering. Empty values don't filter
+    private String incidentPriorityCriteria = null;
+    private String customerNameCriteria = null;
+    private String cityCriteria = null;
+    private String postalCodeCriteria = null;
+    private String titleCriteria = null;
+    private Date createdFromCriteria = null;
+    private Date createdToCriteria = null;
+    private String incidentSortCriteria = null;
+    private boolean incidentSortAscending = true;
+    
     private PropertyChangeSupport propertyChangeSupport = new PropertyChangeSupport(this);
 
     public SRListBacking() {
@@ -43,6 +57,128 @@ public class SRListBacking {
         return incidentFilterCriteria;
     }
 
+    /**
+     * Priority to filter the incident list by: High, Medium, Low. Empty for any priority
+     * @param incidentPriorityCriteria
+     */
+    public void setIncidentPriorityCriteria(String incidentPriorityCriteria) {
+        String oldIncidentPriorityCriteria = this.incidentPriorityCriteria;
+        this.incidentPriorityCriteria = incidentPriorityCriteria;
+        propertyChangeSupport.firePropertyChange("incidentPriorityCriteria", oldIncidentPriorityCriteria, incidentPriorityCriteria);
+    }
+
+    public String getIncidentPriorityCriteria() {
+        return incidentPriorityCriteria;
+    }
+
+    /**
+     * Full or partial customer name to filter the incident list by
+     * @param customerNameCriteria
+     */
+    public void setCustomerNameCriteria(String customerNameCriteria) {
+        String oldCustomerNameCriteria = this.customerNameCriteria;
+        this.customerNameCriteria = customerNameCriteria;
+        propertyChangeSupport.firePropertyChange("customerNameCriteria", oldCustomerNameCriteria, customerNameCriteria);
+    }
+
+    public String getCustomerNameCriteria() {
+        return customerNameCriteria;
+    }
+
+    /**
+     * City to filter the incident list by
+     * @param cityCriteria
+     */
+    public void setCityCriteria(String cityCriteria) {
+        String oldCityCriteria = this.cityCriteria;
+        this.cityCriteria = cityCriteria;
+        propertyChangeSupport.firePropertyChange("cityCriteria", oldCityCriteria, cityCriteria);
+    }
+
+    public String getCityCriteria() {
+        return cityCriteria;
+    }
+
+    /**
+     * Postal code, or its beginning, to filter the incident list by
+     * @param postalCodeCriteria
+     */
+    public void setPostalCodeCriteria(String postalCodeCriteria) {
+        String oldPostalCodeCriteria = this.postalCodeCriteria;
+        this.postalCodeCriteria = postalCodeCriteria;
+        propertyChangeSupport.firePropertyChange("postalCodeCriteria", oldPostalCodeCriteria, postalCodeCriteria);
+    }
+
+    public String getPostalCodeCriteria() {
+        return postalCodeCriteria;
+    }
+
+    /**
+     * Text the incident title must contain
+     * @param titleCriteria
+     */
+    public void setTitleCriteria(String titleCriteria) {
+        String oldTitleCriteria = this.titleCriteria;
+        this.titleCriteria = titleCriteria;
+        propertyChangeSupport.firePropertyChange("titleCriteria", oldTitleCriteria, titleCriteria);
+    }
+
+    public String getTitleCriteria() {
+        return titleCriteria;
+    }
+
+    /**
+     * Earliest creation date of incidents to show
+     * @param createdFromCriteria
+     */
+    public void setCreatedFromCriteria(Date createdFromCriteria) {
+        Date oldCreatedFromCriteria = this.createdFromCriteria;
+        this.createdFromCriteria = createdFromCriteria;
+        propertyChangeSupport.firePropertyChange("createdFromCriteria", oldCreatedFromCriteria, createdFromCriteria);
+    }
+
+    public Date getCreatedFromCriteria() {
+        return createdFromCriteria;
+    }
+
+    /**
+     * Latest creation date of incidents to show
+     * @param createdToCriteria
+     */
+    public void setCreatedToCriteria(Date createdToCriteria) {
+        Date oldCreatedToCriteria = this.createdToCriteria;
+        this.createdToCriteria = createdToCriteria;
+        propertyChangeSupport.firePropertyChange("createdToCriteria", oldCreatedToCriteria, createdToCriteria);
+    }
+
+    public Date getCreatedToCriteria() {
+        return createdToCriteria;
+    }
+
+    /**
+     * Attribute to sort the incident list by: CREATED_ON, PRIORITY, STATUS, CUSTOMER_NAME, CITY, TITLE. Empty to keep the order of the queried list
+     * @param incidentSortCriteria
+     */
+    public void setIncidentSortCriteria(String incidentSortCriteria) {
+        String oldIncidentSortCriteria = this.incidentSortCriteria;
+        this.incidentSortCriteria = incidentSortCriteria;
+        propertyChangeSupport.firePropertyChange("incidentSortCriteria", oldIncidentSortCriteria, incidentSortCriteria);
+    }
+
+    public String getIncidentSortCriteria() {
+        return incidentSortCriteria;
+    }
+
+    public void setIncidentSortAscending(boolean incidentSortAscending) {
+        boolean oldIncidentSortAscending = this.incidentSortAscending;
+        this.incidentSortAscending = incidentSortAscending;
+        propertyChangeSupport.firePropertyChange("incidentSortAscending", oldIncidentSortAscending, incidentSortAscending);
+    }
+
+    public boolean isIncidentSortAscending() {
+        return incidentSortAscending;
+    }
+
     public void addPropertyChangeListener(PropertyChangeListener l) {
         propertyChangeSupport.addPropertyChangeListener(l);
     }
@@ -57,9 +193,32 @@ public class SRListBacking {
      */
     public void invokeFilterList(ActionEvent action) {
 
-        AppLogger.logFine("Invoke Data Control method \"filterIncidentListInMemory\" with argument value :" +
+        AppLogger.logFine("Invoke Data Control method \"queryIncidentListInMemory\" with status filter value :" +
                           incidentFilterCriteria, this.getClass().getSimpleName(), "invokeFilterList");
-        ManagedBeansUtil.invokeDCSingleStringParameterMethod("filterIncidentListInMemory", "filterValue", incidentFilterCriteria);
+        
+        ArrayList<String> paramNames = new ArrayList<String>();
+        ArrayList<Object> paramValues = new ArrayList<Object>();
+        ArrayList<Class> paramTypes = new ArrayList<Class>();
+        
+        addFilterParameter(paramNames, paramValues, paramTypes, "status", incidentFilterCriteria, String.class);
+        addFilterParameter(paramNames, paramValues, paramTypes, "priority", incidentPriorityCriteria, String.class);
+        addFilterParameter(paramNames, paramValues, paramTypes, "customerName", customerNameCriteria, String.class);
+        addFilterParameter(paramNames, paramValues, paramTypes, "city", cityCriteria, String.class);
+        addFilterParameter(paramNames, paramValues, paramTypes, "postalCode", postalCodeCriteria, String.class);
+        addFilterParameter(paramNames, paramValues, paramTypes, "titleText", titleCriteria, String.class);
+        addFilterParameter(paramNames, paramValues, paramTypes, "createdFrom", createdFromCriteria, Date.class);
+        addFilterParameter(paramNames, paramValues, paramTypes, "createdTo", createdToCriteria, Date.class);
+        addFilterParameter(paramNames, paramValues, paramTypes, "sortBy", incidentSortCriteria, String.class);
+        addFilterParameter(paramNames, paramValues, paramTypes, "sortAscending", Boolean.valueOf(incidentSortAscending), Boolean.class);
+        
+        ManagedBeansUtil.invokeOnDataControl("queryIncidentListInMemory", paramNames, paramValues, paramTypes);
+    }
+    
+    private void addFilterParameter(ArrayList<String> paramNames, ArrayList<Object> paramValues, ArrayList<Class> paramTypes,
+                                    String name, Object value, Class type) {
+        paramNames.add(name);
+        paramValues.add(value);
+        paramTypes.add(type);
     }
     
     
@@ -67,6 +226,15 @@ public class SRListBacking {
     public String resetFilterList(){
         //reset to default
         this.setIncidentFilterCriteria(DEFAULT_FILTER_CRITERIA);
+        this.setIncidentPriorityCriteria(null);
+        this.setCustomerNameCriteria(null);
+        this.setCityCriteria(null);
+        this.setPostalCodeCriteria(null);
+        this.setTitleCriteria(null);
+        this.setCreatedFromCriteria(null);
+        this.setCreatedToCriteria(null);
+        this.setIncidentSortCriteria(null);
+        this.setIncidentSortAscending(true);
         return null;
     }
 
@@ -91,6 +259,9 @@ public class SRListBacking {
         //and declarative use
         AdfmfJavaUtilities.setELValue("#{pageFlowScope.taskFlowHelper.currentIncidentId}", incidentId);
         
+        //the incident changed on the server. Make sure it is not read from the incident detail cache
+        ManagedBeansUtil.invokeDCSingleStringParameterMethod("invalidateCachedIncident", "incidentId", incidentId);
+        
         //next. Query MCS for a copy of the new Inident to obtain the imageUrl from. The object returned from the data 
         //control is of instance ConcreteJavaBeanObject. The instance of this object is "Incident", which is the class
         //we are looking for.
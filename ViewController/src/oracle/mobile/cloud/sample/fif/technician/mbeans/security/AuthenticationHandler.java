@@ -258,7 +258,7 @@ public class AuthenticationHandler {
             
             if(response.getResponseStatus() == ResponseContext.STATUS_RESPONSE_OK){
                 
-                AppLogger.logFine("Rest Call succeeded with http-200. RAW Json response string is "+response.getResponsePayload(), this.getClass().getSimpleName(), "performOauthAuthentication");
+                AppLogger.logFine("Rest Call succeeded with http-200. RAW Json response string is {}", this.getClass().getSimpleName(), "performOauthAuthentication", response.getResponsePayload());
                 
                 JSONObject jsonObject = new JSONObject((String)response.getResponsePayload());
                 
@@ -275,7 +275,7 @@ public class AuthenticationHandler {
                  authenticationScuccess = true;
             }
             else{
-                AppLogger.logFine("Rest Call failed with http-"+response.getResponseStatus()+". RAW Json response string is "+response.getResponsePayload(), this.getClass().getSimpleName(), "performAuthentication");                                
+                AppLogger.logFine("Rest Call failed with http-{}. RAW Json response string is {}", this.getClass().getSimpleName(), "performAuthentication", response.getResponseStatus(), response.getResponsePayload());                                
                 setAuthenticationResponseMessage("Login failed. Please verify username and password.");
                 authenticationScuccess = false;
             }
@@ -5,11 +5,13 @@ import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 import oracle.adf.model.datacontrols.device.DeviceManagerFactory;
 import oracle.adf.model.datacontrols.device.Location;
 
-import oracle.mobile.cloud.sample.fif.technician.mcs.log.FiFLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.ComponentLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.LogComponent;
 import oracle.mobile.cloud.sample.fif.technician.mcs.mbe.FiFMBEConfig;
 import oracle.mobile.cloud.sample.fif.technician.mcs.mbe.FiFMobileBackend;
 import oracle.mobile.cloud.sample.fif.technician.utils.MAFUtil;
@@ -29,20 +31,42 @@ import oracle.mobile.cloud.sample.fif.technician.utils.MapUtils;
  * HTTP 400 The request failed because the payload of JSON message is not well-formed, or because an of exception that occurred during processing.
  * HTTP 405 The request failed because it uses a method that is not supported by the resource.
  *
+ * Queued events are written to an EventJournal on the device and are removed from it only after MCS accepted them
+ * with HTTP 202. Events of failed uploads and events left over from a previous application run are sent with the
+ * next flush.
+ *
+ * Events are also flushed automatically in batches when enough events are queued or the oldest event is old enough,
+ * see AnalyticsFlushScheduler.
+ *
+ * Question 1: Is it safe to add events from different threads?
+ * Answer   1: Yes. Events are added from the UI thread and from background threads. They are queued in a lock-free
+ *             EventQueue and producers never wait, not even for a flush in progress. The scheduler thread drains the
+ *             queue into the journal shortly after. Draining, flushing and completing uploads are synchronized, so
+ *             concurrent flushes neither lose nor duplicate events.
+ *
  * @author Frank Nimphius
  * @copyright Copyright (c) 2015 Oracle. All rights reserved.
  */
 public class Analytics {
-    private String LOG_TAG = "Analytics - ";
 
-    private Session mSession = null;
-    private List<Event> mEvents = null;
+    private static final ComponentLogger LOG = ComponentLogger.getLogger(LogComponent.ANALYTICS, "Analytics");
+
+    private final AtomicReference<Session> mSession = new AtomicReference<Session>();
+    //events to be written to the journal
+    private final EventQueue mEvents = new EventQueue();
+    //events created by addEmptyEventToOutgoingQueue. They are written to the journal when flushed, as the caller
+    //adds the properties after the event is queued
+    private final EventQueue mEmptyEvents = new EventQueue();
 
     private double mLongitude = 0;
     private double mLatitude = 0;
     boolean locationServiceEnabledOnDevice = false;
 
     private ExecutorService mExecutorService = null;
+    private EventJournal mEventJournal = null;
+    private AnalyticsFlushScheduler mFlushScheduler = null;
+    //uploads are sent gzip compressed until the server rejects a compressed upload
+    private volatile boolean mCompressUploads = false;
     private FiFMBEConfig fifMBEConfig = null;
     private FiFMobileBackend mobileBackend = null;
 
@@ -51,15 +75,21 @@ public class Analytics {
 
         this.mobileBackend = mbe;
         this.fifMBEConfig = mbe.getMbeConfiguration();
-        //create a list of events
-        this.mEvents = new ArrayList<Event>();
-        
         mExecutorService = Executors.newSingleThreadExecutor();
 
+        try {
+            mEventJournal = EventJournal.createOnDeviceJournal();
+        } catch (Exception e) {
+            //events are kept in memory only
+            LOG.severe("Constructor", "analytics.journal.unavailable", "error", e.getMessage());
+            mEventJournal = new EventJournal(null, EventJournal.DEFAULT_MAX_EVENTS, EventJournal.DEFAULT_MAX_BYTES);
+        }
+        mFlushScheduler = new AnalyticsFlushScheduler(this);
+        //events left over from the previous application run
+        mFlushScheduler.eventsQueued(mEventJournal.getAvailableCount(), mEventJournal.getAvailableBytes());
+
         //get GEO Location if device supports it
-        FiFLogger.logFine(LOG_TAG + "Trying to read GEO Location data", this.getClass().getSimpleName(), "Constructor");
         if (MAFUtil.isGeoLocationAvailable()) {
-            FiFLogger.logFine(LOG_TAG + "GEO Location available", this.getClass().getSimpleName(), "Constructor");
             //allow location information to be up to 10 minutes old
             int maxAllowedAgeofCachedLocationData = 600;
             //position doesn't need to be highly accurate for analytics
@@ -74,8 +104,7 @@ public class Analytics {
               this.mLatitude = location.getLatitude();
               this.mLongitude = location.getLongitude();
                 
-                FiFLogger.logFine(LOG_TAG + "Longitude: " + mLongitude + " Latitude: " + mLatitude,
-                                  this.getClass().getSimpleName(), "Constructor");
+                LOG.fine("Constructor", "analytics.location", "longitude", mLongitude, "latitude", mLatitude);
                 //after successful setting the latitude, set location service enabled flag to true
                 if (this.mLatitude != 0) {
                     locationServiceEnabledOnDevice = true;
@@ -83,8 +112,9 @@ public class Analytics {
             }
             catch (Exception e){
                 
-                FiFLogger.logWarning(LOG_TAG + "GEO Location not available. The application runs on a device (Simulator?) that cannot access the GEO location.", this.getClass().getSimpleName(), "Constructor");
-                FiFLogger.logFine(LOG_TAG + "Setting fixed lat/long value to 39.355589,-120.652492", this.getClass().getSimpleName(), "Constructor");
+                //the application runs on a device (Simulator?) that cannot access the GEO location. A fixed location is used
+                LOG.warning("Constructor", "analytics.location.unavailable", "error", e.getMessage(), "longitude",
+                            -120.652492, "latitude", 39.355589);
                 
                 this.mLatitude = 39.355589; 
                 this.mLongitude = -120.652492;
@@ -93,8 +123,8 @@ public class Analytics {
             }
             
         } else {
-            FiFLogger.logFine(LOG_TAG + "GEO Location data not available. Please check permission.",
-                              this.getClass().getSimpleName(), "Constructor");
+            //please check permission
+            LOG.fine("Constructor", "analytics.location.notPermitted");
         }
 
     }
@@ -103,50 +133,53 @@ public class Analytics {
      * Analytic events are colleted for a session (recording period) and then uploaded to MCS in a batch
      */
     public void startSession() {
-        FiFLogger.logFine(LOG_TAG + "start session", this.getClass().getSimpleName(), "startSession");
-        if (mSession == null) {
-            FiFLogger.logFine(LOG_TAG + "creating new Session object", this.getClass().getSimpleName(), "startSession");
-            mSession = new Session();
-            FiFLogger.logFine(LOG_TAG + "new session created; Session ID:" + mSession.getSessionId(),
-                              this.getClass().getSimpleName(), "startSession");
-        } else {
-            FiFLogger.logFine(LOG_TAG + "Existing session found with ID: " + mSession.getSessionId(),
-                              this.getClass().getSimpleName(), "startSession");
-        }
+        getOrStartSession("startSession");
     }
 
     public void endSession() {
-        FiFLogger.logFine(LOG_TAG + "endSession called. Flushin event list to server", this.getClass().getSimpleName(),
-                          "enDession");
+        Session session = mSession.get();
+        LOG.fine("endSession", "analytics.session.end", "sessionId", session != null ? session.getSessionId() : null);
         flushEventQueueToServer();
     }
 
+    /**
+     * @param method name of the calling method for logging
+     * @return the current session, a new session if there is none
+     */
+    private Session getOrStartSession(String method) {
+        Session session = mSession.get();
+        if (session != null) {
+            LOG.fine(method, "analytics.session.start", "sessionId", session.getSessionId(), "existing", true);
+            return session;
+        }
+        Session newSession = new Session();
+        if (mSession.compareAndSet(null, newSession)) {
+            LOG.fine(method, "analytics.session.start", "sessionId", newSession.getSessionId(), "existing", false);
+            return newSession;
+        }
+        //another thread started a session at the same time
+        return getOrStartSession(method);
+    }
+
     /**
      * Creates a new default scoped event and adds it to the outgoing queue. Event is configured with event name, session ID and
-     * a generated timestamp
+     * a generated timestamp. The caller adds the properties later, so the event is written to the journal when the
+     * queue is flushed
      *
      * @param eventName
      * @return Event the new default event object
      */
     public Event addEmptyEventToOutgoingQueue(String eventName) {
-        FiFLogger.logFine(LOG_TAG + "adding new event for name: " + eventName, this.getClass().getSimpleName(),
-                          "addNewEventToOutgoingQueue");
-
         if (eventName == null) {
-            FiFLogger.logFine(LOG_TAG + "event name is null. Throwing exception", this.getClass().getSimpleName(),
-                              "addNewEventToOutgoingQueue");
             throw new IllegalArgumentException("'name' cannot be null");
         }
 
-        if (mSession == null) {
-            mSession = new Session();
-            FiFLogger.logFine(LOG_TAG + "no current session found. Creating new session with ID: " + mSession,
-                              this.getClass().getSimpleName(), "addNewEventToOutgoingQueue");
+        Event event = new Event(eventName, getOrStartSession("addEmptyEventToOutgoingQueue").getSessionId());
+        if (mEmptyEvents.add(event)) {
+            mFlushScheduler.eventsAdded();
         }
-        Event event = new Event(eventName, mSession.getSessionId());
-        this.mEvents.add(event);
-        FiFLogger.logFine(LOG_TAG + "new event created and added to list", this.getClass().getSimpleName(),
-                          "addNewEventToOutgoingQueue");
+        LOG.fine("addEmptyEventToOutgoingQueue", "analytics.event.queued", "name", eventName, "queued",
+                 mEmptyEvents.size());
         return event;
     }
 
@@ -156,71 +189,137 @@ public class Analytics {
      */
     public Event addEventToOutgoingQueue(Event event) {
         if (event == null) {
-            FiFLogger.logSevereError(LOG_TAG + "event object cannot be NULL", this.getClass().getSimpleName(),
-                                     "addExistingEventToOutgoingQueue");
             throw new IllegalArgumentException("'event' cannot be null");
         }
 
-        FiFLogger.logFine(LOG_TAG + "event object found. Session ID=" + event.getSessionId() + " TimeStamp=" +
-                          event.getTimestamp() + " Properties=" + MapUtils.dumpProperties(event.getProperties()),
-                          this.getClass().getSimpleName(), "addExistingEventToOutgoingQueue");
-
-        if (mSession == null) {
-            mSession = new Session();
-            FiFLogger.logFine(LOG_TAG + "no current session found. Creating new session with ID: " + mSession,
-                              this.getClass().getSimpleName(), "addExistingEventToOutgoingQueue");
-
-        }
-
         event.setTimestamp(new Date());
-        event.setSessionId(mSession.getSessionId());
-        this.mEvents.add(event);
+        event.setSessionId(getOrStartSession("addEventToOutgoingQueue").getSessionId());
+        //only the producer that finds the queue empty schedules the journal writer
+        if (mEvents.add(event)) {
+            mFlushScheduler.eventsAdded();
+        }
+        if (LOG.isFineLoggable()) {
+            LOG.fine("addEventToOutgoingQueue", "analytics.event.queued", "name", event.getName(), "queued",
+                     mEvents.size(), "properties", MapUtils.dumpProperties(event.getProperties()));
+        }
 
         return event;
     }
 
+    /**
+     * Writes the queued events to the journal. Called on the scheduler thread after events were added
+     */
+    synchronized void journalQueuedEvents() {
+        for (Event event : mEvents.drain()) {
+            mEventJournal.append(event);
+        }
+        mFlushScheduler.eventsQueued(getPendingEventCount(), mEventJournal.getAvailableBytes());
+    }
+
     /**
      *  Takes the events in the current queue and send them to the server. Ensure analytics is enabled for the MBE instance
-     *  as otherwise no messages are sent
+     *  as otherwise no messages are sent. Events in the journal that were not accepted by MCS before are sent as well
      */
     public void flushEventQueueToServer() {
-        FiFLogger.logFine(LOG_TAG + "attempt to post events to server", this.getClass().getSimpleName(),
-                          "flushEventQueueToServer");
-        if (mEvents.size() < 1) {
-            FiFLogger.logWarning(LOG_TAG + " - Events queue is empty. No server post necessary",
-                                 this.getClass().getSimpleName(), "flushEventQueueToServer");
+        flushEventQueueToServer(false);
+    }
+
+    /**
+     * Sends the next batch of queued events to the server
+     * @param automatic true if the flush is triggered by the AnalyticsFlushScheduler. Automatic flushes are deferred
+     * while the maximum number of uploads is in flight
+     */
+    synchronized void flushEventQueueToServer(boolean automatic) {
+        for (Event event : mEvents.drain()) {
+            mEventJournal.append(event);
+        }
+        for (Event event : mEmptyEvents.drain()) {
+            mEventJournal.append(event);
+        }
+
+        //events of an upload still in flight are not checked out again
+        ArrayList<Event> events =
+            mEventJournal.checkout(AnalyticsFlushScheduler.MAX_BATCH_EVENTS, AnalyticsFlushScheduler.MAX_BATCH_BYTES);
+        if (events.size() < 1) {
+            //no server post necessary
+            if (!automatic) {
+                LOG.warning("flushEventQueueToServer", "analytics.flush.empty");
+            }
             return;
         }
+        if (automatic) {
+            if (!mFlushScheduler.tryStartUpload()) {
+                mEventJournal.release(events);
+                return;
+            }
+        } else {
+            mFlushScheduler.uploadStarted();
+        }
 
-        FiFLogger.logFine(LOG_TAG + "Check if analytics is enabled for MBE", this.getClass().getSimpleName(),
-                          "flushEventQueueToServer");
-        mSession.setEndTime(new Date());
-        FiFLogger.logFine(LOG_TAG + "Preparing upload of events", this.getClass().getSimpleName(),
-                          "flushEventQueueToServer");
-        Runnable uploadTask = new UploadTask(this, new ArrayList<Event>(mEvents), mSession);
-        FiFLogger.logFine(LOG_TAG + "Clearing event queue", this.getClass().getSimpleName(), "flushEventQueueToServer");
-        mEvents = new ArrayList<Event>();
-        FiFLogger.logFine(LOG_TAG + "End of Analytic session", this.getClass().getSimpleName(),
-                          "flushEventQueueToServer");
-        mSession = null;
-        FiFLogger.logFine(LOG_TAG + "Uploading events", this.getClass().getSimpleName(), "flushEventQueueToServer");
+        //end the session. Events added from now on start a new session
+        Session session = mSession.getAndSet(null);
+        if (session == null) {
+            //only events of a previous flush or application run are left
+            session = new Session();
+        }
+        session.setEndTime(new Date());
+        Runnable uploadTask = new UploadTask(this, events, session);
+        LOG.fine("flushEventQueueToServer", "analytics.flush", "sessionId", session.getSessionId(), "events",
+                 events.size(), "automatic", automatic, "journal", mEventJournal.dumpStatistics(), "scheduler",
+                 mFlushScheduler.dumpStatistics());
         mExecutorService.execute(uploadTask);
     }
 
-    public void setSession(Session session) {
-        this.mSession = session;
+    /**
+     * Called by the UploadTask when the upload completed
+     * @param accepted true if the events were removed from the journal, false if they are sent again
+     */
+    synchronized void uploadCompleted(boolean accepted) {
+        mFlushScheduler.uploadCompleted(accepted, getPendingEventCount(), mEventJournal.getAvailableBytes());
     }
 
-    public Session getSession() {
-        return mSession;
+    /**
+     * @return number of events queued and not part of an upload in flight
+     */
+    private int getPendingEventCount() {
+        return mEventJournal.getAvailableCount() + mEvents.size() + mEmptyEvents.size();
+    }
+
+    /**
+     * Sends the events gzip compressed ("Content-Encoding: gzip"). If MCS rejects a compressed upload, compression is
+     * switched off and the events are sent uncompressed with the next upload
+     * @param compressUploads
+     */
+    public void setCompressUploads(boolean compressUploads) {
+        this.mCompressUploads = compressUploads;
+    }
+
+    public boolean isCompressUploads() {
+        return mCompressUploads;
     }
 
-    public void setEvents(List<Event> events) {
-        this.mEvents = events;
+    /**
+     * @return journal of the events not yet accepted by MCS
+     */
+    EventJournal getEventJournal() {
+        return mEventJournal;
     }
 
+    public void setSession(Session session) {
+        this.mSession.set(session);
+    }
+
+    public Session getSession() {
+        return mSession.get();
+    }
+
+    /**
+     * @return events queued and not yet written to the journal. Changes to the list do not change the queue
+     */
     public List<Event> getEvents() {
-        return mEvents;
+        ArrayList<Event> events = mEvents.snapshot();
+        events.addAll(mEmptyEvents.snapshot());
+        return events;
     }
 
     public double getLongitude() {
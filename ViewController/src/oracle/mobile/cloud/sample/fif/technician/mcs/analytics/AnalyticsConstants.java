@@ -32,6 +32,11 @@ public class AnalyticsConstants {
      * HTTP 405 The request failed because it uses a method that is not supported by the resource.
      */
     public static final int HTTP_405 = 405;
+
+    /**
+     * HTTP 415 The request failed because the server does not accept the content encoding of the payload (gzip).
+     */
+    public static final int HTTP_415 = 415;
     
     private AnalyticsConstants() {}
 }
@@ -0,0 +1,207 @@
+package oracle.mobile.cloud.sample.fif.technician.mcs.analytics;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import oracle.mobile.cloud.sample.fif.technician.app.log.ComponentLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.LogComponent;
+
+/**
+ * Flushes the analytic events to MCS in batches without waiting for the application to call
+ * Analytics.flushEventQueueToServer(). A batch is sent when one of the thresholds is reached:
+ *
+ * count - MAX_BATCH_EVENTS events are queued
+ * bytes - the queued events are MAX_BATCH_BYTES in size
+ * age   - the oldest queued event is MAX_BATCH_AGE_MILLIS old
+ *
+ * Each upload sends at most MAX_BATCH_EVENTS events and MAX_BATCH_BYTES, so a long queue is sent as several small
+ * uploads instead of one huge POST.
+ *
+ * Question 1: What if uploads fall behind?
+ * Answer   1: At most MAX_UPLOADS_IN_FLIGHT uploads are sent at a time. A batch that is due while an upload is in
+ *             flight is deferred and sent when the upload completes. Producers are never blocked, events wait in the
+ *             EventJournal, which evicts the oldest events when it is full.
+ *
+ * Question 2: What happens if an upload fails, e.g. without network?
+ * Answer   2: The events are released to the journal and the next automatic flush is sent after MAX_BATCH_AGE_MILLIS,
+ *             not right away, so a device without network does not retry in a loop.
+ *
+ * eventsAdded() is called by the producers of events and does not wait for a lock. All other methods are called by
+ * Analytics while it holds its lock. The scheduler never calls Analytics while it holds its own lock.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+class AnalyticsFlushScheduler {
+
+    private static final ComponentLogger LOG =
+        ComponentLogger.getLogger(LogComponent.ANALYTICS, "AnalyticsFlushScheduler");
+
+    static final int MAX_BATCH_EVENTS = 50;
+    static final long MAX_BATCH_BYTES = 32 * 1024;
+    static final long MAX_BATCH_AGE_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    static final int MAX_UPLOADS_IN_FLIGHT = 1;
+
+    private final Analytics analytics;
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private final Runnable flushTask = new Runnable() {
+        public void run() {
+            synchronized (AnalyticsFlushScheduler.this) {
+                flushScheduled = false;
+                ageTimer = null;
+            }
+            analytics.flushEventQueueToServer(true);
+        }
+    };
+
+    private final Runnable journalTask = new Runnable() {
+        public void run() {
+            analytics.journalQueuedEvents();
+        }
+    };
+
+    private ScheduledFuture<?> ageTimer = null;
+    private boolean flushScheduled = false;
+    //a batch was due while the maximum number of uploads was in flight
+    private boolean flushDeferred = false;
+    private int uploadsInFlight = 0;
+
+    private long automaticFlushCount = 0;
+    private long deferredFlushCount = 0;
+
+    AnalyticsFlushScheduler(Analytics analytics) {
+        this.analytics = analytics;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "FiF-AnalyticsFlush");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Called by the producer that added an event to an empty EventQueue. Writes the queued events to the journal on the
+     * scheduler thread, which then checks the thresholds
+     */
+    void eventsAdded() {
+        scheduler.execute(journalTask);
+    }
+
+    /**
+     * Called after events were written to the journal or found in the journal
+     * @param pendingEvents number of events waiting for an upload
+     * @param pendingBytes size of the events waiting for an upload
+     */
+    synchronized void eventsQueued(int pendingEvents, long pendingBytes) {
+        if (pendingEvents >= MAX_BATCH_EVENTS) {
+            requestFlush("count");
+        } else if (pendingBytes >= MAX_BATCH_BYTES) {
+            requestFlush("bytes");
+        } else if (pendingEvents > 0) {
+            startAgeTimer();
+        }
+    }
+
+    /**
+     * Called before an automatic flush starts an upload
+     * @return true if the upload may be sent, false if it is deferred because too many uploads are in flight
+     */
+    synchronized boolean tryStartUpload() {
+        if (uploadsInFlight >= MAX_UPLOADS_IN_FLIGHT) {
+            if (!flushDeferred) {
+                deferredFlushCount++;
+                LOG.fine("tryStartUpload", "analytics.flush.deferred", "uploadsInFlight", uploadsInFlight);
+            }
+            flushDeferred = true;
+            return false;
+        }
+        uploadStarted();
+        automaticFlushCount++;
+        return true;
+    }
+
+    /**
+     * Called when an upload is started
+     */
+    synchronized void uploadStarted() {
+        uploadsInFlight++;
+        flushDeferred = false;
+        cancelAgeTimer();
+    }
+
+    /**
+     * Called when an upload completed
+     * @param accepted true if the events were accepted by MCS or dropped as invalid, false if they are sent again
+     * @param pendingEvents number of events waiting for an upload
+     * @param pendingBytes size of the events waiting for an upload
+     */
+    synchronized void uploadCompleted(boolean accepted, int pendingEvents, long pendingBytes) {
+        uploadsInFlight = Math.max(0, uploadsInFlight - 1);
+        if (pendingEvents == 0) {
+            flushDeferred = false;
+            return;
+        }
+        if (!accepted) {
+            //retry with the next age threshold, not right away
+            flushDeferred = false;
+            startAgeTimer();
+        } else if (flushDeferred) {
+            requestFlush("backlog");
+        } else {
+            eventsQueued(pendingEvents, pendingBytes);
+        }
+    }
+
+    synchronized long getAutomaticFlushCount() {
+        return automaticFlushCount;
+    }
+
+    synchronized long getDeferredFlushCount() {
+        return deferredFlushCount;
+    }
+
+    /**
+     * Flattens the scheduler counters into a String for logging
+     * @return String of key/value pairs
+     */
+    synchronized String dumpStatistics() {
+        return "[uploadsInFlight:" + uploadsInFlight + ";automaticFlushes:" + automaticFlushCount +
+               ";deferredFlushes:" + deferredFlushCount + ";flushDeferred:" + flushDeferred + "]";
+    }
+
+    private void requestFlush(String reason) {
+        if (uploadsInFlight >= MAX_UPLOADS_IN_FLIGHT) {
+            if (!flushDeferred) {
+                deferredFlushCount++;
+                LOG.fine("requestFlush", "analytics.flush.deferred", "reason", reason, "uploadsInFlight",
+                         uploadsInFlight);
+            }
+            flushDeferred = true;
+            return;
+        }
+        if (flushScheduled) {
+            return;
+        }
+        cancelAgeTimer();
+        flushScheduled = true;
+        LOG.fine("requestFlush", "analytics.flush.auto", "reason", reason);
+        //flush on the scheduler thread, not on the thread of the caller
+        scheduler.execute(flushTask);
+    }
+
+    private void startAgeTimer() {
+        if (ageTimer == null && !flushScheduled) {
+            ageTimer = scheduler.schedule(flushTask, MAX_BATCH_AGE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void cancelAgeTimer() {
+        if (ageTimer != null) {
+            ageTimer.cancel(false);
+            ageTimer = null;
+        }
+    }
+}
@@ -19,6 +19,8 @@ public class Event {
     String mName                = null;
     private Date mTimestamp     = null;
     private String mSessionId   = null;
+    //position of the event in the EventJournal, 0 if the event is not journaled
+    private long mJournalSequence = 0;
 
 
     private String LOG_TAG = "Event with Name: ";
@@ -109,6 +111,22 @@ public class Event {
     }
 
 
+    /**
+     * Internal getter to return the position of the event in the EventJournal
+     * @return
+     */
+    long getJournalSequence() {
+        return mJournalSequence;
+    }
+
+    /**
+     * Internal setter for the EventJournal position
+     */
+    void setJournalSequence(long journalSequence) {
+        mJournalSequence = journalSequence;
+    }
+
+
     /**
      * Add a property to the existing Map of event properties.
      * @param key
@@ -0,0 +1,474 @@
+package oracle.mobile.cloud.sample.fif.technician.mcs.analytics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import oracle.adfmf.framework.api.AdfmfJavaUtilities;
+import oracle.adfmf.json.JSONArray;
+import oracle.adfmf.json.JSONException;
+import oracle.adfmf.json.JSONObject;
+
+import oracle.mobile.cloud.sample.fif.technician.app.log.ComponentLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.LogComponent;
+
+/**
+ * Disk-backed journal of the analytic events not yet accepted by MCS. Events are appended to the journal file when they
+ * are queued and are removed only after MCS confirmed the upload with HTTP 202, so events survive failed uploads,
+ * offline periods and application restarts.
+ *
+ * The journal file is append-only: each line is either an added event or a list of removed event sequence numbers.
+ * When more events were removed than are left, the file is rewritten with the remaining events (compaction). A line
+ * that was only partly written when the application stopped is skipped when the journal is read.
+ *
+ * Question 1: How big can the journal get?
+ * Answer   1: The journal holds at most maxEvents events and maxBytes bytes of event data. When an event is added to a
+ *             full journal, the oldest events are evicted. Eviction is counted, see getEvictedCount().
+ *
+ * Question 2: How is an event uploaded only once?
+ * Answer   2: checkout() hands out the events that are not already part of an upload in flight. After the upload,
+ *             the events are either removed (HTTP 202) or released so the next flush sends them again.
+ *
+ * Question 3: What if the journal file cannot be written?
+ * Answer   3: The journal logs the error and keeps the events in memory only, which is how analytics worked before.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public class EventJournal {
+
+    private static final ComponentLogger LOG = ComponentLogger.getLogger(LogComponent.ANALYTICS, "EventJournal");
+
+    private static final String JOURNAL_FILE_NAME = "fif_analytics_journal.log";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    public static final int DEFAULT_MAX_EVENTS = 2000;
+    public static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+
+    //compaction is not worth it for a few removed events
+    private static final int MIN_REMOVED_FOR_COMPACTION = 100;
+
+    private static final String OPERATION = "op";
+    private static final String OPERATION_ADD = "add";
+    private static final String OPERATION_REMOVE = "remove";
+    private static final String SEQUENCE = "seq";
+    private static final String NAME = "name";
+    private static final String TIMESTAMP = "timestamp";
+    private static final String SESSION_ID = "sessionID";
+    private static final String PROPERTIES = "properties";
+
+    private final File file;
+    private final int maxEvents;
+    private final long maxBytes;
+
+    //events not yet accepted by MCS, oldest first
+    private final LinkedHashMap<Long, JournalEntry> entries = new LinkedHashMap<Long, JournalEntry>();
+    //sequence numbers of events that are part of an upload in flight
+    private final HashSet<Long> checkedOut = new HashSet<Long>();
+
+    private Writer writer = null;
+    private long nextSequence = 1;
+    private long entryBytes = 0;
+    private long checkedOutBytes = 0;
+    private int removedSinceCompaction = 0;
+
+    private long appendedCount = 0;
+    private long removedCount = 0;
+    private long evictedCount = 0;
+
+    /**
+     * Opens the journal and reads the events saved in the file
+     * @param file journal file, null to keep the events in memory only
+     * @param maxEvents maximum number of events
+     * @param maxBytes maximum size of the event data in bytes
+     */
+    public EventJournal(File file, int maxEvents, long maxBytes) {
+        if (maxEvents <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Invalid event journal: maxEvents=" + maxEvents + ", maxBytes=" +
+                                               maxBytes);
+        }
+        this.file = file;
+        this.maxEvents = maxEvents;
+        this.maxBytes = maxBytes;
+
+        if (file != null) {
+            try {
+                load();
+                //start with a file that holds the remaining events only
+                rewrite();
+                LOG.info("EventJournal", "analytics.journal.loaded", "events", entries.size(), "bytes", entryBytes);
+            } catch (IOException e) {
+                LOG.severe("EventJournal", "analytics.journal.unavailable", "file", file, "error", e.getMessage());
+                closeWriter();
+            }
+        }
+    }
+
+    /**
+     * Creates a journal for the file in the MAF application directory on the device
+     * @return EventJournal
+     */
+    public static EventJournal createOnDeviceJournal() {
+        String applicationDirectory = AdfmfJavaUtilities.getDirectoryPathRoot(AdfmfJavaUtilities.ApplicationDirectory);
+        return new EventJournal(new File(applicationDirectory, JOURNAL_FILE_NAME), DEFAULT_MAX_EVENTS,
+                                DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Adds an event to the journal. Evicts the oldest events if the journal is full
+     * @param event
+     */
+    public synchronized void append(Event event) {
+        long sequence = nextSequence++;
+        String line = toJson(sequence, event);
+        event.setJournalSequence(sequence);
+        entries.put(sequence, new JournalEntry(event, line.length()));
+        entryBytes += line.length();
+        appendedCount++;
+        writeLine(line);
+        evictOldest();
+    }
+
+    /**
+     * Hands out events for an upload. The events are not handed out again until they are released
+     * @param maxCount maximum number of events to return
+     * @param maxBytes maximum size of the events to return. The oldest event is returned even if it is larger
+     * @return the oldest events not part of another upload
+     */
+    public synchronized ArrayList<Event> checkout(int maxCount, long maxBytes) {
+        ArrayList<Event> events = new ArrayList<Event>();
+        long bytes = 0;
+        for (Map.Entry<Long, JournalEntry> entry : entries.entrySet()) {
+            if (events.size() >= maxCount) {
+                break;
+            }
+            if (checkedOut.contains(entry.getKey())) {
+                continue;
+            }
+            JournalEntry journalEntry = entry.getValue();
+            if (!events.isEmpty() && bytes + journalEntry.bytes > maxBytes) {
+                break;
+            }
+            checkedOut.add(entry.getKey());
+            checkedOutBytes += journalEntry.bytes;
+            bytes += journalEntry.bytes;
+            events.add(journalEntry.event);
+        }
+        return events;
+    }
+
+    /**
+     * Returns events of a failed upload to the journal, so they are sent with the next upload
+     * @param events
+     */
+    public synchronized void release(List<Event> events) {
+        for (Event event : events) {
+            uncheck(event.getJournalSequence());
+        }
+    }
+
+    /**
+     * Removes the events of a successful upload
+     * @param events
+     */
+    public synchronized void remove(List<Event> events) {
+        JSONArray sequences = new JSONArray();
+        int removed = 0;
+        for (Event event : events) {
+            long sequence = event.getJournalSequence();
+            uncheck(sequence);
+            JournalEntry entry = entries.remove(sequence);
+            if (entry != null) {
+                entryBytes -= entry.bytes;
+                sequences.put(sequence);
+                removed++;
+            }
+        }
+        if (removed == 0) {
+            return;
+        }
+        removedCount += removed;
+        removedSinceCompaction += removed;
+        if (removedSinceCompaction >= MIN_REMOVED_FOR_COMPACTION && removedSinceCompaction > entries.size()) {
+            compact();
+        } else {
+            writeLine(toRemoveJson(sequences));
+        }
+    }
+
+    /**
+     * @return number of events not yet accepted by MCS
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of events not yet accepted by MCS and not part of an upload in flight
+     */
+    public synchronized int getAvailableCount() {
+        return entries.size() - checkedOut.size();
+    }
+
+    /**
+     * @return size of the events not yet accepted by MCS and not part of an upload in flight
+     */
+    public synchronized long getAvailableBytes() {
+        return entryBytes - checkedOutBytes;
+    }
+
+    public synchronized long getAppendedCount() {
+        return appendedCount;
+    }
+
+    /**
+     * @return number of events removed after MCS accepted them
+     */
+    public synchronized long getRemovedCount() {
+        return removedCount;
+    }
+
+    /**
+     * @return number of events dropped because the journal was full
+     */
+    public synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+
+    /**
+     * @return true if the events are written to the journal file
+     */
+    public synchronized boolean isPersistent() {
+        return writer != null;
+    }
+
+    /**
+     * Flattens the journal counters into a String for logging
+     * @return String of key/value pairs
+     */
+    public synchronized String dumpStatistics() {
+        return "[events:" + entries.size() + ";bytes:" + entryBytes + ";checkedOut:" + checkedOut.size() +
+               ";appended:" + appendedCount + ";removed:" + removedCount + ";evicted:" + evictedCount +
+               ";persistent:" + (writer != null) + "]";
+    }
+
+    private void evictOldest() {
+        int evicted = 0;
+        JSONArray sequences = new JSONArray();
+        Iterator<Map.Entry<Long, JournalEntry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEvents || entryBytes > maxBytes) && iterator.hasNext()) {
+            Map.Entry<Long, JournalEntry> oldest = iterator.next();
+            //an event evicted during its upload is simply not found when the upload completes
+            uncheck(oldest.getKey());
+            iterator.remove();
+            entryBytes -= oldest.getValue().bytes;
+            sequences.put(oldest.getKey().longValue());
+            evicted++;
+        }
+        if (evicted > 0) {
+            evictedCount += evicted;
+            removedSinceCompaction += evicted;
+            writeLine(toRemoveJson(sequences));
+            LOG.warning("evictOldest", "analytics.journal.evicted", "events", evicted, "remaining", entries.size());
+        }
+    }
+
+    private void uncheck(long sequence) {
+        if (checkedOut.remove(sequence)) {
+            JournalEntry entry = entries.get(sequence);
+            if (entry != null) {
+                checkedOutBytes -= entry.bytes;
+            }
+        }
+    }
+
+    /**
+     * Reads the journal file into memory
+     */
+    private void load() throws IOException {
+        File source = file;
+        if (!source.exists()) {
+            //the application may have stopped during a compaction after the temporary file was written
+            source = getTempFile();
+            if (!source.exists()) {
+                return;
+            }
+        }
+        BufferedReader reader =
+            new BufferedReader(new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8));
+        int skipped = 0;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    readLine(new JSONObject(line));
+                } catch (JSONException e) {
+                    skipped++;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        if (skipped > 0) {
+            LOG.warning("load", "analytics.journal.skippedLines", "lines", skipped);
+        }
+    }
+
+    private void readLine(JSONObject json) throws JSONException {
+        if (OPERATION_REMOVE.equals(json.optString(OPERATION, null))) {
+            JSONArray sequences = json.getJSONArray(SEQUENCE);
+            for (int i = 0; i < sequences.length(); i++) {
+                JournalEntry entry = entries.remove(sequences.getLong(i));
+                if (entry != null) {
+                    entryBytes -= entry.bytes;
+                }
+            }
+            return;
+        }
+        long sequence = json.getLong(SEQUENCE);
+        HashMap<String, String> properties = new HashMap<String, String>();
+        JSONObject jsonProperties = json.optJSONObject(PROPERTIES);
+        if (jsonProperties != null) {
+            Iterator keys = jsonProperties.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                properties.put(key, jsonProperties.optString(key, null));
+            }
+        }
+        String sessionId = json.optString(SESSION_ID, null);
+        Event event = new Event(json.getString(NAME), new Date(json.getLong(TIMESTAMP)), properties,
+                                "null".equals(sessionId) ? null : sessionId);
+        event.setJournalSequence(sequence);
+        JournalEntry previous = entries.put(sequence, new JournalEntry(event, json.toString().length()));
+        if (previous != null) {
+            entryBytes -= previous.bytes;
+        }
+        entryBytes += json.toString().length();
+        nextSequence = Math.max(nextSequence, sequence + 1);
+    }
+
+    private void compact() {
+        try {
+            rewrite();
+            LOG.fine("compact", "analytics.journal.compacted", "events", entries.size(), "bytes", entryBytes);
+        } catch (IOException e) {
+            LOG.severe("compact", "analytics.journal.unavailable", "file", file, "error", e.getMessage());
+            closeWriter();
+        }
+    }
+
+    /**
+     * Replaces the journal file with a file that contains the events in memory only, and opens it for appending
+     */
+    private void rewrite() throws IOException {
+        closeWriter();
+        File tempFile = getTempFile();
+        Writer tempWriter =
+            new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8));
+        try {
+            for (Map.Entry<Long, JournalEntry> entry : entries.entrySet()) {
+                tempWriter.write(toJson(entry.getKey(), entry.getValue().event));
+                tempWriter.write('\n');
+            }
+        } finally {
+            tempWriter.close();
+        }
+        //renameTo does not replace an existing file on all platforms
+        if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+            throw new IOException("Journal file " + file + " cannot be replaced");
+        }
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        removedSinceCompaction = 0;
+    }
+
+    private void writeLine(String line) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(line);
+            writer.write('\n');
+            //hand the line to the operating system, so it is not lost if the application is killed
+            writer.flush();
+        } catch (IOException e) {
+            LOG.severe("writeLine", "analytics.journal.unavailable", "file", file, "error", e.getMessage());
+            closeWriter();
+        }
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                //nothing left to do
+            }
+            writer = null;
+        }
+    }
+
+    private File getTempFile() {
+        return new File(file.getPath() + TEMP_FILE_SUFFIX);
+    }
+
+    private static String toJson(long sequence, Event event) {
+        JSONObject json = new JSONObject();
+        try {
+            json.put(OPERATION, OPERATION_ADD);
+            json.put(SEQUENCE, sequence);
+            json.put(NAME, event.getName());
+            json.put(TIMESTAMP, event.getTimestamp().getTime());
+            json.put(SESSION_ID, event.getSessionId() != null ? event.getSessionId() : JSONObject.NULL);
+            JSONObject properties = new JSONObject();
+            for (Map.Entry<String, String> entry : event.getProperties().entrySet()) {
+                properties.put(entry.getKey(), entry.getValue());
+            }
+            json.put(PROPERTIES, properties);
+        } catch (JSONException e) {
+            LOG.severe("toJson", "analytics.json.failure", "event", event.getName(), "error", e.getMessage());
+        }
+        return json.toString();
+    }
+
+    private static String toRemoveJson(JSONArray sequences) {
+        JSONObject json = new JSONObject();
+        try {
+            json.put(OPERATION, OPERATION_REMOVE);
+            json.put(SEQUENCE, sequences);
+        } catch (JSONException e) {
+            LOG.severe("toRemoveJson", "analytics.json.failure", "error", e.getMessage());
+        }
+        return json.toString();
+    }
+
+
+    private static final class JournalEntry {
+        private final Event event;
+        //size of the journal line, used for the size limit
+        private final long bytes;
+
+        JournalEntry(Event event, long bytes) {
+            this.event = event;
+            this.bytes = bytes;
+        }
+    }
+}
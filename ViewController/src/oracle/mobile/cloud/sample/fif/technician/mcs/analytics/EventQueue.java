@@ -0,0 +1,99 @@
+package oracle.mobile.cloud.sample.fif.technician.mcs.analytics;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free queue of analytic events with many producers and a single consumer. Producers add events with a single
+ * compare-and-set and never wait for a lock, the consumer takes all queued events at once with an atomic swap.
+ *
+ * The events are kept as a linked stack of nodes. add() pushes a node onto the stack, drain() swaps the whole stack
+ * out and reverses it, so the events are returned in the order they were added. Each event is returned by exactly one
+ * drain(), also when drain() is called concurrently.
+ *
+ * Question 1: How does the consumer know that there is something to drain?
+ * Answer   1: add() returns true for the event that makes an empty queue non-empty. The producer of this event
+ *             schedules the consumer, all other producers do nothing.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+final class EventQueue {
+
+    private final AtomicReference<Node> top = new AtomicReference<Node>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Adds an event without blocking
+     * @param event
+     * @return true if the queue was empty before
+     */
+    boolean add(Event event) {
+        if (event == null) {
+            throw new IllegalArgumentException("'event' cannot be null");
+        }
+        Node node = new Node(event);
+        Node current;
+        do {
+            current = top.get();
+            node.next = current;
+        } while (!top.compareAndSet(current, node));
+        size.incrementAndGet();
+        return current == null;
+    }
+
+    /**
+     * Removes all queued events
+     * @return events in the order they were added
+     */
+    ArrayList<Event> drain() {
+        Node node = top.getAndSet(null);
+        ArrayList<Event> events = new ArrayList<Event>();
+        for (; node != null; node = node.next) {
+            events.add(node.event);
+        }
+        size.addAndGet(-events.size());
+        reverse(events);
+        return events;
+    }
+
+    /**
+     * @return events queued at the time of the call, in the order they were added. The events stay in the queue
+     */
+    ArrayList<Event> snapshot() {
+        ArrayList<Event> events = new ArrayList<Event>();
+        for (Node node = top.get(); node != null; node = node.next) {
+            events.add(node.event);
+        }
+        reverse(events);
+        return events;
+    }
+
+    /**
+     * @return number of queued events. Events added or drained during the call may or may not be counted
+     */
+    int size() {
+        return Math.max(0, size.get());
+    }
+
+    boolean isEmpty() {
+        return top.get() == null;
+    }
+
+    private static void reverse(ArrayList<Event> events) {
+        for (int i = 0, j = events.size() - 1; i < j; i++, j--) {
+            events.set(i, events.set(j, events.get(i)));
+        }
+    }
+
+
+    private static final class Node {
+        private final Event event;
+        //written before the node is published by the compare-and-set and not changed after
+        private Node next;
+
+        Node(Event event) {
+            this.event = event;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package oracle.mobile.cloud.sample.fif.technician.mcs.analytics;
 
+import java.nio.charset.StandardCharsets;
+
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -12,10 +14,11 @@ import oracle.adf.model.datacontrols.device.DeviceManagerFactory;
 import oracle.adfmf.json.JSONArray;
 import oracle.adfmf.json.JSONObject;
 
+import oracle.mobile.cloud.sample.fif.technician.app.log.ComponentLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.LogComponent;
 import oracle.mobile.cloud.sample.fif.technician.maf.RequestContext;
 import oracle.mobile.cloud.sample.fif.technician.maf.ResponseContext;
 import oracle.mobile.cloud.sample.fif.technician.maf.RestClient;
-import oracle.mobile.cloud.sample.fif.technician.mcs.log.FiFLogger;
 import oracle.mobile.cloud.sample.fif.technician.mcs.mbe.FiFMBEConfig;
 import oracle.mobile.cloud.sample.fif.technician.mcs.mbe.FiFMobileBackend;
 import oracle.mobile.cloud.sample.fif.technician.utils.DateUtil;
@@ -24,17 +27,27 @@ import oracle.mobile.cloud.sample.fif.technician.utils.MapUtils;
 
 
 //TODO add log information
-//TODO add code to check network connection: If network is not available cache event in SQLite database
 
 /**
  * UploadTask handles the REST call to MCS to write analytic information to the server. Its
  * a wrapper - as a developer convenience - for invoking MCS REST URLs
  *
+ * The events are checked out of the EventJournal. They are removed from the journal when MCS accepted them and are
+ * released to the journal for the next upload when the upload failed. Events that MCS rejects as invalid request
+ * (HTTP 400, 405) are removed as well, as sending them again would fail again and block all later events.
+ *
+ * The repetitive JSON payload compresses well, so uploads are sent gzip compressed if Analytics.isCompressUploads().
+ * A server that does not accept compressed uploads answers with HTTP 415 or 400. Compression is switched off then and
+ * the events are released, so the next upload sends them uncompressed. Compressed uploads are sent as byte[] payload,
+ * uncompressed uploads as String payload, so the two take different paths through the RestClient.
+ *
  * @author Frank Nimphius
  * @copyright Copyright (c) 2015 Oracle. All rights reserved.
  */
 public class UploadTask implements Runnable {
 
+    private static final ComponentLogger LOG = ComponentLogger.getLogger(LogComponent.ANALYTICS, "UploadTask");
+
     ArrayList<Event> mEventList = null;
     Analytics mAnalytics = null;
     Session mSession = null;
@@ -47,8 +60,6 @@ public class UploadTask implements Runnable {
     private JSONObject mSessionStartEvent = null;
     private JSONObject mSessionEndEvent = null;
 
-    private String LOG_TAG = "Upload Task - ";
-    
     public UploadTask(Analytics analytics, ArrayList<Event> eventList, Session session) {
 
         super();
@@ -59,7 +70,7 @@ public class UploadTask implements Runnable {
         this.mobileBackend = analytics.getMobileBackend();
         this.mbeConfig = this.mobileBackend.getMbeConfiguration();
 
-        FiFLogger.logFine(LOG_TAG+"New Upload Task created for "+eventList.size()+"event(s)", this.getClass().getSimpleName(), "Constructor");
+        LOG.fine("Constructor", "analytics.upload.created", "events", eventList.size());
     }
 
     @Override
@@ -67,6 +78,7 @@ public class UploadTask implements Runnable {
 
         //if no events available, ignore request
         if (this.mEventList.size() < 1) {
+            mAnalytics.uploadCompleted(true);
             return;
         }
 
@@ -75,12 +87,62 @@ public class UploadTask implements Runnable {
         this.mSessionEndEvent = createSessionEndJson();
 
         try {
-            FiFLogger.logFine(LOG_TAG + "Attempting to post " + this.mEventList.size() + " events", this.getClass().getSimpleName(),"run");
+            LOG.fine("run", "analytics.upload.start", "events", this.mEventList.size());
             postEvents();
         } catch (Exception e) {
-            FiFLogger.logSevereError(LOG_TAG + "Could not post events because of Exception: "+e.getMessage(), this.getClass().getSimpleName(),"run");
-            FiFLogger.logSevereError(LOG_TAG + "Exception cause: "+e.getCause().getMessage(), this.getClass().getSimpleName(),"run");            
+            LOG.severe("run", "analytics.upload.failure", "error", e.getMessage(), "cause",
+                       e.getCause() != null ? e.getCause().getMessage() : null);
+        } finally {
+            boolean accepted = mEventList.isEmpty();
+            if (!accepted) {
+                //upload failed, send the events with the next upload
+                mAnalytics.getEventJournal().release(mEventList);
+                LOG.fine("run", "analytics.upload.released", "events", mEventList.size());
+            }
+            mAnalytics.uploadCompleted(accepted);
+        }
+    }
+
+    /**
+     * Removes the events from the journal after MCS accepted them or rejected them as invalid
+     */
+    private void removeEventsFromJournal() {
+        mAnalytics.getEventJournal().remove(mEventList);
+        mEventList.clear();
+    }
+
+    /**
+     * @param status HTTP status of the failed upload
+     * @return true if MCS rejected the request as invalid (HTTP 400, 405)
+     */
+    private static boolean isInvalidRequest(int status) {
+        return status == AnalyticsConstants.HTTP_400 || status == AnalyticsConstants.HTTP_405;
+    }
+
+    /**
+     * Switches off compression if the server rejected a compressed upload
+     * @param request
+     * @param status HTTP status of the failed upload
+     * @return true if the upload failed because it was compressed. The events are sent again uncompressed
+     */
+    private boolean handleCompressionRejected(RequestContext request, int status) {
+        if (!isCompressionRejected(request, status)) {
+            return false;
         }
+        mAnalytics.setCompressUploads(false);
+        LOG.warning("sendRequest", "analytics.upload.compressionRejected", "status", status, "events",
+                    this.mEventList.size());
+        return true;
+    }
+
+    /**
+     * @param request
+     * @param status HTTP status of the failed upload, see RestClient.getStatusFromException()
+     * @return true if the request was sent compressed and the server answered with HTTP 400 or 415
+     */
+    static boolean isCompressionRejected(RequestContext request, int status) {
+        return request.isCompressPayload() &&
+               (status == AnalyticsConstants.HTTP_400 || status == AnalyticsConstants.HTTP_415);
     }
 
     /**
@@ -96,7 +158,6 @@ public class UploadTask implements Runnable {
      */
     private JSONObject createSessionStartJson() {
 
-        FiFLogger.logFine(LOG_TAG + "creating session start JSON", this.getClass().getSimpleName(),"createSessionStartJson");
 
         JSONObject json = new JSONObject();
         try {
@@ -106,11 +167,8 @@ public class UploadTask implements Runnable {
             json.put("type", "system");
             json.put("component", this.mobileBackend.getApplicationFeatureName());
         } catch (Exception ex) {
-            FiFLogger.logSevereError(LOG_TAG + "Could not create JSON Object because of Exception", this.getClass().getSimpleName(),"createSessionStartJson");
-            FiFLogger.logSevereError(LOG_TAG + ex.getMessage(), this.getClass().getSimpleName(),"createSessionStartJson");
-            if(ex.getCause() != null){
-                FiFLogger.logSevereError(LOG_TAG + ex.getCause().getLocalizedMessage(), this.getClass().getSimpleName(),"createSessionStartJson");
-            }
+            LOG.severe("createSessionStartJson", "analytics.json.failure", "event", "sessionStart", "error",
+                       ex.getMessage(), "cause", ex.getCause() != null ? ex.getCause().getLocalizedMessage() : null);
         }
         return json;
     }
@@ -129,7 +187,6 @@ public class UploadTask implements Runnable {
      */
     private JSONObject createSessionEndJson() {
 
-        FiFLogger.logFine(LOG_TAG + "creating session end JSON", this.getClass().getSimpleName(),"createSessionEndJson");
 
         JSONObject json = new JSONObject();
         try {
@@ -140,8 +197,7 @@ public class UploadTask implements Runnable {
             json.put("component", this.mobileBackend.getApplicationFeatureName());
 
         } catch (Exception ex) {
-            FiFLogger.logSevereError(LOG_TAG + "Could not create session end JSON Object because of Exception", this.getClass().getSimpleName(),"createSessionEndJson");
-            FiFLogger.logSevereError(LOG_TAG + ex.getMessage(), this.getClass().getSimpleName(),"createSessionEndJson");            
+            LOG.severe("createSessionEndJson", "analytics.json.failure", "event", "sessionEnd", "error", ex.getMessage());
         }
         return json;
     }
@@ -166,8 +222,6 @@ public class UploadTask implements Runnable {
      * @return JSON Object
      */
     private JSONObject createSystemJson() {
-        FiFLogger.logFine(LOG_TAG + "Initializing System JSON", this.getClass().getSimpleName(),"createSystemJson");
-
         TimeZone timeZone = TimeZone.getDefault();
         JSONObject json = new JSONObject();
         try {
@@ -189,11 +243,9 @@ public class UploadTask implements Runnable {
             json.put("timestamp", getISOTimeStamp());
 
         } catch (Exception ex) {
-            FiFLogger.logSevereError(LOG_TAG + "Could not create system JSON Object because of Exception", this.getClass().getSimpleName(),"createSystemJson");
-            FiFLogger.logSevereError(LOG_TAG + ex.getMessage(), this.getClass().getSimpleName(),"createSystemJson");            
+            LOG.severe("createSystemJson", "analytics.json.failure", "event", "context", "error", ex.getMessage());
         }
 
-        FiFLogger.logFine(LOG_TAG + "System JSON created", this.getClass().getSimpleName(),"createSystemJson");
         return json;
 
     }
@@ -236,21 +288,18 @@ public class UploadTask implements Runnable {
      */
     private void sendRequest() {
 
-        FiFLogger.logFine(LOG_TAG + "sending server request", this.getClass().getSimpleName(),"sendRequest");
         JSONArray jsonArray = null;
 
         jsonArray = new JSONArray();
 
         jsonArray.put(this.mContextEvent);
         jsonArray.put(this.mSessionStartEvent);
-        FiFLogger.logFine(LOG_TAG + "adding custom events ", this.getClass().getSimpleName(),"sendRequest");
         for (int indx = 0; indx < this.mEventList.size(); indx++) {
             jsonArray.put(createEventJson(mEventList.get(indx)));
         }
         jsonArray.put(mSessionEndEvent);
 
 
-            FiFLogger.logFine(LOG_TAG + "Network access available: ready to send", this.getClass().getSimpleName(),"sendRequest");
             //Create a request context to hold request configuration before calling MAF
             //REST Service Adapter to post events to the MBE
             RequestContext request = new RequestContext();
@@ -260,70 +309,85 @@ public class UploadTask implements Runnable {
             //add authorization
             mHeaderMap.put("Authorization", this.mobileBackend.getMbeConfiguration().getOauthHttpHeaderToken());            
             request.setHttpHeaders(this.mHeaderMap);
-            request.setPayload(jsonArray.toString());
-            FiFLogger.logFine(LOG_TAG +  "Header map: " + MapUtils.dumpProperties(mHeaderMap), this.getClass().getSimpleName(),"sendRequest");
-            FiFLogger.logFine(LOG_TAG + "Payload : "+jsonArray.toString(), this.getClass().getSimpleName(),"sendRequest");
+            if (mAnalytics.isCompressUploads()) {
+                //the RestClient compresses byte[] payloads only. A byte[] payload is not sent by the REST Service 
+                //Adapter but written to its HttpConnection (RestClient.handleBinaryRequest), which returns the http 
+                //status message instead of the response body. The body of an analytics response is only logged
+                request.setPayload(jsonArray.toString().getBytes(StandardCharsets.UTF_8));
+                request.setCompressPayload(true);
+            } else {
+                request.setPayload(jsonArray.toString());
+            }
+            if(LOG.isFineLoggable()){
+                LOG.fine("sendRequest", "analytics.upload.request", "uri", AnalyticsConstants.ANALYTICS_RELATIVE_URL,
+                         "headers", MapUtils.dumpProperties(mHeaderMap), "payload", jsonArray);
+            }
             request.setHttpMethod(RequestContext.HttpMethod.POST);
             //add MBE Analytics base Uri
             request.setRequestURI(AnalyticsConstants.ANALYTICS_RELATIVE_URL);
-            FiFLogger.logFine(LOG_TAG + "Analytic URI : " + AnalyticsConstants.ANALYTICS_RELATIVE_URL, this.getClass().getSimpleName(),"sendRequest");
  
             ResponseContext response = null;
             try {                
                 //request REST Response in String
-                FiFLogger.logFine(LOG_TAG + "Sending Request (try/catch) " + AnalyticsConstants.ANALYTICS_RELATIVE_URL, this.getClass().getSimpleName(),"sendRequest");
                 response = RestClient.sendForStringResponse(request);
-                FiFLogger.logFine(LOG_TAG + "REST API called : "+jsonArray.toString(), this.getClass().getSimpleName(),"sendRequest");
                 
                 //Analytics replies with HTTP-202 in case of request success. HTTP-202 means that the request is accepted but is not
                 //yet precessed by the server. 
                 if (response != null) {
                     int status = response.getResponseStatus();
                     if (status == AnalyticsConstants.HTTP_202) {
-                        FiFLogger.logFine(LOG_TAG + "Rest call successful: " + response.getResponsePayload(),this.getClass().getSimpleName(),"sendRequest");
-                        FiFLogger.logFine(LOG_TAG + "Clearing event list" + this.mEventList.size() + " events", this.getClass().getSimpleName(),"run");
-                        mEventList.clear();
+                        LOG.fine("sendRequest", "analytics.upload.accepted", "events", this.mEventList.size(), "response",
+                                 response.getResponsePayload());
+                        removeEventsFromJournal();
+                    } else if (handleCompressionRejected(request, status)) {
+                        //events are released and sent again uncompressed
+                    } else if (isInvalidRequest(status)) {
+                        LOG.severe("sendRequest", "analytics.upload.dropped", "status", status, "events",
+                                   this.mEventList.size(), "response", response.getResponsePayload());
+                        removeEventsFromJournal();
                     } else {
-                        FiFLogger.logSevereError(LOG_TAG + "REST Invocation Failed in call to Analytics:  " + response.getResponsePayload(),this.getClass().getSimpleName(),"sendRequest");
-                        FiFLogger.logSevereError(LOG_TAG + "Events are ocally saved for later post",this.getClass().getSimpleName(),"sendRequest");                                                                
+                        //events stay in the journal for later post
+                        LOG.severe("sendRequest", "analytics.upload.rejected", "status", status, "response",
+                                   response.getResponsePayload());
                     }
                 } else {
-                    FiFLogger.logFine(LOG_TAG + "Rest call successful: NO RESPONSE MESSAGE",this.getClass().getSimpleName(),"sendRequest");
-                    FiFLogger.logFine(LOG_TAG + "Clearing event list" + this.mEventList.size() + " events", this.getClass().getSimpleName(),"run");
-                    mEventList.clear();
+                    //no status, so MCS may not have received the events. They stay in the journal for later post
+                    LOG.warning("sendRequest", "analytics.upload.noResponse", "events", this.mEventList.size());
                 }
                 
             //MAF 2.1 throws an exception in the RestTransportLayer - readResponse method when the HTTP response code is 202. To handle this
             //wrong negative, we check the exception for the HTTP error code. If the error code is 202 then continue   
                    
             } catch (Exception e) {                
-                                
-
-                FiFLogger.logSevereError(LOG_TAG + "EXCEPTION  (e.getLocalizedMessage): " + e.getLocalizedMessage(),this.getClass().getSimpleName(),"sendRequest");      
-                if(e.getCause() != null){
-                 FiFLogger.logSevereError(LOG_TAG + "EXCEPTION  (e.getCause().getLocalizedMessage()): " + e.getCause().getLocalizedMessage(),this.getClass().getSimpleName(),"sendRequest");                                   
-                }
-                                
-                if(e.getMessage().toUpperCase().contains("202")) {  
-                   FiFLogger.logFine(LOG_TAG + "Rest call successful: " + response.getResponsePayload(),this.getClass().getSimpleName(),"sendRequest");
-                   FiFLogger.logFine(LOG_TAG + "Clearing event list" + this.mEventList.size() + " events", this.getClass().getSimpleName(),"run");
-                   mEventList.clear();                    
+                
+                int status = RestClient.getStatusFromException(e);
+                if(status == AnalyticsConstants.HTTP_202) {  
+                   //the response object is not set if the adapter reports the status as exception
+                   LOG.fine("sendRequest", "analytics.upload.accepted", "events", this.mEventList.size(), "status", 202);
+                   removeEventsFromJournal();
                 }
                 else{
-                    FiFLogger.logSevereError(LOG_TAG + "REST Invocation Failed with Exception",this.getClass().getSimpleName(),"sendRequest");
-                    FiFLogger.logSevereError(LOG_TAG + "Exception cause is: " +e.getMessage(),this.getClass().getSimpleName(),"sendRequest");                    
-                                        
+                    LOG.severe("sendRequest", "analytics.upload.failure", "error", e.getLocalizedMessage(), "cause",
+                               e.getCause() != null ? e.getCause().getLocalizedMessage() : null);
+
                     /*
                      * HTTP 400 	The request failed because the payload of JSON message was malformed, or because of 
                      *                  an exception that occurred during processing
                      * HTTP 405 	The request failed because it uses a method that is not supported by the resource
                      */
-                    if(e.getMessage().toUpperCase().contains("400") || (e.getMessage().toUpperCase().contains("405"))){
-                        FiFLogger.logFine(LOG_TAG + "REST Invocation Failed with MCS error 400 or 405. Check the validness of the JSON payload and the request URI",this.getClass().getSimpleName(),"sendRequest");                                        
+                    if(handleCompressionRejected(request, status)){
+                        //events are released and sent again uncompressed
+                    }
+                    else if(isInvalidRequest(status)){
+                        //check the validness of the JSON payload and the request URI
+                        LOG.severe("sendRequest", "analytics.upload.dropped", "status", status, "error", e.getMessage(),
+                                   "events", this.mEventList.size());
+                        removeEventsFromJournal();
                     }
                     else{
-                        //failure in the REST Service Adapter call
-                        FiFLogger.logSevereError(LOG_TAG + "Events could not be sent due to network problems", this.getClass().getSimpleName(),"sendRequest"); 
+                        //failure in the REST Service Adapter call, events stay in the journal for later post
+                        LOG.severe("sendRequest", "analytics.upload.networkFailure", "status", status, "events",
+                                   this.mEventList.size());
                     }
                 }
             }
@@ -350,7 +414,7 @@ public class UploadTask implements Runnable {
                 json.put("properties", params);
 
         } catch (Exception ex) {
-            FiFLogger.logSevereError(LOG_TAG + ex.getMessage(),this.getClass().getSimpleName(),"createEventJson");
+            LOG.severe("createEventJson", "analytics.json.failure", "event", event.getName(), "error", ex.getMessage());
         }
 
         return json;
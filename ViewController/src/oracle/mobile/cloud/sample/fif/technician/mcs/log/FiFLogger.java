@@ -1,77 +1,36 @@
 package oracle.mobile.cloud.sample.fif.technician.mcs.log;
 
-import java.text.SimpleDateFormat;
-
-import java.util.Date;
-import java.util.logging.Level;
-
-import oracle.adfmf.util.Utility;
+import oracle.mobile.cloud.sample.fif.technician.app.log.AppLogger;
 
 /**
+ * Former logger of the MCS classes. Delegates to AppLogger, which has the same methods.
  *
+ * @deprecated use AppLogger, or a ComponentLogger for new code
  * @author   Frank Nimphius
- * @coyright Oracle Corporation, 2015
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
  */
+@Deprecated
 public class FiFLogger {
     
-    private static final String LOG_TAG = "FixItFast Technician: ";
-    
     private FiFLogger() {}    
     
-    /**
-     * CONFIG messages are intended to provide a variety of static
-     * configuration information, to assist in debugging problems
-     */
     public static void logConfig(String message, String className, String methodName){        
-        if(Utility.ApplicationLogger.isLoggable(Level.CONFIG)){
-            SimpleDateFormat dt1 = new SimpleDateFormat("yyyyy-MM-dd hh:mm:ss");
-            Utility.ApplicationLogger.logp(Level.CONFIG, LOG_TAG+className, methodName,dt1.format(new Date())+": "+message);
-        }
+        AppLogger.logConfig(message, className, methodName);
     }
     
-    /**
-     * FINE is a message level providing tracing information.
-     */
     public static void logFine(String message, String className, String methodName){
-       
-        if(Utility.ApplicationLogger.isLoggable(Level.FINE)){
-          SimpleDateFormat dt1 = new SimpleDateFormat("yyyyy-MM-dd hh:mm:ss");
-          Utility.ApplicationLogger.logp(Level.FINE, LOG_TAG+className, methodName,dt1.format(new Date())+": "+message);
-        }
+        AppLogger.logFine(message, className, methodName);
     }
     
-    /**
-     * Indicating a serious failure. Describes events that are
-     * of importance and will prevent normal program execution.
-     */
     public static void logSevereError(String message, String className, String methodName){               
-            if(Utility.ApplicationLogger.isLoggable(Level.SEVERE)){
-            SimpleDateFormat dt1 = new SimpleDateFormat("yyyyy-MM-dd hh:mm:ss");
-           Utility.ApplicationLogger.logp(Level.SEVERE, LOG_TAG+className, methodName,dt1.format(new Date())+": "+message);
-        }
+        AppLogger.logSevereError(message, className, methodName);
     }
-    /**
-     * Indicating a potential problem. Describes event that will
-     * be of interest to end users or system managers
-     */
+    
     public static void logWarning(String message, String className, String methodName){       
-        if(Utility.ApplicationLogger.isLoggable(Level.WARNING)){
-          SimpleDateFormat dt1 = new SimpleDateFormat("yyyyy-MM-dd hh:mm:ss");
-          Utility.ApplicationLogger.logp(Level.WARNING, className, methodName, dt1.format(new Date())+": "+message);
-        }
+        AppLogger.logWarning(message, className, methodName);
     }
     
-    /**
-     * Informational messages. Messages will be written to the console
-     * or its equivalent.  Use for reasonably important messages that 
-     * make sense to end users and system administrators.
-     */
     public static void logInfo(String message, String className, String methodName){        
-        
-        if(Utility.ApplicationLogger.isLoggable(Level.INFO)){
-          SimpleDateFormat dt1 = new SimpleDateFormat("yyyyy-MM-dd hh:mm:ss");
-          Utility.ApplicationLogger.logp(Level.INFO, LOG_TAG+className, methodName, dt1.format(new Date())+": "+message);
-        }
+        AppLogger.logInfo(message, className, methodName);
     }
-    
 }
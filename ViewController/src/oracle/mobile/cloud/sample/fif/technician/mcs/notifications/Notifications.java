@@ -9,7 +9,8 @@ import oracle.adfmf.json.JSONObject;
 import oracle.mobile.cloud.sample.fif.technician.maf.RequestContext;
 import oracle.mobile.cloud.sample.fif.technician.maf.ResponseContext;
 import oracle.mobile.cloud.sample.fif.technician.maf.RestClient;
-import oracle.mobile.cloud.sample.fif.technician.mcs.log.FiFLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.ComponentLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.LogComponent;
 import oracle.mobile.cloud.sample.fif.technician.mcs.mbe.FiFMBEConfig;
 import oracle.mobile.cloud.sample.fif.technician.mcs.mbe.FiFMobileBackend;
 import oracle.mobile.cloud.sample.fif.technician.utils.MAFUtil;
@@ -31,6 +32,8 @@ import oracle.mobile.cloud.sample.fif.technician.utils.MAFUtil;
  */
 public class Notifications {
 
+    private static final ComponentLogger LOG = ComponentLogger.getLogger(LogComponent.PUSH, "Notifications");
+
     /*
      * User is not allowed to perform the request. This can be due to a missing or false mobile backend Id or a 
      * malformed URI
@@ -96,7 +99,7 @@ public class Notifications {
 
         boolean registrationSuccess = false;
         
-        FiFLogger.logFine("Registering device for push with URI: "+mcsURI, this.getClass().getSimpleName(),"deviceRegistrationHandler");
+        LOG.fine("deviceRegistrationHandler", "push.registration.start", "uri", mcsURI);
         //check for supported Push platform
         
             try {
@@ -136,12 +139,7 @@ public class Notifications {
                 
                 String payloadString = this.stringifyJSONObject(payloadJSONObject);
                 
-                if(mcsURI.equalsIgnoreCase(REGISTER_DEVICE_URL)){
-                   FiFLogger.logFine("Payload for device registration: "+payloadString, this.getClass().getSimpleName(),"deviceRegistrationHandler");
-                }
-                else{
-                       FiFLogger.logFine("Payload for device de-registration: "+payloadString, this.getClass().getSimpleName(),"deviceRegistrationHandler");
-                }
+                LOG.fine("deviceRegistrationHandler", "push.registration.payload", "uri", mcsURI, "payload", payloadString);
 
                 HashMap<String, String> headers = new HashMap<String, String>();
 
@@ -164,29 +162,26 @@ public class Notifications {
                     String operation = mcsURI.equalsIgnoreCase(REGISTER_DEVICE_URL)?"registration":"deregistration";
                     
                     if (responseObject.getResponseStatus() == HTTP_BAD_REQUEST_STATUS) {
-                        FiFLogger.logWarning("BAD REQUEST: device "+operation+" failed with HTTP ERROR" +responseObject.getResponseStatus(), this.getClass().getSimpleName(),"deviceRegistrationHandler");
-                        FiFLogger.logWarning("BAD REQUEST: Oracle MCS Error Message:" + responseObject.getResponsePayload(),this.getClass().getSimpleName(), "deviceRegistrationHandler");
+                        LOG.warning("deviceRegistrationHandler", "push.registration.badRequest", "operation", operation,
+                                    "status", responseObject.getResponseStatus(), "mcsMessage", responseObject.getResponsePayload());
                     } else if (responseObject.getResponseStatus() == HTTP_NOT_AUTHORIZED_STATUS) {
-                        FiFLogger.logWarning("NOT AuTHORIZED: Push notification "+operation+" failed with HTTP ERROR" +responseObject.getResponseStatus()+". Possible problem could be an invalid or missing mobile client ID", this.getClass().getSimpleName(), "deviceRegistrationHandler");
-                        FiFLogger.logWarning("NOT AuTHORIZED: Oracle MCS Error Message:" +responseObject.getResponsePayload() , this.getClass().getSimpleName(),
-                                         "registerDeviceToMCSForPush");
+                        //possible problem could be an invalid or missing mobile client ID
+                        LOG.warning("deviceRegistrationHandler", "push.registration.notAuthorized", "operation", operation,
+                                    "status", responseObject.getResponseStatus(), "mcsMessage", responseObject.getResponsePayload());
                         } else if (responseObject.getResponseStatus() == HTTP_OK_STATUS) {
-                        FiFLogger.logFine(MAFUtil.getOsVendor()+" device "+operation+" successful.", this.getClass().getSimpleName(), "deviceRegistrationHandler");
-                        FiFLogger.logFine("Response is: "+responseObject.getResponsePayload(), this.getClass().getSimpleName(), "deviceRegistrationHandler");
+                        LOG.fine("deviceRegistrationHandler", "push.registration.success", "operation", operation, "vendor",
+                                 MAFUtil.getOsVendor(), "response", responseObject.getResponsePayload());
 
                         registrationSuccess = true;
                     }
                 }
 
             } catch (JSONException e) {
-                 FiFLogger.logWarning("Could not create JSONObject for payload: " + e.getMessage(),this.getClass().getSimpleName(), "deviceRegistrationHandler");            
+                 LOG.warning("deviceRegistrationHandler", "push.registration.payloadFailure", "error", e.getMessage());
             }                
             catch (Exception e) {
-                 FiFLogger.logWarning("Failure in sending REST request (e.getMessage): " + e.getMessage(),this.getClass().getSimpleName(), "deviceRegistrationHandler  ");  
-                 if(e.getCause()!=null){
-                    FiFLogger.logWarning("Failure in sending REST request (e.getCause().getLocalizedMessage()): " + e.getCause().getLocalizedMessage(),this.getClass().getSimpleName(), "deviceRegistrationHandler  ");  
-                 }
-                                  
+                 LOG.warning("deviceRegistrationHandler", "push.registration.failure", "uri", mcsURI, "error", e.getMessage(),
+                             "cause", e.getCause() != null ? e.getCause().getLocalizedMessage() : null);
             }        
         return registrationSuccess;
     }
@@ -232,8 +227,7 @@ public class Notifications {
             sb.append('}');
             return sb.toString();
         } catch (Exception e) {
-             FiFLogger.logWarning("Failed parsing JSONObject: " + jsonObjectToStringify + " to String",
-                             this.getClass().getSimpleName(), "stringifyJSONObject");
+             LOG.warning("stringifyJSONObject", "push.payload.stringifyFailure", "json", jsonObjectToStringify);
             return null;
         }
     }
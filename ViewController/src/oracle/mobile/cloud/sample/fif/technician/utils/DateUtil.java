@@ -1,39 +1,101 @@
 package oracle.mobile.cloud.sample.fif.technician.utils;
 
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.text.ParsePosition;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
 
 import java.util.Date;
-import java.util.TimeZone;
+import java.util.Locale;
 
 /**
+ * Date formatting and parsing used by the logger, the analytics events and the incident entities.
+ *
+ * Question 1: Why are the formatters static?
+ * Answer   1: Unlike SimpleDateFormat, DateTimeFormatter is immutable and thread safe. The formatters are created once
+ *             and shared by all threads instead of creating a SimpleDateFormat (and looking up the time zone) for each
+ *             log line, analytics event and queried incident.
+ *
  * @author Frank Nimphius
  * @copyright Copyright (c) 2015 Oracle. All rights reserved.
  */
 public class DateUtil {
 
+    //analytics and diagnostics timestamps, e.g. 2015-03-27T14:13:01.707Z
+    private static final DateTimeFormatter ISO_TIMESTAMP_FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter ISO_PARSE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+
+    //prefix of log messages
+    private static final DateTimeFormatter LOG_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyy-MM-dd hh:mm:ss");
+
+    //timestamp property of custom analytic events
+    private static final DateTimeFormatter EVENT_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd hh:mm:ss");
+
+    //"createdon" attribute of incidents queried from MCS, e.g. 2015-03-27 14:12:13 UTC. Only date, hours and minutes are read
+    private static final DateTimeFormatter INCIDENT_DATE_FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm", Locale.ENGLISH);
+
+    private DateUtil() {
+    }
+
     public static String getISOTimeStamp(Date date) {
-        TimeZone tz = TimeZone.getTimeZone("UTC");
-        DateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-        df.setTimeZone(tz);
-        String nowAsISO = df.format(date);
-        return nowAsISO;
+        return ISO_TIMESTAMP_FORMAT.format(date.toInstant());
     }
 
     public static Date parseToDate(String info){
         if (info == null)
             return null;
 
-        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
-        format.setTimeZone(TimeZone.getTimeZone("GMT"));
         Date date = null;
         try {
-            date = format.parse(info);
+            date = parseLeadingDate(ISO_PARSE_FORMAT, info, ZoneOffset.UTC);
         } catch (ParseException e) {
             e.printStackTrace();
         }
         return date;
     }
-}
 
+    /**
+     * @return current time in the format used for log messages
+     */
+    public static String getLogTimeStamp() {
+        return LOG_TIMESTAMP_FORMAT.format(LocalDateTime.now());
+    }
+
+    /**
+     * @return current time in the format used for the "timeStamp" property of custom analytic events
+     */
+    public static String getEventTimeStamp() {
+        return EVENT_TIMESTAMP_FORMAT.format(LocalDateTime.now());
+    }
+
+    /**
+     * Parses the creation date of an incident queried from MCS in the time zone of the device
+     * @param createdOn date string, e.g. 2015-03-27 14:12:13 UTC
+     * @return the creation date
+     * @throws ParseException if the string does not start with a date in the format yyyy-MM-dd HH:mm
+     */
+    public static Date parseIncidentDate(String createdOn) throws ParseException {
+        return parseLeadingDate(INCIDENT_DATE_FORMAT, createdOn, ZoneId.systemDefault());
+    }
+
+    /**
+     * Parses the date at the start of the text. Like SimpleDateFormat.parse(String), text after the date is ignored
+     */
+    private static Date parseLeadingDate(DateTimeFormatter formatter, String text, ZoneId zone) throws ParseException {
+        ParsePosition position = new ParsePosition(0);
+        try {
+            TemporalAccessor parsed = formatter.parse(text, position);
+            return Date.from(ZonedDateTime.of(LocalDateTime.from(parsed), zone).toInstant());
+        } catch (RuntimeException e) {
+            //DateTimeParseException or DateTimeException
+            throw new ParseException("Unparseable date: \"" + text + "\"", position.getErrorIndex());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package oracle.mobile.cloud.sample.fif.technician.utils;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import oracle.mobile.cloud.sample.fif.technician.app.log.AppLogger;
+
+
+/**
+ * Application wide executor for background work (incident queries, push registration, image fetching). Before, each
+ * of these code paths created its own thread pool for a single Runnable and shut it down again, which means thread
+ * creation and teardown on every list refresh and detail page open. All background tasks are now submitted to this
+ * single, bounded pool.
+ *
+ * The executor keeps simple counters that help to understand its behavior on the device: number of submitted,
+ * completed, failed and rejected tasks, the current and the peak queue depth, as well as the accumulated time tasks
+ * waited in the queue and spent executing.
+ *
+ * Question 1: What happens if the queue is full?
+ * Answer   1: The task is executed on the calling thread. This is slower for the caller but no work gets lost, which
+ *             is the behavior the application had before the background threads were introduced.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public final class FiFExecutor {
+
+    private static final String THREAD_NAME_PREFIX = "FiF-Worker-";
+
+    private static final int POOL_SIZE = 2;
+    private static final int QUEUE_CAPACITY = 32;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final AtomicLong submittedCount = new AtomicLong();
+    private static final AtomicLong completedCount = new AtomicLong();
+    private static final AtomicLong failedCount = new AtomicLong();
+    private static final AtomicLong rejectedCount = new AtomicLong();
+    private static final AtomicLong totalQueueWaitNanos = new AtomicLong();
+    private static final AtomicLong totalRunNanos = new AtomicLong();
+    private static final AtomicInteger peakQueueDepth = new AtomicInteger();
+
+    private static final ThreadPoolExecutor executor;
+
+    static {
+        executor =
+            new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                                   new LinkedBlockingQueue<Runnable>(QUEUE_CAPACITY), new NamedThreadFactory(),
+                                   new CallerRunsOnRejection());
+        //idle worker threads are released so the pool costs nothing while the app does not do background work
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private FiFExecutor() {
+    }
+
+    /**
+     * Queues a task for background execution
+     *
+     * @param taskName short name of the task, used in log messages about failed tasks
+     * @param task the Runnable to execute
+     */
+    public static void execute(String taskName, Runnable task) {
+        if (task == null) {
+            throw new IllegalArgumentException("'task' cannot be null");
+        }
+        submittedCount.incrementAndGet();
+        executor.execute(new InstrumentedTask(taskName, task));
+
+        int queueDepth = executor.getQueue().size();
+        int peak = peakQueueDepth.get();
+        while (queueDepth > peak && !peakQueueDepth.compareAndSet(peak, queueDepth)) {
+            peak = peakQueueDepth.get();
+        }
+    }
+
+    /**
+     * @return number of tasks waiting for a worker thread
+     */
+    public static int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public static int getPeakQueueDepth() {
+        return peakQueueDepth.get();
+    }
+
+    public static int getActiveTaskCount() {
+        return executor.getActiveCount();
+    }
+
+    public static long getSubmittedTaskCount() {
+        return submittedCount.get();
+    }
+
+    public static long getCompletedTaskCount() {
+        return completedCount.get();
+    }
+
+    public static long getFailedTaskCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return number of tasks that did not fit into the queue and were executed on the calling thread
+     */
+    public static long getRejectedTaskCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return average time in milliseconds a task waited in the queue before it started executing
+     */
+    public static long getAverageQueueWaitMillis() {
+        long finished = completedCount.get() + failedCount.get();
+        return finished == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalQueueWaitNanos.get() / finished);
+    }
+
+    /**
+     * @return average time in milliseconds a task spent executing
+     */
+    public static long getAverageRunMillis() {
+        long finished = completedCount.get() + failedCount.get();
+        return finished == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalRunNanos.get() / finished);
+    }
+
+    /**
+     * Flattens the executor counters into a String for logging
+     * @return String of key/value pairs
+     */
+    public static String dumpStatistics() {
+        return "[submitted:" + getSubmittedTaskCount() + ";completed:" + getCompletedTaskCount() + ";failed:" +
+               getFailedTaskCount() + ";rejected:" + getRejectedTaskCount() + ";active:" + getActiveTaskCount() +
+               ";queueDepth:" + getQueueDepth() + ";peakQueueDepth:" + getPeakQueueDepth() + ";avgQueueWaitMs:" +
+               getAverageQueueWaitMillis() + ";avgRunMs:" + getAverageRunMillis() + "]";
+    }
+
+
+    /**
+     * Wraps a Runnable to record queue wait and execution time
+     */
+    private static class InstrumentedTask implements Runnable {
+
+        private final String taskName;
+        private final Runnable task;
+        private final long enqueuedAt = System.nanoTime();
+
+        InstrumentedTask(String taskName, Runnable task) {
+            this.taskName = taskName;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.nanoTime();
+            totalQueueWaitNanos.addAndGet(startedAt - enqueuedAt);
+            try {
+                task.run();
+                completedCount.incrementAndGet();
+            } catch (RuntimeException e) {
+                failedCount.incrementAndGet();
+                AppLogger.logSevereError("Background task \"" + taskName + "\" failed with exception: " +
+                                         e.getMessage(), "FiFExecutor", "run");
+            } finally {
+                totalRunNanos.addAndGet(System.nanoTime() - startedAt);
+            }
+        }
+    }
+
+
+    /**
+     * Names worker threads so they can be identified in thread dumps and device logs
+     */
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+
+    /**
+     * Executes rejected tasks on the calling thread and counts them
+     */
+    private static class CallerRunsOnRejection implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor threadPoolExecutor) {
+            rejectedCount.incrementAndGet();
+            AppLogger.logWarning("Background queue is full. Executing task on calling thread.", "FiFExecutor",
+                                 "rejectedExecution");
+            if (!threadPoolExecutor.isShutdown()) {
+                runnable.run();
+            }
+        }
+    }
+}
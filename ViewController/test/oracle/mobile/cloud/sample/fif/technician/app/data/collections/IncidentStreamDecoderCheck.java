@@ -0,0 +1,221 @@
+package oracle.mobile.cloud.sample.fif.technician.app.data.collections;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.logging.Level;
+
+import oracle.adfmf.json.JSONArray;
+import oracle.adfmf.json.JSONException;
+import oracle.adfmf.json.JSONObject;
+
+import oracle.mobile.cloud.sample.fif.technician.app.data.entities.Incident;
+import oracle.mobile.cloud.sample.fif.technician.app.log.ComponentLogger;
+import oracle.mobile.cloud.sample.fif.technician.app.log.LogComponent;
+
+/**
+ * Compares the incidents decoded by the IncidentStreamDecoder with the incidents parsed from the same response with
+ * JSONObject and JSONArray, as the Incidents class does:
+ *
+ * - string escapes (\" \\ \/ \b \f \n \r \t and four digit unicode escapes, including a surrogate pair) and UTF-8
+ *   encoded characters, in values and in attribute names
+ * - nested objects and arrays in the incidents and in skipped top-level attributes, including strings that contain
+ *   brackets and escaped quotes
+ * - the {"items": [...]} layout with "items" before and after other attributes, and a plain array of incidents
+ * - an incident without contact, which both skip
+ * - empty input (no bytes, {}, [], {"items": []}), which gives no incidents
+ * - invalid input, and each prefix of a valid response, which both reject with a JSONException
+ *
+ * Run with the application classes and a JSON implementation of oracle.adfmf.json on the class path:
+ *
+ * java oracle.mobile.cloud.sample.fif.technician.app.data.collections.IncidentStreamDecoderCheck
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public final class IncidentStreamDecoderCheck {
+
+    private static final String INCIDENT_61 =
+        "{\"id\": 61, \"title\": \"Leaking \\\"Water\\\" Heater \\\\ valve\\/pipe\", " +
+        "\"createdon\": \"2015-03-27 14:12:13 UTC\", \"status\": \"New\", \"priority\": \"Low\", " +
+        "\"imageLink\": \"/mobile/platform/storage/collections/FIF_UserData/objects/db89fd14?user=46c5692a\", " +
+        "\"notes\": \"\\n2015-03-27T14:12:13.472Z\\nAOSmith water heater leaking.\\tPlease hurry\\r\\n\\n" +
+        "2015-03-27T14:13:01.707Z\\nMore water now.\\b\\f\\n\\n\", \"technician\": \"joe@fixit.com\", " +
+        "\"contact\": {\"name\": \"Lynn Sm\\u00eft\\u0068 \\ud83d\\ude00\", \"street\": \"45 O Connor Street\", " +
+        "\"city\": \"Ottawa\", \"postalCode\": \"12345\", \"username\": \"lynn\"}}";
+
+    private static final String INCIDENT_63 =
+        "{\"id\":63,\"ti\\u0074le\":\"Caf\u00e9 heater \u20ac\",\"createdon\":\"2015-04-01 12:59:09 UTC\"," +
+        "\"status\":\"InProgress\",\"priority\":\"High\",\"driveTime\":\"12 min\"," +
+        "\"history\":[{\"at\":\"2015-04-01\",\"changes\":[1,-2.5e3,true,false,null,{\"deep\":[[],{}]}]},[\"]}\"]]," +
+        "\"rating\":{\"score\":4.5,\"votes\":1234567890123,\"tags\":[\"a\",\"b\\\"]\"]},\"notes\":\"\"," +
+        "\"contact\":{\"name\":\"undefined undefined\",\"geo\":{\"lat\":45.42,\"lng\":-75.69}}}";
+
+    //no contact: populateInstanceFromJSON fails, the incident is skipped
+    private static final String INCIDENT_WITHOUT_CONTACT =
+        "{\"id\": 64, \"title\": \"No contact\", \"createdon\": \"2015-04-02 08:00:00 UTC\", \"status\": \"New\", " +
+        "\"priority\": \"Medium\"}";
+
+    private static final String INCIDENT_65 =
+        "\n\t{ \"id\" : 65 , \"title\" : \"Complete\" , \"createdon\" : \"2015-04-03 09:30:00 UTC\" , " +
+        "\"status\" : \"Complete\" , \"priority\" : \"Medium\" , \"contact\" : { \"name\" : \"Joe\" } }\r\n";
+
+    private static final String INCIDENTS =
+        INCIDENT_61 + ", " + INCIDENT_63 + ", " + INCIDENT_WITHOUT_CONTACT + ", " + INCIDENT_65;
+
+    private static final ArrayList<String> errors = new ArrayList<String>();
+
+    private IncidentStreamDecoderCheck() {
+    }
+
+    public static void main(String[] args) {
+        //the incident without contact is logged for each decoded response
+        ComponentLogger.setLevel(LogComponent.PARSING, Level.OFF);
+
+        String itemsFirst = "{\"items\": [" + INCIDENTS + "], \"count\": 4, \"hasMore\": false, \"limit\": 25, " +
+                            "\"links\": [{\"rel\": \"canonical\", \"href\": \"/incidents?x=\\\"]}\\\"\"}]}";
+        String itemsLast = "{\"links\": [{\"rel\": \"self\", \"href\": \"/incidents\"}], \"offset\": 0, " +
+                           "\"totalResults\": null, \"note\": \"\\\"items\\\": [\", \"filter\": {\"items\": []}, " +
+                           "\"items\": [" + INCIDENTS + "]}";
+        String bareArray = " [" + INCIDENTS + "] ";
+
+        checkSameAsJSONObject("items first", itemsFirst, 3);
+        checkSameAsJSONObject("items last", itemsLast, 3);
+        checkSameAsJSONObject("bare array", bareArray, 3);
+        checkSameAsJSONObject("empty object", "{}", 0);
+        checkSameAsJSONObject("empty array", "[]", 0);
+        checkSameAsJSONObject("empty items", "{ \"items\" : [ ] }", 0);
+        checkSameAsJSONObject("no items", "{\"count\": 0, \"links\": []}", 0);
+        checkEmptyInput();
+
+        checkRejected("whitespace only", "   ");
+        checkRejected("number", "42");
+        checkRejected("invalid escape", "[{\"id\": 1, \"title\": \"\\u12\"}]");
+        checkRejected("missing comma", "{\"items\": [" + INCIDENT_61 + " " + INCIDENT_63 + "]}");
+        checkTruncated("items first", itemsFirst);
+        checkTruncated("bare array", bareArray);
+
+        if (!errors.isEmpty()) {
+            for (String error : errors) {
+                System.out.println("FAILED: " + error);
+            }
+            System.exit(1);
+        }
+        System.out.println("OK: the decoder returns the same incidents as JSONObject parsing");
+    }
+
+    private static void checkSameAsJSONObject(String name, String json, int expectedCount) {
+        ArrayList<Incident> expected;
+        ArrayList<Incident> actual;
+        try {
+            expected = parseWithJSONObject(json);
+            actual = IncidentStreamDecoder.decode(json.getBytes(StandardCharsets.UTF_8));
+        } catch (JSONException e) {
+            errors.add(name + ": " + e.getMessage());
+            return;
+        }
+        check(expected.size() == expectedCount, name + ": JSONObject parsing found " + expected.size() + " incidents");
+        if (expected.size() != actual.size()) {
+            errors.add(name + ": " + actual.size() + " incidents decoded, " + expected.size() + " parsed");
+            return;
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            checkSameIncident(name, expected.get(i), actual.get(i));
+        }
+    }
+
+    private static void checkEmptyInput() {
+        try {
+            check(IncidentStreamDecoder.decode(new byte[0]).isEmpty(), "no bytes: incidents decoded");
+            check(IncidentStreamDecoder.decode(null).isEmpty(), "null: incidents decoded");
+        } catch (JSONException e) {
+            errors.add("empty input: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Both the decoder and JSONObject parsing must reject the response with a JSONException
+     */
+    private static void checkRejected(String name, String json) {
+        boolean parsed;
+        try {
+            parseWithJSONObject(json);
+            parsed = true;
+        } catch (JSONException e) {
+            parsed = false;
+        }
+        check(!parsed, name + ": accepted by JSONObject parsing");
+        try {
+            ArrayList<Incident> incidents = IncidentStreamDecoder.decode(json.getBytes(StandardCharsets.UTF_8));
+            errors.add(name + ": decoded " + incidents.size() + " incidents from invalid input");
+        } catch (JSONException e) {
+            //expected
+        } catch (RuntimeException e) {
+            errors.add(name + ": " + e + " instead of a JSONException");
+        }
+    }
+
+    /**
+     * Each prefix of the response must be rejected, whatever byte it ends in
+     */
+    private static void checkTruncated(String name, String json) {
+        byte[] data = json.trim().getBytes(StandardCharsets.UTF_8);
+        for (int length = 1; length < data.length; length++) {
+            byte[] truncated = new byte[length];
+            System.arraycopy(data, 0, truncated, 0, length);
+            try {
+                ArrayList<Incident> incidents = IncidentStreamDecoder.decode(truncated);
+                errors.add(name + " truncated to " + length + " bytes: decoded " + incidents.size() + " incidents");
+            } catch (JSONException e) {
+                //expected
+            } catch (RuntimeException e) {
+                errors.add(name + " truncated to " + length + " bytes: " + e + " instead of a JSONException");
+            }
+            if (errors.size() > 20) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Parses the response the way it was parsed before the decoder existed
+     */
+    private static ArrayList<Incident> parseWithJSONObject(String json) throws JSONException {
+        String trimmed = json.trim();
+        Incidents incidents = new Incidents();
+        if (trimmed.startsWith("[")) {
+            incidents.setItems(new JSONArray(trimmed));
+        } else {
+            incidents.setItems(new JSONObject(trimmed).optJSONArray("items"));
+        }
+        return incidents.populateIncidentList();
+    }
+
+    private static void checkSameIncident(String name, Incident expected, Incident actual) {
+        String id = name + ": incident " + expected.getId() + ": ";
+        check(expected.getId().equals(actual.getId()), id + "id " + actual.getId());
+        check(same(expected.getTitle(), actual.getTitle()), id + "title " + actual.getTitle());
+        check(same(expected.getCustomerName(), actual.getCustomerName()), id + "customer " + actual.getCustomerName());
+        check(expected.getCreatedOn() == null ? actual.getCreatedOn() == null :
+              expected.getCreatedOn().equals(actual.getCreatedOn()), id + "createdOn " + actual.getCreatedOn());
+        check(same(expected.getPriority(), actual.getPriority()), id + "priority " + actual.getPriority());
+        check(same(expected.getPriorityImg(), actual.getPriorityImg()), id + "priorityImg " + actual.getPriorityImg());
+        check(same(expected.getStatus(), actual.getStatus()), id + "status " + actual.getStatus());
+        check(same(expected.getDrivingTime(), actual.getDrivingTime()), id + "drivingTime " + actual.getDrivingTime());
+        check(same(expected.getStreet(), actual.getStreet()), id + "street " + actual.getStreet());
+        check(same(expected.getCity(), actual.getCity()), id + "city " + actual.getCity());
+        check(same(expected.getPostalCode(), actual.getPostalCode()), id + "postalCode " + actual.getPostalCode());
+        check(same(expected.getRemoteImgLink(), actual.getRemoteImgLink()),
+              id + "imageLink " + actual.getRemoteImgLink());
+        check(same(expected.getRawNotes(), actual.getRawNotes()), id + "notes " + actual.getRawNotes());
+    }
+
+    private static boolean same(String value, String otherValue) {
+        return value == null ? otherValue == null : value.equals(otherValue);
+    }
+
+    private static void check(boolean condition, String error) {
+        if (!condition) {
+            errors.add(error);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package oracle.mobile.cloud.sample.fif.technician.app.data.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the time Incident.splitNotes() takes to split incident notes with the previous implementation, which
+ * compiled the date pattern and scanned the notes string again from each date it found. Both implementations must
+ * return the same note items.
+ *
+ * Run with the application classes on the class path:
+ *
+ * java oracle.mobile.cloud.sample.fif.technician.app.data.entities.NoteSplitBenchmark [iterations]
+ *
+ * Question 1: How reliable are the numbers?
+ * Answer   1: Each implementation is warmed up before it is measured, and the result is used so the work is not
+ *             optimized away. The numbers show the difference between the two implementations on the same JVM, not
+ *             the time on a device.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public final class NoteSplitBenchmark {
+
+    private static final String NOTE_DATE_REGEX = "[\\d]{4}-[\\d]{2}-[\\d]{2}[\\D][\\d]{2}:[\\d]{2}:[\\d][\\d].[\\d]+[\\D]";
+
+    private NoteSplitBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        boolean failed = false;
+
+        for (int notesPerIncident : new int[] { 1, 5, 20, 100 }) {
+            String notes = createNotes(notesPerIncident);
+            if (!sameNotes(Incident.splitNotes(notes), splitNotesPerMatch(notes))) {
+                System.out.println("FAILED: the implementations return different notes for " + notesPerIncident +
+                                   " notes");
+                failed = true;
+                continue;
+            }
+            //warm up both implementations before measuring
+            run(notes, iterations, true);
+            run(notes, iterations, false);
+            long currentNanos = run(notes, iterations, true);
+            long previousNanos = run(notes, iterations, false);
+            System.out.println("notes=" + notesPerIncident + " chars=" + notes.length() + " splitNotes=" +
+                               currentNanos / iterations + "ns previous=" + previousNanos / iterations + "ns");
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return duration in nanoseconds
+     */
+    private static long run(String notes, int iterations, boolean current) {
+        long noteCount = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            noteCount += current ? Incident.splitNotes(notes).size() : splitNotesPerMatch(notes).size();
+        }
+        long duration = System.nanoTime() - start;
+        if (noteCount != (long) iterations * Incident.splitNotes(notes).size()) {
+            throw new IllegalStateException("unexpected note count " + noteCount);
+        }
+        return duration;
+    }
+
+    /**
+     * @return notes string as MCS returns it, each note starts with a line break and a date
+     */
+    private static String createNotes(int count) {
+        StringBuilder notes = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            notes.append("\n2015-03-27T14:").append(10 + i % 50).append(':').append(10 + i % 49).append('.')
+                 .append(100 + i % 900).append("Z\n");
+            notes.append(i % 2 == 0 ? "AOSmith water heater leaking from right valve. Please hurry- water all over " +
+                                      "basement floor." : "More water now. Technician on the way, ETA 20 minutes.");
+            notes.append("\n\n");
+        }
+        return notes.toString();
+    }
+
+    private static boolean sameNotes(List<NoteItem> notes, List<NoteItem> otherNotes) {
+        if (notes.size() != otherNotes.size()) {
+            return false;
+        }
+        for (int i = 0; i < notes.size(); i++) {
+            if (notes.get(i).getIndex() != otherNotes.get(i).getIndex() ||
+                !notes.get(i).getMessage().equals(otherNotes.get(i).getMessage())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Previous implementation of the note split, kept as baseline
+     */
+    private static ArrayList<NoteItem> splitNotesPerMatch(String note) {
+        ArrayList<NoteItem> tempListOfNotes = new ArrayList<NoteItem>();
+        if (note != null && note.length() != 0) {
+            int startIndexOfDateString = findIndexOfDateString(0, note);
+            int noteCount = 1;
+            while (startIndexOfDateString > -1) {
+                int secondOccurenceIndexOfDateString = findIndexOfDateString(startIndexOfDateString + 1, note);
+                NoteItem item = new NoteItem();
+                item.setIndex(noteCount);
+                if (secondOccurenceIndexOfDateString < 0) {
+                    item.setMessage(note.substring(startIndexOfDateString).trim());
+                    tempListOfNotes.add(item);
+                    break;
+                }
+                item.setMessage(note.substring(startIndexOfDateString, secondOccurenceIndexOfDateString - 1).trim());
+                tempListOfNotes.add(item);
+                startIndexOfDateString = secondOccurenceIndexOfDateString;
+                noteCount++;
+            }
+        }
+        return new ArrayList<NoteItem>(tempListOfNotes);
+    }
+
+    private static int findIndexOfDateString(int startIndex, String inputStr) {
+        Matcher matcher = Pattern.compile(NOTE_DATE_REGEX).matcher(inputStr);
+        return matcher.find(startIndex) ? matcher.start() : -1;
+    }
+}
@@ -0,0 +1,199 @@
+package oracle.mobile.cloud.sample.fif.technician.app.data.store;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import oracle.mobile.cloud.sample.fif.technician.app.data.entities.Incident;
+import oracle.mobile.cloud.sample.fif.technician.app.data.entities.NoteItem;
+
+/**
+ * Checks the IncidentStore with a temporary SQLite database file:
+ *
+ * - incidents saved with replaceIncidents() are loaded with the same values, notes and order
+ * - notes that have not been split are saved without splitting them and are split when they are read after loading
+ * - replaceIncidents() deletes the incidents no longer queried and keeps the incidents of other technicians
+ * - the incidents are still there after the store is closed and opened again
+ * - a database with tables of an older version is recreated
+ *
+ * Run with the application classes and a SQLite JDBC driver (e.g. org.xerial:sqlite-jdbc) on the class path:
+ *
+ * java oracle.mobile.cloud.sample.fif.technician.app.data.store.IncidentStoreCheck
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public final class IncidentStoreCheck {
+
+    private static final String JOE = "joe@fixit.com";
+    private static final String JILL = "jill@fixit.com";
+
+    private static final String RAW_NOTES =
+        "\n2015-03-27T14:12:13.472Z\nAOSmith water heater leaking from right valve. Please hurry- water all over " +
+        "basement floor.\n\n2015-03-27T14:13:01.707Z\nMore water now.\n\n";
+
+    private static final ArrayList<String> errors = new ArrayList<String>();
+
+    private IncidentStoreCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        File databaseFile = File.createTempFile("fif-incidents", ".db");
+        String jdbcUrl = "jdbc:sqlite:" + databaseFile.getPath();
+        try {
+            checkRoundTrip(jdbcUrl);
+            checkReconcile(jdbcUrl);
+            checkOldSchema(databaseFile);
+        } finally {
+            databaseFile.delete();
+        }
+
+        if (!errors.isEmpty()) {
+            for (String error : errors) {
+                System.out.println("FAILED: " + error);
+            }
+            System.exit(1);
+        }
+        System.out.println("OK: round trip, unsplit notes, reconcile, reopen and old schema");
+    }
+
+    private static void checkRoundTrip(String jdbcUrl) {
+        IncidentStore store = new IncidentStore(jdbcUrl);
+        check(store.loadIncidents(JOE).isEmpty(), "round trip: incidents loaded from an empty database");
+
+        Incident unsplit = createIncident(61, "Water heater leaking", new Date(1427465533472L), "InProgress");
+        unsplit.setRawNotes(RAW_NOTES);
+        Incident split = createIncident(62, "Dishwasher broken", new Date(1427465581707L), "New");
+        split.setRawNotes(RAW_NOTES);
+        split.getNotes();
+        Incident noNotes = createIncident(63, "Fridge noisy", null, "Complete");
+        List<Incident> incidents = Arrays.asList(unsplit, split, noNotes);
+
+        store.replaceIncidents(JOE, incidents);
+        check(unsplit.getRawNotes() != null, "round trip: notes split when the incidents were saved");
+
+        store.close();
+        ArrayList<Incident> loaded = new IncidentStore(jdbcUrl).loadIncidents(JOE);
+        check(loaded.size() == incidents.size(), "round trip: " + loaded.size() + " incidents loaded after reopen");
+        if (loaded.size() == incidents.size()) {
+            check(loaded.get(0).getRawNotes() != null, "round trip: unsplit notes loaded as note items");
+            check(loaded.get(1).getRawNotes() == null, "round trip: split notes loaded as notes string");
+        }
+        for (int i = 0; i < Math.min(loaded.size(), incidents.size()); i++) {
+            checkSameIncident(incidents.get(i), loaded.get(i));
+        }
+    }
+
+    private static void checkReconcile(String jdbcUrl) {
+        IncidentStore store = new IncidentStore(jdbcUrl);
+        store.replaceIncidents(JOE, Arrays.asList(createIncident(71, "Boiler", null, "New"),
+                                                  createIncident(72, "Sink", null, "New"),
+                                                  createIncident(73, "Shower", null, "New")));
+        store.replaceIncidents(JILL, Arrays.asList(createIncident(81, "Heater", null, "New")));
+
+        //MCS no longer returns 71, and the order changed
+        store.replaceIncidents(JOE, Arrays.asList(createIncident(73, "Shower", null, "Complete"),
+                                                  createIncident(72, "Sink", null, "InProgress")));
+
+        ArrayList<Incident> loaded = store.loadIncidents(JOE);
+        check(ids(loaded).equals(Arrays.asList(73, 72)), "reconcile: joe's incidents " + ids(loaded));
+        check(loaded.size() == 2 && "Complete".equals(loaded.get(0).getStatus()),
+              "reconcile: status of 73 not replaced");
+        check(ids(store.loadIncidents(JILL)).equals(Arrays.asList(81)),
+              "reconcile: jill's incidents " + ids(store.loadIncidents(JILL)));
+        store.close();
+    }
+
+    private static void checkOldSchema(File databaseFile) throws SQLException, IOException {
+        //database of the first version: no RAW_NOTES column, user_version 0
+        if (!databaseFile.delete()) {
+            throw new IOException("Cannot delete " + databaseFile);
+        }
+        String jdbcUrl = "jdbc:sqlite:" + databaseFile.getPath();
+        Connection connection = DriverManager.getConnection(jdbcUrl);
+        try {
+            Statement statement = connection.createStatement();
+            statement.executeUpdate("CREATE TABLE INCIDENT (ID INTEGER PRIMARY KEY, TECHNICIAN TEXT NOT NULL, " +
+                                    "LIST_POSITION INTEGER, TITLE TEXT, CUSTOMER_NAME TEXT, CREATED_ON INTEGER, " +
+                                    "PRIORITY TEXT, PRIORITY_IMG TEXT, STATUS TEXT, DRIVING_TIME TEXT, STREET TEXT, " +
+                                    "CITY TEXT, POSTAL_CODE TEXT, IMAGE_LINK TEXT)");
+            statement.executeUpdate("INSERT INTO INCIDENT (ID, TECHNICIAN, TITLE) VALUES (91, '" + JOE + "', 'Old')");
+            statement.close();
+        } finally {
+            connection.close();
+        }
+
+        IncidentStore store = new IncidentStore(jdbcUrl);
+        check(store.loadIncidents(JOE).isEmpty(), "old schema: incidents of the old tables loaded");
+        Incident incident = createIncident(92, "New schema", null, "New");
+        incident.setRawNotes(RAW_NOTES);
+        store.replaceIncidents(JOE, Arrays.asList(incident));
+        ArrayList<Incident> loaded = store.loadIncidents(JOE);
+        check(loaded.size() == 1, "old schema: " + loaded.size() + " incidents loaded after the upgrade");
+        if (loaded.size() == 1) {
+            checkSameIncident(incident, loaded.get(0));
+        }
+        store.close();
+    }
+
+    private static Incident createIncident(int id, String title, Date createdOn, String status) {
+        Incident incident = new Incident(id, title, "Lynn Smith", createdOn, "High", status, "25 min",
+                                         new ArrayList<NoteItem>(), "Redwood Shores", "500 Oracle Parkway", "94065",
+                                         "/mobile/platform/storage/collections/FIF_Images/objects/" + id + ".jpg");
+        incident.setPriorityImg("pri3.png");
+        return incident;
+    }
+
+    private static void checkSameIncident(Incident expected, Incident actual) {
+        String id = "incident " + expected.getId() + ": ";
+        check(expected.getId().equals(actual.getId()), id + "id " + actual.getId());
+        check(same(expected.getTitle(), actual.getTitle()), id + "title " + actual.getTitle());
+        check(same(expected.getCustomerName(), actual.getCustomerName()), id + "customer " + actual.getCustomerName());
+        check(expected.getCreatedOn() == null ? actual.getCreatedOn() == null :
+              expected.getCreatedOn().equals(actual.getCreatedOn()), id + "createdOn " + actual.getCreatedOn());
+        check(same(expected.getPriority(), actual.getPriority()), id + "priority " + actual.getPriority());
+        check(same(expected.getPriorityImg(), actual.getPriorityImg()), id + "priorityImg " + actual.getPriorityImg());
+        check(same(expected.getStatus(), actual.getStatus()), id + "status " + actual.getStatus());
+        check(same(expected.getDrivingTime(), actual.getDrivingTime()), id + "drivingTime " + actual.getDrivingTime());
+        check(same(expected.getStreet(), actual.getStreet()), id + "street " + actual.getStreet());
+        check(same(expected.getCity(), actual.getCity()), id + "city " + actual.getCity());
+        check(same(expected.getPostalCode(), actual.getPostalCode()), id + "postalCode " + actual.getPostalCode());
+        check(same(expected.getRemoteImgLink(), actual.getRemoteImgLink()),
+              id + "imageLink " + actual.getRemoteImgLink());
+
+        List<NoteItem> expectedNotes = expected.getNotes();
+        List<NoteItem> actualNotes = actual.getNotes();
+        boolean sameNotes = actualNotes != null && expectedNotes.size() == actualNotes.size();
+        for (int i = 0; sameNotes && i < expectedNotes.size(); i++) {
+            sameNotes = expectedNotes.get(i).getIndex() == actualNotes.get(i).getIndex() &&
+                        same(expectedNotes.get(i).getMessage(), actualNotes.get(i).getMessage());
+        }
+        check(sameNotes, id + "notes differ");
+    }
+
+    private static ArrayList<Integer> ids(List<Incident> incidents) {
+        ArrayList<Integer> ids = new ArrayList<Integer>();
+        for (Incident incident : incidents) {
+            ids.add(incident.getId());
+        }
+        return ids;
+    }
+
+    private static boolean same(String value, String otherValue) {
+        return value == null ? otherValue == null : value.equals(otherValue);
+    }
+
+    private static void check(boolean condition, String error) {
+        if (!condition) {
+            errors.add(error);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package oracle.mobile.cloud.sample.fif.technician.app.data.sync;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import oracle.mobile.cloud.sample.fif.technician.maf.RetryPolicy;
+
+/**
+ * Checks the incident outbox with a FileIncidentOutboxStore in a temporary directory:
+ *
+ * - updates saved to the file are loaded with the same values
+ * - a temporary file left by a crash is loaded if the outbox file is missing or cannot be parsed
+ * - two changes of the same incident are compacted into one update, also in the file
+ * - the updates of a user who is not logged in are kept and only sent after this user logged in
+ * - updates made offline are sent when the network is back, and are removed from the file then
+ *
+ * The updates are sent by a Sender that records them instead of calling MCS, the network state is set by the harness.
+ *
+ * Run with the application classes on the class path:
+ *
+ * java oracle.mobile.cloud.sample.fif.technician.app.data.sync.IncidentOutboxCheck
+ *
+ * Question 1: Why does the harness run for about 15 seconds?
+ * Answer   1: The queue checks the network every 15 seconds while the device is offline. The offline case waits for
+ *             the first check after the network is back.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public final class IncidentOutboxCheck {
+
+    private static final long SEND_TIMEOUT_MILLIS = 20000;
+
+    private static final ArrayList<String> errors = new ArrayList<String>();
+
+    private IncidentOutboxCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        File directory = createTempDirectory();
+        try {
+            checkRoundTrip(new File(directory, "roundtrip.json"));
+            checkRecovery(new File(directory, "recovery.json"));
+            checkCompaction(new File(directory, "compaction.json"));
+            checkOtherUser(new File(directory, "users.json"));
+            checkOfflineToOnline(new File(directory, "offline.json"));
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+
+        if (!errors.isEmpty()) {
+            for (String error : errors) {
+                System.out.println("FAILED: " + error);
+            }
+            System.exit(1);
+        }
+        System.out.println("OK: round trip, recovery, compaction, other user and offline drain");
+    }
+
+    private static void checkRoundTrip(File file) throws IOException {
+        FileIncidentOutboxStore store = new FileIncidentOutboxStore(file);
+        check(store.load().isEmpty(), "round trip: missing file is not an empty outbox");
+
+        List<IncidentStatusUpdate> updates =
+            Arrays.asList(new IncidentStatusUpdate("61", "joe", "InProgress", "On my way", "New", 1434101000000L),
+                          new IncidentStatusUpdate("62", "jill", "Complete", null, null, 1434101060000L),
+                          new IncidentStatusUpdate("63", "joe", "Complete", "Valve \"A\" replaced\nTested", "InProgress",
+                                                   1434101120000L));
+        store.save(updates);
+        check(!new File(file.getPath() + ".tmp").exists(), "round trip: temporary file not renamed");
+
+        ArrayList<IncidentStatusUpdate> loaded = new FileIncidentOutboxStore(file).load();
+        check(loaded.size() == updates.size(), "round trip: " + loaded.size() + " updates loaded");
+        for (int i = 0; i < Math.min(loaded.size(), updates.size()); i++) {
+            check(sameUpdate(updates.get(i), loaded.get(i)),
+                  "round trip: " + loaded.get(i) + " loaded for " + updates.get(i));
+        }
+    }
+
+    private static void checkRecovery(File file) throws IOException {
+        FileIncidentOutboxStore store = new FileIncidentOutboxStore(file);
+        File tempFile = new File(file.getPath() + ".tmp");
+        IncidentStatusUpdate update = new IncidentStatusUpdate("71", "joe", "Complete", "Done", "InProgress", 1L);
+
+        //crash after the temporary file was written, before the rename
+        store.save(Arrays.asList(update));
+        check(file.renameTo(tempFile), "recovery: cannot move the outbox file");
+        ArrayList<IncidentStatusUpdate> loaded = store.load();
+        check(loaded.size() == 1 && sameUpdate(update, loaded.get(0)), "recovery: temporary file not loaded");
+
+        //outbox file written partly, e.g. power loss
+        writeFile(file, "[{\"incidentId\":\"71\",\"userna");
+        loaded = store.load();
+        check(loaded.size() == 1 && sameUpdate(update, loaded.get(0)),
+              "recovery: temporary file not loaded for a corrupt outbox file");
+
+        //no temporary file to recover from
+        check(tempFile.delete(), "recovery: cannot delete the temporary file");
+        try {
+            store.load();
+            check(false, "recovery: corrupt outbox file loaded without error");
+        } catch (IOException e) {
+            //expected
+        }
+    }
+
+    private static void checkCompaction(File file) throws Exception {
+        RecordingSender sender = new RecordingSender();
+        SettableNetwork network = new SettableNetwork(false);
+        IncidentUpdateQueue queue = createQueue(sender, file, network);
+        queue.drainPendingUpdates("joe");
+
+        queue.enqueue(new IncidentStatusUpdate("81", "joe", "InProgress", "On my way", "New"));
+        queue.enqueue(new IncidentStatusUpdate("81", "joe", "Complete", "Valve replaced", "InProgress"));
+        queue.enqueue(new IncidentStatusUpdate("82", "joe", "InProgress", null, "New"));
+
+        check(queue.size() == 2, "compaction: " + queue.size() + " updates queued");
+        check(queue.getCompactedCount() == 1, "compaction: compacted count " + queue.getCompactedCount());
+        ArrayList<IncidentStatusUpdate> saved = new FileIncidentOutboxStore(file).load();
+        check(saved.size() == 2, "compaction: " + saved.size() + " updates saved");
+        if (!saved.isEmpty()) {
+            IncidentStatusUpdate compacted = saved.get(0);
+            check("81".equals(compacted.getIncidentId()) && "Complete".equals(compacted.getStatus()) &&
+                  "New".equals(compacted.getPreviousStatus()) &&
+                  "On my way\nValve replaced".equals(compacted.getNotes()), "compaction: saved as " + compacted);
+        }
+        check(sender.getSent().isEmpty(), "compaction: updates sent while offline");
+    }
+
+    private static void checkOtherUser(File file) throws Exception {
+        FileIncidentOutboxStore store = new FileIncidentOutboxStore(file);
+        store.save(Arrays.asList(new IncidentStatusUpdate("91", "jill", "Complete", "Done", "InProgress", 1L),
+                                 new IncidentStatusUpdate("92", "joe", "InProgress", null, "New", 2L)));
+
+        RecordingSender sender = new RecordingSender();
+        IncidentUpdateQueue queue = createQueue(sender, file, new SettableNetwork(true));
+        check(queue.size() == 2, "other user: " + queue.size() + " updates loaded");
+
+        queue.drainPendingUpdates("joe");
+        waitForSent(sender, 1);
+        Thread.sleep(200);
+        check(sender.getSentIds().equals(Arrays.asList("92")), "other user: joe's queue sent " + sender.getSentIds());
+        check(queue.getPendingUpdates().isEmpty(), "other user: jill's update visible to joe");
+        check(!queue.hasPendingUpdate("91"), "other user: jill's update pending for joe");
+        check(queue.size() == 1, "other user: " + queue.size() + " updates kept");
+        ArrayList<IncidentStatusUpdate> saved = store.load();
+        check(saved.size() == 1 && "jill".equals(saved.get(0).getUsername()),
+              "other user: jill's update not kept in the file");
+
+        queue.drainPendingUpdates("jill");
+        waitForSent(sender, 2);
+        check(sender.getSentIds().equals(Arrays.asList("92", "91")), "other user: sent " + sender.getSentIds());
+        check(queue.size() == 0 && store.load().isEmpty(), "other user: jill's update not removed after sending");
+    }
+
+    private static void checkOfflineToOnline(File file) throws Exception {
+        RecordingSender sender = new RecordingSender();
+        SettableNetwork network = new SettableNetwork(false);
+        IncidentUpdateQueue queue = createQueue(sender, file, network);
+        queue.drainPendingUpdates("joe");
+
+        queue.enqueue(new IncidentStatusUpdate("101", "joe", "InProgress", "On my way", "New"));
+        queue.enqueue(new IncidentStatusUpdate("102", "joe", "Complete", null, "InProgress"));
+        Thread.sleep(500);
+        check(sender.getSent().isEmpty(), "offline: updates sent while offline");
+        check(new FileIncidentOutboxStore(file).load().size() == 2, "offline: updates not saved");
+
+        //the application restarts while offline: the updates are loaded from the file
+        RecordingSender restartedSender = new RecordingSender();
+        IncidentUpdateQueue restartedQueue = createQueue(restartedSender, file, network);
+        restartedQueue.drainPendingUpdates("joe");
+        check(restartedQueue.size() == 2, "offline: " + restartedQueue.size() + " updates loaded after restart");
+        //let the queue find the device offline before the network is back
+        Thread.sleep(500);
+        check(restartedSender.getSent().isEmpty(), "offline: loaded updates sent while offline");
+
+        network.setOnline(true);
+        waitForSent(restartedSender, 2);
+        check(restartedSender.getSentIds().equals(Arrays.asList("101", "102")),
+              "offline: sent " + restartedSender.getSentIds() + " after the network is back");
+        check(restartedQueue.size() == 0, "offline: " + restartedQueue.size() + " updates left after sending");
+        check(new FileIncidentOutboxStore(file).load().isEmpty(), "offline: sent updates still in the file");
+    }
+
+    private static IncidentUpdateQueue createQueue(RecordingSender sender, File file, SettableNetwork network) {
+        IncidentUpdateQueue.Listener listener = new IncidentUpdateQueue.Listener() {
+            public void updateSent(IncidentStatusUpdate update) {
+            }
+
+            public void updateFailed(IncidentStatusUpdate update, int status, String message) {
+                errors.add("update failed: " + update + " status " + status + " " + message);
+            }
+
+            public void updateUnconfirmed(IncidentStatusUpdate update, String message) {
+                errors.add("update unconfirmed: " + update + " " + message);
+            }
+        };
+        return new IncidentUpdateQueue(sender, listener, RetryPolicy.NONE, new FileIncidentOutboxStore(file), network);
+    }
+
+    private static void waitForSent(RecordingSender sender, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + SEND_TIMEOUT_MILLIS;
+        while (sender.getSent().size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        check(sender.getSent().size() >= count,
+              sender.getSent().size() + " updates sent within " + SEND_TIMEOUT_MILLIS + "ms, expected " + count);
+    }
+
+    private static boolean sameUpdate(IncidentStatusUpdate expected, IncidentStatusUpdate actual) {
+        return expected.getIncidentId().equals(actual.getIncidentId()) &&
+               expected.getUsername().equals(actual.getUsername()) && same(expected.getStatus(), actual.getStatus()) &&
+               same(expected.getNotes(), actual.getNotes()) &&
+               same(expected.getPreviousStatus(), actual.getPreviousStatus()) &&
+               expected.getCreatedAt() == actual.getCreatedAt();
+    }
+
+    private static boolean same(String value, String otherValue) {
+        return value == null ? otherValue == null : value.equals(otherValue);
+    }
+
+    private static void check(boolean condition, String error) {
+        if (!condition) {
+            synchronized (errors) {
+                errors.add(error);
+            }
+        }
+    }
+
+    private static File createTempDirectory() throws IOException {
+        File directory = File.createTempFile("fif-outbox", "");
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        return directory;
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            out.close();
+        }
+    }
+
+
+    /**
+     * Records the updates instead of sending them to MCS
+     */
+    private static class RecordingSender implements IncidentUpdateQueue.Sender {
+
+        private final ArrayList<IncidentStatusUpdate> sent = new ArrayList<IncidentStatusUpdate>();
+
+        public synchronized int send(IncidentStatusUpdate update) {
+            sent.add(update);
+            return 200;
+        }
+
+        synchronized ArrayList<IncidentStatusUpdate> getSent() {
+            return new ArrayList<IncidentStatusUpdate>(sent);
+        }
+
+        synchronized ArrayList<String> getSentIds() {
+            ArrayList<String> ids = new ArrayList<String>();
+            for (IncidentStatusUpdate update : sent) {
+                ids.add(update.getIncidentId());
+            }
+            return ids;
+        }
+    }
+
+
+    /**
+     * Network state set by the harness
+     */
+    private static class SettableNetwork implements IncidentUpdateQueue.NetworkMonitor {
+
+        private volatile boolean online;
+
+        SettableNetwork(boolean online) {
+            this.online = online;
+        }
+
+        public boolean isOnline() {
+            return online;
+        }
+
+        void setOnline(boolean online) {
+            this.online = online;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package oracle.mobile.cloud.sample.fif.technician.app.log;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import oracle.adfmf.util.Utility;
+
+/**
+ * Stress harness for the LogRingBuffer and the AsyncLogSink. The harness checks:
+ *
+ * 1. LogRingBuffer: several producer threads offer numbered records to a small buffer while one consumer polls it.
+ *    Every record is polled exactly once and the records of a producer come out in the order they were added.
+ * 2. AsyncLogSink with WRITE_ON_CALLER: several producer threads log numbered messages, far more than the buffer
+ *    holds, while the writer thread runs. After flush() every message is in the application log exactly once, the
+ *    messages of a producer are in the order they were logged and no record was dropped.
+ *
+ * Run with the application classes on the class path:
+ *
+ * java oracle.mobile.cloud.sample.fif.technician.app.log.LogSinkStress [producers] [recordsPerProducer]
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public final class LogSinkStress {
+
+    private static final int RING_BUFFER_CAPACITY = 8;
+
+    private LogSinkStress() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int recordsPerProducer = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+
+        ArrayList<String> errors = new ArrayList<String>();
+        checkRingBuffer(producers, recordsPerProducer, errors);
+        checkWriteOnCaller(producers, recordsPerProducer, errors);
+
+        if (!errors.isEmpty()) {
+            for (String error : errors) {
+                System.out.println("FAILED: " + error);
+            }
+            System.exit(1);
+        }
+        System.out.println("OK: no log record lost or duplicated, order kept per producer");
+    }
+
+    private static void checkRingBuffer(final int producers, final int recordsPerProducer, ArrayList<String> errors)
+        throws InterruptedException {
+
+        final LogRingBuffer buffer = new LogRingBuffer(RING_BUFFER_CAPACITY);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch producersDone = new CountDownLatch(producers);
+
+        for (int p = 0; p < producers; p++) {
+            final String producerName = Integer.toString(p);
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < recordsPerProducer; i++) {
+                            AsyncLogSink.LogRecord record =
+                                new AsyncLogSink.LogRecord(Level.INFO, producerName, "run", Integer.toString(i));
+                            while (!buffer.offer(record)) {
+                                Thread.yield();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        producersDone.countDown();
+                    }
+                }
+            }, "ring-producer-" + p).start();
+        }
+
+        int[] expectedSequence = new int[producers];
+        int polled = 0;
+        long startTime = System.nanoTime();
+        start.countDown();
+        boolean done = false;
+        while (!done) {
+            //read before polling, so the last poll happens after all producers finished
+            done = producersDone.getCount() == 0;
+            AsyncLogSink.LogRecord record;
+            while ((record = buffer.poll()) != null) {
+                checkSequence("ring buffer", Integer.parseInt(record.sourceClass), Integer.parseInt(record.message),
+                              expectedSequence, errors);
+                polled++;
+            }
+            //let the producers run on devices with few cores
+            Thread.yield();
+        }
+        long durationMillis = (System.nanoTime() - startTime) / 1000000;
+
+        checkTotals("ring buffer", expectedSequence, recordsPerProducer, polled, errors);
+        if (buffer.size() != 0) {
+            errors.add("ring buffer: not empty after the last poll: size " + buffer.size());
+        }
+        System.out.println("ring buffer: producers=" + producers + " records=" + polled + " capacity=" +
+                           buffer.capacity() + " durationMs=" + durationMillis);
+    }
+
+    private static void checkWriteOnCaller(final int producers, final int recordsPerProducer, ArrayList<String> errors)
+        throws InterruptedException {
+
+        final ArrayList<LogRecord> written = new ArrayList<LogRecord>();
+        Handler handler = new Handler() {
+            public void publish(LogRecord record) {
+                synchronized (written) {
+                    written.add(record);
+                }
+            }
+
+            public void flush() {
+            }
+
+            public void close() {
+            }
+        };
+        Utility.ApplicationLogger.setUseParentHandlers(false);
+        Utility.ApplicationLogger.setLevel(Level.ALL);
+        Utility.ApplicationLogger.addHandler(handler);
+
+        AsyncLogSink.setAsynchronous(true);
+        AsyncLogSink.setOverflowPolicy(AsyncLogSink.OverflowPolicy.WRITE_ON_CALLER);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final String producerName = Integer.toString(p);
+            threads[p] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < recordsPerProducer; i++) {
+                            AsyncLogSink.write(Level.INFO, producerName, "run", Integer.toString(i));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, "sink-producer-" + p);
+            threads[p].start();
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        AsyncLogSink.flush();
+        long durationMillis = (System.nanoTime() - startTime) / 1000000;
+        Utility.ApplicationLogger.removeHandler(handler);
+
+        int[] expectedSequence = new int[producers];
+        synchronized (written) {
+            for (LogRecord record : written) {
+                checkSequence("sink", Integer.parseInt(record.getSourceClassName()),
+                              Integer.parseInt(record.getMessage()), expectedSequence, errors);
+            }
+            checkTotals("sink", expectedSequence, recordsPerProducer, written.size(), errors);
+        }
+        if (AsyncLogSink.getDroppedCount() != 0) {
+            errors.add("sink: " + AsyncLogSink.getDroppedCount() + " records dropped");
+        }
+        if (AsyncLogSink.getBufferedCount() != 0) {
+            errors.add("sink: " + AsyncLogSink.getBufferedCount() + " records left in the buffer after flush()");
+        }
+        System.out.println("sink: producers=" + producers + " records=" + written.size() + " statistics=" +
+                           AsyncLogSink.dumpStatistics() + " durationMs=" + durationMillis);
+    }
+
+    private static void checkSequence(String name, int producer, int sequence, int[] expectedSequence,
+                                      ArrayList<String> errors) {
+        if (sequence != expectedSequence[producer] && errors.size() < 20) {
+            errors.add(name + ": producer " + producer + ": expected record " + expectedSequence[producer] +
+                       " but got " + sequence);
+        }
+        expectedSequence[producer] = sequence + 1;
+    }
+
+    private static void checkTotals(String name, int[] expectedSequence, int recordsPerProducer, int total,
+                                    ArrayList<String> errors) {
+        for (int p = 0; p < expectedSequence.length; p++) {
+            if (expectedSequence[p] != recordsPerProducer) {
+                errors.add(name + ": producer " + p + ": " + expectedSequence[p] + " of " + recordsPerProducer +
+                           " records written");
+            }
+        }
+        int expectedTotal = expectedSequence.length * recordsPerProducer;
+        if (total != expectedTotal) {
+            errors.add(name + ": " + total + " records written, " + expectedTotal + " logged");
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package oracle.mobile.cloud.sample.fif.technician.mcs.analytics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import oracle.mobile.cloud.sample.fif.technician.maf.BinaryPayload;
+import oracle.mobile.cloud.sample.fif.technician.maf.RequestContext;
+import oracle.mobile.cloud.sample.fif.technician.maf.RestCallException;
+import oracle.mobile.cloud.sample.fif.technician.maf.RestClient;
+
+/**
+ * Sends analytics batches to a stand-in server on localhost and checks what the server receives:
+ *
+ * - a compressed upload arrives with "Content-Encoding: gzip" and a body that unzips to the batch, and is smaller
+ * - a server that answers a compressed upload with HTTP 400 gets the batch again uncompressed, without the header
+ * - a payload that gzip would make larger is sent as it is
+ * - a failure without http status does not switch off compression, even if its message contains "400"
+ *
+ * The body and headers are encoded by BinaryPayload, as in RestClient.handleBinaryRequest, and sent with an
+ * HttpURLConnection instead of the REST Service Adapter, which needs the MAF container.
+ *
+ * Run with the application classes on the class path:
+ *
+ * java oracle.mobile.cloud.sample.fif.technician.mcs.analytics.CompressedUploadCheck [eventsPerBatch]
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public final class CompressedUploadCheck {
+
+    private static final String ANALYTICS_PATH = "/mobile/platform/analytics/events";
+
+    //set by the stand-in server for each request
+    private static volatile String receivedContentEncoding;
+    private static volatile byte[] receivedBody;
+    private static volatile boolean rejectCompressedUploads = false;
+
+    private static final ArrayList<String> errors = new ArrayList<String>();
+
+    private CompressedUploadCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int eventsPerBatch = args.length > 0 ? Integer.parseInt(args[0]) : AnalyticsFlushScheduler.MAX_BATCH_EVENTS;
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(ANALYTICS_PATH, new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                receivedContentEncoding = exchange.getRequestHeaders().getFirst(BinaryPayload.CONTENT_ENCODING_HEADER);
+                receivedBody = readAll(exchange.getRequestBody());
+                boolean compressed = BinaryPayload.GZIP_ENCODING.equals(receivedContentEncoding);
+                int status = compressed && rejectCompressedUploads ? AnalyticsConstants.HTTP_400 :
+                             AnalyticsConstants.HTTP_202;
+                exchange.sendResponseHeaders(status, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        String url = "http://localhost:" + server.getAddress().getPort() + ANALYTICS_PATH;
+
+        try {
+            byte[] batch = createBatch(eventsPerBatch).getBytes(StandardCharsets.UTF_8);
+
+            //1. compressed upload accepted
+            RequestContext request = createRequest(batch, true);
+            BinaryPayload payload = BinaryPayload.encode(request);
+            int status = post(url, payload);
+            check(status == AnalyticsConstants.HTTP_202, "compressed upload: status " + status);
+            check(BinaryPayload.GZIP_ENCODING.equals(receivedContentEncoding),
+                  "compressed upload: Content-Encoding " + receivedContentEncoding);
+            check(Arrays.equals(payload.getBody(), receivedBody), "compressed upload: body changed on the way");
+            check(Arrays.equals(batch, gunzip(receivedBody)), "compressed upload: body does not unzip to the batch");
+            check(receivedBody.length < batch.length,
+                  "compressed upload: " + receivedBody.length + " bytes sent for " + batch.length);
+            System.out.println("events=" + eventsPerBatch + " uncompressedBytes=" + batch.length +
+                               " compressedBytes=" + receivedBody.length + " saved=" +
+                               (100 - receivedBody.length * 100 / batch.length) + "%");
+
+            //2. compressed upload rejected with HTTP 400, sent again uncompressed
+            rejectCompressedUploads = true;
+            status = post(url, payload);
+            check(status == AnalyticsConstants.HTTP_400, "rejected upload: status " + status);
+            check(UploadTask.isCompressionRejected(request, status),
+                  "rejected upload: not detected as compression rejected");
+            request.setCompressPayload(false);
+            check(!UploadTask.isCompressionRejected(request, status),
+                  "rejected upload: uncompressed upload detected as compression rejected");
+            status = post(url, BinaryPayload.encode(request));
+            check(status == AnalyticsConstants.HTTP_202, "uncompressed retry: status " + status);
+            check(receivedContentEncoding == null, "uncompressed retry: Content-Encoding " + receivedContentEncoding);
+            check(Arrays.equals(batch, receivedBody), "uncompressed retry: body is not the batch");
+
+            //3. tiny payload is not compressed
+            rejectCompressedUploads = false;
+            byte[] tinyBatch = "[]".getBytes(StandardCharsets.UTF_8);
+            BinaryPayload tinyPayload = BinaryPayload.encode(createRequest(tinyBatch, true));
+            status = post(url, tinyPayload);
+            check(!tinyPayload.isCompressed() && receivedContentEncoding == null,
+                  "tiny upload: Content-Encoding " + receivedContentEncoding);
+            check(Arrays.equals(tinyBatch, receivedBody), "tiny upload: body is not the batch");
+
+            //4. network failure with "400" in its message is no compression rejection
+            request.setCompressPayload(true);
+            Exception timeout = new SocketTimeoutException("Read timed out after 4000 ms");
+            int timeoutStatus = RestClient.getStatusFromException(timeout);
+            check(timeoutStatus == 0, "network failure: status " + timeoutStatus);
+            check(!UploadTask.isCompressionRejected(request, timeoutStatus),
+                  "network failure: detected as compression rejected");
+            RestCallException rejected =
+                new RestCallException(new Exception("Bad Request for host 10.0.4.215"), AnalyticsConstants.HTTP_400);
+            check(UploadTask.isCompressionRejected(request, RestClient.getStatusFromException(rejected)),
+                  "rest call exception with status 400: not detected as compression rejected");
+        } finally {
+            server.stop(0);
+        }
+
+        if (!errors.isEmpty()) {
+            for (String error : errors) {
+                System.out.println("FAILED: " + error);
+            }
+            System.exit(1);
+        }
+        System.out.println("OK: compressed body and Content-Encoding sent, HTTP 400 falls back to uncompressed");
+    }
+
+    private static void check(boolean condition, String error) {
+        if (!condition) {
+            errors.add(error);
+        }
+    }
+
+    private static RequestContext createRequest(byte[] payload, boolean compress) {
+        HashMap<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "application/json");
+        headers.put("Oracle-Mobile-Backend-Id", "3b2a6f5c-1d4e-4b8a-9c7d-0e1f2a3b4c5d");
+        RequestContext request = new RequestContext();
+        request.setHttpMethod(RequestContext.HttpMethod.POST);
+        request.setRequestURI(ANALYTICS_PATH);
+        request.setHttpHeaders(headers);
+        request.setPayload(payload);
+        request.setCompressPayload(compress);
+        return request;
+    }
+
+    private static int post(String url, BinaryPayload payload) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        if (payload.getHeaders() != null) {
+            Iterator<?> headers = payload.getHeaders().entrySet().iterator();
+            while (headers.hasNext()) {
+                Map.Entry<?, ?> header = (Map.Entry<?, ?>) headers.next();
+                connection.setRequestProperty((String) header.getKey(), (String) header.getValue());
+            }
+        }
+        OutputStream out = connection.getOutputStream();
+        try {
+            out.write(payload.getBody());
+        } finally {
+            out.close();
+        }
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+
+    /**
+     * @return analytics batch as built by UploadTask: context, session start, the events and session end
+     */
+    private static String createBatch(int events) {
+        String sessionId = "4f9a7c2e-8b3d-4e61-a5f0-9d2c1b7e6a43";
+        StringBuilder batch = new StringBuilder("[");
+        batch.append("{\"name\":\"context\",\"type\":\"system\",\"timestamp\":\"2015-06-12T09:41:07.211Z\",")
+             .append("\"properties\":{\"userName\":\"joe\",\"model\":\"iPhone7,2\",\"manufacturer\":\"Apple\",")
+             .append("\"osName\":\"iOS\",\"osVersion\":\"8.3\",\"osBuild\":\"12F70\",\"carrier\":\"AT&T\",")
+             .append("\"timezone\":\"-18000\",\"locale\":\"en_US\"}},");
+        batch.append("{\"name\":\"sessionStart\",\"type\":\"system\",\"timestamp\":\"2015-06-12T09:41:07.215Z\",")
+             .append("\"sessionID\":\"").append(sessionId).append("\"},");
+        String[] views = { "details", "photo", "map", "update" };
+        for (int i = 0; i < events; i++) {
+            batch.append("{\"name\":\"incident\",\"type\":\"custom\",\"timestamp\":\"2015-06-12T09:4")
+                 .append(2 + i % 8).append(':').append(10 + i % 50).append('.').append(100 + i * 7 % 900)
+                 .append("Z\",\"sessionID\":\"").append(sessionId).append("\",\"properties\":{\"username\":\"joe\",")
+                 .append("\"action\":\"user detail view selection\",\"selectedDetailView\":\"")
+                 .append(views[i % views.length]).append("\",\"incidentId\":\"").append(61 + i % 17)
+                 .append("\",\"timeStamp\":\"2015-06-12 09:4").append(2 + i % 8).append(':').append(10 + i % 50)
+                 .append("\"}},");
+        }
+        batch.append("{\"name\":\"sessionEnd\",\"type\":\"system\",\"timestamp\":\"2015-06-12T09:58:31.402Z\",")
+             .append("\"sessionID\":\"").append(sessionId).append("\",\"duration\":\"1044\"}]");
+        return batch.toString();
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        return readAll(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            return content.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package oracle.mobile.cloud.sample.fif.technician.mcs.analytics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Stress harness for the EventQueue. Several producer threads add numbered events while several consumer threads drain
+ * the queue concurrently and another thread takes snapshots. The harness fails if an event is missing from the union of
+ * all drained lists or is returned twice, or if the events of a producer are not in the order they were added within
+ * a drained list.
+ *
+ * Run with the application classes on the class path:
+ *
+ * java oracle.mobile.cloud.sample.fif.technician.mcs.analytics.EventQueueStress [producers] [eventsPerProducer] [consumers]
+ *
+ * Question 1: Why is this not a unit test?
+ * Answer   1: The project has no test framework. The harness is a main program that exits with status 1 on failure,
+ *             so it can be run from the command line or a build script.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public final class EventQueueStress {
+
+    private static final String SEQUENCE = "seq";
+
+    private EventQueueStress() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final int producers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        final int eventsPerProducer = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        final int consumers = Math.max(2, args.length > 2 ? Integer.parseInt(args[2]) : 2);
+
+        final EventQueue queue = new EventQueue();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch producersDone = new CountDownLatch(producers);
+        final AtomicInteger emptyToNonEmpty = new AtomicInteger();
+
+        //number of times each event was drained, by producer and sequence number. Written by the consumer threads
+        final AtomicIntegerArray drainCounts = new AtomicIntegerArray(producers * eventsPerProducer);
+        final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        final AtomicInteger drained = new AtomicInteger();
+        final AtomicInteger drainCalls = new AtomicInteger();
+
+        for (int p = 0; p < producers; p++) {
+            final String producerName = Integer.toString(p);
+            Thread producer = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < eventsPerProducer; i++) {
+                            HashMap<String, String> properties = new HashMap<String, String>();
+                            properties.put(SEQUENCE, Integer.toString(i));
+                            if (queue.add(new Event(producerName, null, properties))) {
+                                emptyToNonEmpty.incrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        producersDone.countDown();
+                    }
+                }
+            }, "producer-" + p);
+            producer.start();
+        }
+
+        Thread[] consumerThreads = new Thread[consumers];
+        for (int c = 0; c < consumers; c++) {
+            consumerThreads[c] = new Thread(new Runnable() {
+                public void run() {
+                    boolean done = false;
+                    while (!done) {
+                        //read before draining, so the last drain happens after all producers finished
+                        done = producersDone.getCount() == 0;
+                        ArrayList<Event> events = queue.drain();
+                        drainCalls.incrementAndGet();
+                        //the events of a producer must be in order within one drained list
+                        int[] lastSequence = new int[producers];
+                        Arrays.fill(lastSequence, -1);
+                        for (Event event : events) {
+                            int producer = Integer.parseInt(event.getName());
+                            int sequence = Integer.parseInt(event.getProperties().get(SEQUENCE));
+                            if (sequence <= lastSequence[producer] && errors.size() < 20) {
+                                errors.add("producer " + producer + ": event " + sequence + " drained after event " +
+                                           lastSequence[producer]);
+                            }
+                            lastSequence[producer] = sequence;
+                            drainCounts.incrementAndGet(producer * eventsPerProducer + sequence);
+                        }
+                        drained.addAndGet(events.size());
+                    }
+                }
+            }, "consumer-" + c);
+        }
+
+        final AtomicInteger snapshots = new AtomicInteger();
+        Thread observer = new Thread(new Runnable() {
+            public void run() {
+                //snapshots must not change the queue while it is drained
+                while (producersDone.getCount() > 0) {
+                    queue.snapshot();
+                    queue.size();
+                    snapshots.incrementAndGet();
+                }
+            }
+        }, "observer");
+
+        long startTime = System.nanoTime();
+        for (Thread consumer : consumerThreads) {
+            consumer.start();
+        }
+        observer.start();
+        start.countDown();
+        for (Thread consumer : consumerThreads) {
+            consumer.join();
+        }
+        observer.join();
+        long durationMillis = (System.nanoTime() - startTime) / 1000000;
+
+        //the union of all drained lists must hold every event exactly once
+        int lost = 0;
+        int duplicated = 0;
+        for (int i = 0; i < drainCounts.length(); i++) {
+            int count = drainCounts.get(i);
+            if (count != 1 && errors.size() < 20) {
+                errors.add("producer " + (i / eventsPerProducer) + ": event " + (i % eventsPerProducer) + " drained " +
+                           count + " times");
+            }
+            if (count == 0) {
+                lost++;
+            } else if (count > 1) {
+                duplicated++;
+            }
+        }
+        if (lost > 0 || duplicated > 0) {
+            errors.add(lost + " events lost, " + duplicated + " events drained more than once");
+        }
+        int expectedTotal = producers * eventsPerProducer;
+        if (drained.get() != expectedTotal) {
+            errors.add(drained.get() + " events drained, " + expectedTotal + " added");
+        }
+        if (!queue.isEmpty() || queue.size() != 0) {
+            errors.add("queue not empty after the last drain: size " + queue.size());
+        }
+
+        System.out.println("producers=" + producers + " consumers=" + consumers + " events=" + expectedTotal +
+                           " drains=" + drainCalls.get() +
+                           " emptyToNonEmpty=" + emptyToNonEmpty.get() + " snapshots=" + snapshots.get() +
+                           " durationMs=" + durationMillis);
+        if (!errors.isEmpty()) {
+            for (String error : errors) {
+                System.out.println("FAILED: " + error);
+            }
+            System.exit(1);
+        }
+        System.out.println("OK: no event lost or duplicated across the consumers, order kept per producer");
+    }
+}
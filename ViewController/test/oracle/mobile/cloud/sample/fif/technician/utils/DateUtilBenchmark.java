@@ -0,0 +1,115 @@
+package oracle.mobile.cloud.sample.fif.technician.utils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import java.text.SimpleDateFormat;
+
+import java.util.Date;
+
+/**
+ * Compares the time and the memory allocated per call of the DateUtil timestamps with the previous code, which created
+ * a SimpleDateFormat for each log line and analytics event.
+ *
+ * Run with the application classes on the class path:
+ *
+ * java oracle.mobile.cloud.sample.fif.technician.utils.DateUtilBenchmark [iterations]
+ *
+ * Question 1: How is the allocation measured?
+ * Answer   1: With the allocated bytes counter of the current thread (com.sun.management.ThreadMXBean). On a JVM
+ *             without this counter only the time is shown.
+ *
+ * @copyright Copyright (c) 2015 Oracle. All rights reserved.
+ */
+public final class DateUtilBenchmark {
+
+    private static final int LOG_TIMESTAMP = 0;
+    private static final int EVENT_TIMESTAMP = 1;
+    private static final int PREVIOUS_LOG_TIMESTAMP = 2;
+    private static final int PREVIOUS_EVENT_TIMESTAMP = 3;
+
+    private static final String[] NAMES = { "getLogTimeStamp", "getEventTimeStamp", "previous log timestamp",
+                                            "previous event timestamp" };
+
+    private DateUtilBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+        //the formats must not change
+        check(DateUtil.getLogTimeStamp().length() == previousLogTimeStamp().length(), "log timestamp format changed");
+        check(DateUtil.getEventTimeStamp().length() == previousEventTimeStamp().length(),
+              "event timestamp format changed");
+
+        for (int variant = 0; variant < NAMES.length; variant++) {
+            //warm up before measuring
+            run(variant, iterations);
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            int length = run(variant, iterations);
+            long duration = System.nanoTime() - start;
+            long allocated = allocatedBytes() - allocatedBefore;
+            System.out.println(NAMES[variant] + ": " + duration / iterations + "ns/call" +
+                               (allocatedBefore < 0 ? "" : " " + allocated / iterations + "bytes/call") +
+                               " (chars " + length / iterations + ")");
+        }
+    }
+
+    /**
+     * @return sum of the timestamp lengths, so the timestamps are not optimized away
+     */
+    private static int run(int variant, int iterations) {
+        int length = 0;
+        for (int i = 0; i < iterations; i++) {
+            switch (variant) {
+            case LOG_TIMESTAMP:
+                length += DateUtil.getLogTimeStamp().length();
+                break;
+            case EVENT_TIMESTAMP:
+                length += DateUtil.getEventTimeStamp().length();
+                break;
+            case PREVIOUS_LOG_TIMESTAMP:
+                length += previousLogTimeStamp().length();
+                break;
+            default:
+                length += previousEventTimeStamp().length();
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Previous log line prefix of AppLogger and FiFLogger, kept as baseline
+     */
+    private static String previousLogTimeStamp() {
+        SimpleDateFormat dt1 = new SimpleDateFormat("yyyyy-MM-dd hh:mm:ss");
+        return dt1.format(new Date());
+    }
+
+    /**
+     * Previous analytics event timeStamp property, kept as baseline
+     */
+    private static String previousEventTimeStamp() {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
+        return sdf.format(new Date());
+    }
+
+    /**
+     * @return bytes allocated by the current thread, -1 if the JVM does not count them
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void check(boolean condition, String error) {
+        if (!condition) {
+            System.out.println("FAILED: " + error);
+            System.exit(1);
+        }
+    }
+}